@@ -1,4 +1,5 @@
 import chess.ChessGame;
+import engine.Bitbases;
 import gui.menus.MainMenu;
 import javafx.application.Application;
 import javafx.collections.ObservableList;
@@ -14,6 +15,9 @@ public class LaunchApp extends Application {
     public void start(Stage primaryStage) {
         System.out.println("Starting application...");
 
+        // Ready long before a game reaches an endgame they cover, games are adjudicated from them
+        Bitbases.loadInBackground();
+
         pStage = primaryStage;
         ChessGame game = new ChessGame();
         Scene root = new Scene(new Group());
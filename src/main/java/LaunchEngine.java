@@ -0,0 +1,13 @@
+import engine.Uci;
+
+import java.io.IOException;
+
+/**
+ * Runs the engine without the GUI, speaking UCI on standard input and output so it can be used by chess GUIs and
+ * tournament managers
+ */
+public class LaunchEngine {
+    public static void main(String[] args) throws IOException {
+        new Uci(System.in, System.out).run();
+    }
+}
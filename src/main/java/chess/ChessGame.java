@@ -1,6 +1,21 @@
 package chess;
 
+import chess.core.Fen;
+import chess.core.Game;
+import chess.core.Move;
+import chess.core.MoveGenerator;
+import chess.core.MoveList;
+import chess.core.Moves;
+import chess.core.Position;
+import engine.Bitbases;
+import engine.Engine;
+import engine.MovePicker;
+import engine.PolyglotBook;
+import engine.SearchLimits;
+import exceptions.InvalidFenException;
 import exceptions.InvalidPieceException;
+import gui.windows.ErrorWindow;
+import javafx.application.Platform;
 import javafx.scene.layout.Pane;
 import javafx.scene.paint.Color;
 import javafx.scene.shape.Circle;
@@ -8,9 +23,11 @@ import javafx.scene.shape.Rectangle;
 import javafx.scene.text.Text;
 import net.ChessClient;
 import net.packets.MovePacket;
+import timer.ChessTimer;
 
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.concurrent.CompletionException;
 
 public class ChessGame extends Pane implements Runnable {
     public final static int GAME_SIZE = 8;
@@ -28,6 +45,12 @@ public class ChessGame extends Pane implements Runnable {
     /** Stores all pieces */
     private Piece[][] pieces = new Piece[GAME_SIZE][GAME_SIZE];
 
+    /** Rules state all queries are answered from, the pieces only display it */
+    private Game game = new Game();
+
+    /** Legal moves of the side to move */
+    private ArrayList<Move> legalMoves = new ArrayList<>();
+
     /** PGN format of the current game */
     private String gamePGN = "";
 
@@ -38,9 +61,6 @@ public class ChessGame extends Pane implements Runnable {
     /** scale of squares and pieces, based off of width and height */
     private double scale;
 
-    /** if false, it is blacks turn, otherwise its whites */
-    private boolean isWhitesTurn = true;
-
     private boolean isGameEnded = false;
 
     private boolean isOpponentConnected = false;
@@ -54,11 +74,20 @@ public class ChessGame extends Pane implements Runnable {
 
     private ChessClient chessClient = null;
 
+    /** Computer opponent, null unless playing against the computer */
+    private Engine engine = null;
+
+    /** Clock the computer budgets its thinking time from */
+    private ChessTimer engineTimer;
+
+    /** Opening book for hints and the computer, null if there is no book file */
+    private final PolyglotBook book = PolyglotBook.openDefault();
+
     /**
      * Default constructor of Game
      */
     public ChessGame() {
-        this("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1");
+        this(Fen.START_POSITION);
     }
 
     public ChessGame(char playerColor) {
@@ -83,8 +112,10 @@ public class ChessGame extends Pane implements Runnable {
     @Override
     public void run() {
         displayPiecesFEN();
-        updateLegalMoves(false);
+        updateLegalMoves();
         updateDisplay();
+
+        if (isComputersTurn()) playComputerMove();
     }
 
     public void updateDisplay() {
@@ -136,37 +167,66 @@ public class ChessGame extends Pane implements Runnable {
      * displays all the pieces using the FEN string
      */
     public void displayPiecesFEN() {
-        // Evaluate FEN string
-        int y = 0, x = 0;
-        for (int i = 0; i < positionFEN.length(); i++) {
-            char cur = positionFEN.charAt(i);
-            if (cur == ' ') {
-                break;
-            }
-            else if (cur >= '0' && cur <= '9') {
-                x += Integer.parseInt(String.valueOf(cur));
-            }
-            else if (cur == '/') {
-                y++;
-                x = 0;
-            }
-            else {
-                try {
-                    Piece curPiece = new Piece(cur, this, x, y);
-
-                    pieces[y][x] = curPiece;
-                    curPiece.setScale(scale);
-                    curPiece.setX(x);
-                    curPiece.setY(y);
-                }
-                catch (InvalidPieceException ex) {
-                    System.err.println(ex.getMessage());
-                }
+        try {
+            game = new Game(positionFEN);
+        }
+        catch (InvalidFenException ex) {
+            System.err.println(ex.getMessage());
+            game = new Game();
+        }
+
+        game.setAdjudicator(Bitbases::adjudicate);
+
+        placePieces();
+        displayPieces();
+    }
+
+    /**
+     * Sets up a piece for every piece of the rules state, the display is updated separately
+     */
+    private void placePieces() {
+        pieces = new Piece[GAME_SIZE][GAME_SIZE];
+        Position position = game.getPosition();
 
-                x++;
+        for (int square = 0; square < 64; square++) {
+            int piece = position.getPiece(square);
+            if (piece == Position.NO_PIECE) continue;
+
+            int x = Position.squareX(square);
+            int y = Position.squareY(square);
+
+            try {
+                Piece curPiece = new Piece(Position.fenFromPiece(piece), this, x, y);
+
+                pieces[y][x] = curPiece;
+                curPiece.setScale(scale);
+                curPiece.setX(x);
+                curPiece.setY(y);
+            }
+            catch (InvalidPieceException ex) {
+                System.err.println(ex.getMessage());
             }
         }
-        displayPieces();
+    }
+
+    /**
+     * Takes back the last move played, for a move the server refused. The rules state takes it back exactly and
+     * the pieces are set up again from it.
+     */
+    public void takeBackLastMove() {
+        if (moves.isEmpty()) return;
+
+        clearDisplayPossibleMoves();
+
+        game.takeBack();
+        moves.remove(moves.size() - 1);
+
+        // The refused move may have ended the game
+        isGameEnded = false;
+
+        placePieces();
+        updateLegalMoves();
+        updateDisplay();
     }
     
     public void clearDisplayPossibleMoves() {
@@ -177,7 +237,7 @@ public class ChessGame extends Pane implements Runnable {
     public void displayPossibleMoves(ArrayList<Move> moves, char color) {
         clearDisplayPossibleMoves();
 
-        if ((color != 'w' && isWhitesTurn) || (color == 'w' && !isWhitesTurn))
+        if ((color != 'w' && isWhitesTurn()) || (color == 'w' && !isWhitesTurn()))
             return;
 
         // Recommended to be less than 1
@@ -258,159 +318,146 @@ public class ChessGame extends Pane implements Runnable {
         }
     }
 
-    public boolean isLegal(Move move, boolean recursion) {
-        // Cannot capture pieces of the same color
-        Piece startPiece = pieces[move.getBegY()][move.getBegX()];
-        Piece endPiece = pieces[move.getEndY()][move.getEndX()];
-        if (endPiece != null && startPiece.getColor() == endPiece.getColor()) return false;
-
-        // Cannot move into check
-        char pieceType = Character.toLowerCase(startPiece.getPieceType());
-        if (!recursion && isInCheckAfterMove(move)) {
-            return false;
-        }
-
-        return true;
-    }
-
     /**
-     * Gives all pieces all of their legal moves
+     * Gives all pieces of the side to move their legal moves
      */
-    public void updateLegalMoves(boolean recursion) {
+    public void updateLegalMoves() {
         for (Piece[] row : pieces) {
             for (Piece piece : row) {
-                updateLegalMovesForPiece(piece, recursion);
+                if (piece != null) piece.wipeLegalMoves();
             }
         }
-    }
-
-    private void updateLegalMovesForPiece(Piece piece, boolean recursion) {
-        if (piece == null) return;
-
-        piece.wipeLegalMoves();
-
-        ArrayList<PieceDirection> directions = new ArrayList<>(Piece.PIECE_DIRECTION_MAP.get(Character.toLowerCase(piece.getPieceType())));
-
-        ArrayList<Move> possibleMoves = new ArrayList<>();
-
-        char pieceType = Character.toLowerCase(piece.getPieceType());
 
-        if (pieceType == 'p') {
-            // Extra move on first move
-            addFirstPawnMove(piece, directions);
+        // Best first, so the moves shown for a piece and the hint start with the most promising ones
+        Position position = game.getPosition();
+        MoveList ordered = new MoveList();
+        MoveGenerator.generateLegalMoves(position, ordered);
+        MovePicker.sort(position, ordered);
 
-            // En Passant
+        legalMoves = new ArrayList<>(ordered.size());
+        for (int i = 0; i < ordered.size(); i++) {
+            legalMoves.add(position.toMove(ordered.get(i)));
         }
 
-        if (pieceType == 'k') {
-            possibleMoves.addAll(getCastles(piece));
+        for (Move move : legalMoves) {
+            pieces[move.getBegY()][move.getBegX()].addLegalMoves(move);
         }
-
-        for (PieceDirection direction : directions) {
-            ArrayList<Move> moves = direction.getMoves(piece.getPosX(), piece.getPosY(), isFlipped(), pieces);
-
-            for (Move move : moves) if (isLegal(move, recursion)) possibleMoves.add(move);
-        }
-
-        piece.addLegalMoves(possibleMoves);
     }
 
-    private void addFirstPawnMove(Piece piece, ArrayList<PieceDirection> directions) {
-        if (!piece.hasPieceMoved()) {
-            directions.remove(0);
-            directions.add(new PieceDirection(0, 1, 2, false, false));
-        }
-    }
-
-    private ArrayList<Move> getCastles(Piece king) {
-        ArrayList<Move> toReturn = new ArrayList<>();
+    public void move(Move toMove) {
+        clearDisplayPossibleMoves();
 
-        if (isCastlePossible(king, 'k')) {
-            toReturn.add(new Move(true, king.getPosX(), king.getPosY(), true));
-        }
+        if (isGameEnded) return;
 
-        if (isCastlePossible(king, 'q')) {
-            toReturn.add(new Move(true, king.getPosX(), king.getPosY(), false));
+        // moves can come from the network, anything the rules engine rejects is dropped before the board changes
+        int legalMove = game.findLegalMove(toMove);
+        if (legalMove == Moves.NONE) {
+            System.err.println("Ignoring illegal move " + toMove.toUci());
+            return;
         }
 
-        return toReturn;
-    }
+        // The board is drawn from the move the rules engine found, a move from the network may lack the flags
+        // telling castling, en passant and promotion apart, which the engine works out from the squares
+        Move played = game.getPosition().toMove(legalMove);
 
-    private boolean isCastlePossible(Piece king, char side) {
-        assert (side == 'k' || side == 'q');
+        Piece pieceToReturn = updateBoard(played);
+        if (played.isCastle()) castle(played);
+        if (played.isEnPassant()) pieceToReturn = captureEnPassant(played);
+        if (played.getPromotion() != 'x') promote(played);
 
-        int rookX = (side == 'k') ? 7 : 0;
-        int kingY = king.getPosY();
+        game.play(legalMove);
 
-        // If king or rooks move, castle is no longer possible
-        if (king.hasPieceMoved()) return false;
-
-        Piece rook = pieces[kingY][rookX];
-        boolean isPieceRook = rook != null && Character.toLowerCase(rook.getPieceType()) == 'r';
+        // change turn if not multiplayer game
+        if (chessClient == null && engine == null) {
+            playerColor = playerColor == 'w' ? 'b' : 'w';
+            updateDisplay();
+        }
 
-        if (!isPieceRook || rook.hasPieceMoved()) return false;
+        updateLegalMoves();
 
-        // direction of the rook if it was there
-        int sideX = (side == 'k') ? 1 : -1;
+        moves.add(played);
 
-        for (int i = king.getPosX() + sideX; i > 0 && i < 7; i += sideX) {
-            Piece curPiece = pieces[kingY][i];
+        getChildren().remove(pieceToReturn);
 
-            // Cannot castle through a piece or through check
-            if (curPiece != null || canSomeoneBlockCastle(i, kingY, king.getColor())) return false;
+        char result = getGameResult();
+        if (result != 'n') {
+            endGame(result);
+        }
+        else if (isComputersTurn()) {
+            playComputerMove();
         }
-
-        return true;
     }
 
-    private boolean canSomeoneBlockCastle(int x, int y, char kingColor) {
-        for (Piece[] row : pieces) {
-            for (Piece piece : row) {
-                if (piece == null || piece.getColor() == kingColor) continue;
-
-                for (Move move : piece.getLegalMoves()) {
-                    if (move.getEndX() == x && move.getEndY() == y) return true;
-                }
-            }
-        }
+    /**
+     * @return the book move if the position is in the book, else the legal move the move ordering ranks first,
+     * null if there are no legal moves
+     */
+    public Move getHint() {
+        Move bookMove = getBookMove();
+        if (bookMove != null) return bookMove;
 
-        return false;
+        return legalMoves.isEmpty() ? null : legalMoves.get(0);
     }
 
-    public void move(Move toMove) {
-        clearDisplayPossibleMoves();
+    /**
+     * @return the book move with the highest weight, null if the position is not in the book
+     */
+    public Move getBookMove() {
+        if (book == null) return null;
 
-        if (isGameEnded) return;
+        int move = book.getBestMove(game.getPosition());
+        return move == Moves.NONE ? null : game.getPosition().toMove(move);
+    }
 
-        Piece pieceToReturn = updateBoard(toMove);
-        if (toMove.isCastle()) castle(toMove);
+    /**
+     * Makes the computer play the side the player does not
+     *
+     * @param timer clock of the computer, its thinking time is taken from it
+     */
+    public void playAgainstComputer(ChessTimer timer) {
+        this.engine = new Engine();
+        this.engine.setBook(book);
+        this.engineTimer = timer;
+    }
 
-        isWhitesTurn = !isWhitesTurn;
+    private boolean isComputersTurn() {
+        return engine != null && !isGameEnded && !isPlayersTurn();
+    }
 
-        // change turn if not multiplayer game
-        if (chessClient == null) {
-            playerColor = playerColor == 'w' ? 'b' : 'w';
-            updateDisplay();
-        }
+    /**
+     * Searches on the engine thread and plays the result on the JavaFX thread, the board stays responsive meanwhile
+     */
+    private void playComputerMove() {
+        long startTime = System.currentTimeMillis();
 
-        // To prevent a bug that wouldn't recognize a piece was in check if it was higher in the pieces array than
-        // the checking piece, parameter is x because we're trying to find if someone is in check independent of color
-        if (isSomeoneInCheck('x')) {
-            updateLegalMoves(false);
-        }
+        engine.think(game.getPosition(), SearchLimits.fromTimer(engineTimer), null)
+                .whenComplete((result, failure) -> Platform.runLater(() -> {
+                    // The engine is shut down when the game ends, whatever it was doing then no longer matters
+                    if (isGameEnded) return;
 
-        moves.add(toMove);
+                    if (failure != null) {
+                        endGameOnError(failure instanceof CompletionException && failure.getCause() != null
+                                ? failure.getCause() : failure);
+                        return;
+                    }
 
-        getChildren().remove(pieceToReturn);
+                    engineTimer.setTimeLeftms(engineTimer.getTimeLeftms() - (int) (System.currentTimeMillis() - startTime));
+                    engineTimer.increment();
 
-        // printAllLegalMoves();
+                    if (result.getBestMove() != Moves.NONE) move(game.getPosition().toMove(result.getBestMove()));
+                }));
+    }
 
-        
+    /**
+     * Ends a game against the computer that cannot go on, the computer would otherwise never move again
+     */
+    private void endGameOnError(Throwable failure) {
+        System.err.println("Engine Exception: " + failure);
 
-        char result = getGameResult();
-        if (result != 'n') {
-            endGame(result);
-        }
+        isGameEnded = true;
+        engine.shutdown();
+
+        new ErrorWindow("The computer stopped playing: " + failure.getMessage()).run();
     }
 
     private Piece updateBoard(Move toMove) {
@@ -422,7 +469,6 @@ public class ChessGame extends Pane implements Runnable {
 
         pieceToMove.move(toMove.getEndX(), toMove.getEndY());
 
-        updateLegalMoves(false);
         return pieceToReturn;
     }
 
@@ -445,54 +491,38 @@ public class ChessGame extends Pane implements Runnable {
         updateBoard(rookMove);
     }
 
-    private boolean isInCheckAfterMove(Move toMove) {
-        // Perform the move
-        Piece pieceToMove = pieces[toMove.getBegY()][toMove.getBegX()];
-        Piece pieceToCapture = pieces[toMove.getEndY()][toMove.getEndX()];
-
-        storeAllLegalMoves();
-
-        pieces[toMove.getEndY()][toMove.getEndX()] = pieces[toMove.getBegY()][toMove.getBegX()];
-        pieces[toMove.getBegY()][toMove.getBegX()] = null;
-
-        pieceToMove.testMove(toMove.getEndX(), toMove.getEndY());
-
-        updateLegalMoves(true);
-
-        boolean result = isSomeoneInCheck(pieceToMove.getColor());
+    /**
+     * Removes the pawn captured en passant, it stands beside the capturing pawn rather than on its end square
+     *
+     * @return the captured pawn
+     */
+    private Piece captureEnPassant(Move toMove) {
+        Piece capturedPawn = pieces[toMove.getBegY()][toMove.getEndX()];
+        pieces[toMove.getBegY()][toMove.getEndX()] = null;
 
-        // Pretend it never happened
-        pieces[toMove.getBegY()][toMove.getBegX()] = pieces[toMove.getEndY()][toMove.getEndX()];
-        pieces[toMove.getEndY()][toMove.getEndX()] = pieceToCapture;
+        return capturedPawn;
+    }
 
-        pieceToMove.testMove(toMove.getBegX(), toMove.getBegY());
+    private void promote(Move toMove) {
+        Piece pawn = pieces[toMove.getEndY()][toMove.getEndX()];
 
-        restoreAllLegalMoves();
+        // Promotions are always stored with the case of the color promoting
+        char promotion = pawn.getColor() == 'w'
+                ? Character.toUpperCase(toMove.getPromotion())
+                : Character.toLowerCase(toMove.getPromotion());
 
-        return result;
-    }
+        try {
+            Piece promotedPiece = new Piece(promotion, this, toMove.getEndX(), toMove.getEndY());
+            promotedPiece.setFlipped(playerColor != 'w');
+            promotedPiece.setScale(scale);
 
-    /**
-     * These two methods are workarounds to calling updateLegalMoves to restore the moves as it alters the moves
-     * undesirably
-     */
-    private void storeAllLegalMoves() {
-        for (Piece[] row : pieces) {
-            for (Piece piece : row) {
-                if (piece == null) continue;
+            pieces[toMove.getEndY()][toMove.getEndX()] = promotedPiece;
 
-                piece.storeLegalMoves();
-            }
+            getChildren().remove(pawn);
+            getChildren().add(promotedPiece);
         }
-    }
-
-    private void restoreAllLegalMoves() {
-        for (Piece[] row : pieces) {
-            for (Piece piece : row) {
-                if (piece == null) continue;
-
-                piece.restoreLegalMoves();
-            }
+        catch (InvalidPieceException ex) {
+            System.err.println(ex.getMessage());
         }
     }
 
@@ -501,11 +531,11 @@ public class ChessGame extends Pane implements Runnable {
     }
 
     public boolean isWhitesTurn() {
-        return isWhitesTurn;
+        return game.isWhitesTurn();
     }
 
     public boolean isPlayersTurn() {
-        return (isWhitesTurn && playerColor == 'w') || (!isWhitesTurn && playerColor == 'b');
+        return (isWhitesTurn() && playerColor == 'w') || (!isWhitesTurn() && playerColor == 'b');
     }
 
     public boolean isOpponentConnected() {
@@ -530,44 +560,26 @@ public class ChessGame extends Pane implements Runnable {
     }
 
     /**
-     * SLOW SLOW SLOW LSOW LSWOSLWOLSSLOW
-     * @return
+     * @param color color of the king to look at, x looks at both kings
+     * @return whether the king is in check
      */
     public boolean isSomeoneInCheck(char color) {
-        for (Piece[] row : pieces) {
-            for (Piece piece : row) {
-                if (piece == null || piece.getColor() == color) continue;
-
-                for (Move move : piece.getLegalMoves()) {
-                    if (!move.isCapture()) continue;
-
-                    Piece capturingPiece = pieces[move.getEndY()][move.getEndX()];
-                    if (capturingPiece == null) continue;
-
-                    char pieceType = capturingPiece.getPieceType();
-                    boolean isCapturingKing = Character.toLowerCase(pieceType) == 'k';
-
-                    if (isCapturingKing) return true;
-                }
-            }
-        }
+        if (color == 'x') return game.getPosition().isInCheck(Position.WHITE) || game.getPosition().isInCheck(Position.BLACK);
 
-        return false;
+        return game.getPosition().isInCheck(color == 'w' ? Position.WHITE : Position.BLACK);
     }
 
     public boolean isSomeoneInCheckmate(char color) {
         return isSomeoneInCheck(color) && noMovesLeft(color);
     }
 
+    /**
+     * Only the side to move can run out of moves, the other side is never considered stuck
+     */
     private boolean noMovesLeft(char color) {
-        for (Piece[] row: pieces) {
-            for (Piece piece : row) {
-                if (piece == null) continue;
-                if (piece.getColor() == color && !piece.getLegalMoves().isEmpty()) return false;
-            }
-        }
+        boolean isColorToMove = (color == 'w') == isWhitesTurn();
 
-        return true;
+        return isColorToMove && legalMoves.isEmpty();
     }
 
     /**
@@ -579,6 +591,9 @@ public class ChessGame extends Pane implements Runnable {
      * s: stalemate
      * f: draw by 50 move rule
      * t: draw by threefold repetition
+     * W: white wins by adjudication
+     * B: black wins by adjudication
+     * d: draw by adjudication
      * n: game has not yet reached a result
      */
     public char getGameResult() {
@@ -593,19 +608,34 @@ public class ChessGame extends Pane implements Runnable {
         // check if stalemate by no moves left is reached
         boolean drawByStalemate = noMovesLeft('w') || noMovesLeft('b');
 
+        if (drawByStalemate)
+            return 's';
+
         // stalemate by 50 move rule
+        if (game.getPosition().isFiftyMoveRule())
+            return 'f';
 
         // stalemate by threefold repetition
+        if (game.getPosition().isThreefoldRepetition())
+            return 't';
 
-        if (drawByStalemate)
-            return 's';
+        // Endgames the bitbases know the result of, decided the same way as the server's game of the room
+        return game.getResult();
+    }
 
-        return 'n';
+    public Position getPosition() {
+        return game.getPosition();
+    }
+
+    public Game getGame() {
+        return game;
     }
 
     private void endGame(char result) {
         isGameEnded = true;
 
+        if (engine != null) engine.shutdown();
+
         Text tResult = new Text();
 
         tResult.setX(super.getWidth() / 2);
@@ -625,6 +655,21 @@ public class ChessGame extends Pane implements Runnable {
         else if (result == 's') {
             tResult.setText("Game is drawn by stalemate!");
         }
+        else if (result == 'f') {
+            tResult.setText("Game is drawn by the 50 move rule!");
+        }
+        else if (result == 't') {
+            tResult.setText("Game is drawn by threefold repetition!");
+        }
+        else if (result == 'W') {
+            tResult.setText("White has won by adjudication!");
+        }
+        else if (result == 'B') {
+            tResult.setText("Black has won by adjudication!");
+        }
+        else if (result == 'd') {
+            tResult.setText("Game is drawn by adjudication!");
+        }
 
         getChildren().add(tResult);
     }
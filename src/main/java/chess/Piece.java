@@ -1,5 +1,6 @@
 package chess;
 
+import chess.core.Move;
 import exceptions.InvalidPieceException;
 import javafx.event.EventHandler;
 import javafx.scene.Cursor;
@@ -14,46 +15,9 @@ import net.packets.MovePacket;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Map;
-import java.util.Arrays;
 import java.util.HashMap;
 
 public class Piece extends Group {
-    /**
-     * for storing directions in which each piece can go and if this pattern repeats
-     * moves in this case are normalized at 0, 0
-     */
-    public final static Map<Character, ArrayList<PieceDirection>> PIECE_DIRECTION_MAP;
-
-    static {
-        PIECE_DIRECTION_MAP = new HashMap<Character, ArrayList<PieceDirection>>();
-        PIECE_DIRECTION_MAP.put('p', new ArrayList<>(Arrays.asList(
-            new PieceDirection(0, 1, 1, false, false),
-            new PieceDirection(1, 1, 1, false, true, true),
-            new PieceDirection(-1, 1, 1, false, true, true)
-        )));
-        PIECE_DIRECTION_MAP.put('b', new ArrayList<>(Arrays.asList(
-            new PieceDirection(1, 1, 8, true)
-        )));
-        PIECE_DIRECTION_MAP.put('n', new ArrayList<>(Arrays.asList(
-            new PieceDirection(1, 2, 1, true),
-            new PieceDirection(2, 1, 1, true)
-        )));
-        PIECE_DIRECTION_MAP.put('r', new ArrayList<>(Arrays.asList(
-            new PieceDirection(0, 1, 8, true),
-            new PieceDirection(1, 0, 8, true)
-        )));
-        PIECE_DIRECTION_MAP.put('q', new ArrayList<>(Arrays.asList(
-            new PieceDirection(0, 1, 8, true),
-            new PieceDirection(1, 1, 8, true),
-            new PieceDirection(1, 0, 8, true)
-        )));
-        PIECE_DIRECTION_MAP.put('k', new ArrayList<>(Arrays.asList(
-            new PieceDirection(0, 1, 1, true),
-            new PieceDirection(1, 1, 1, true),
-            new PieceDirection(1, 0, 1, true)
-        )));
-    }
-
     /**
      * For converting fen piece notation to the image file name
      */
@@ -88,15 +52,10 @@ public class Piece extends Group {
 
     /**
      * List of all the legal moves that the piece can make
-     * generated in Game class, so we can use the entire board as context for where the piece can go
+     * generated by the Position of the game, so we can use the entire board as context for where the piece can go
      */
     private ArrayList<Move> legalMoves = new ArrayList<>();
 
-    /**
-     * used for temporary storage in storing and restoring moves
-     */
-    private ArrayList<Move> tempLegalMoves = new ArrayList<>();
-
     /**
      * Stores the game the piece is a part of so we can update the gameboard when the piece moves
      */
@@ -252,11 +211,6 @@ public class Piece extends Group {
         this.hasMoved = true;
     }
 
-    protected void testMove(int posX, int posY) {
-        this.posX = posX;
-        this.posY = posY;
-    }
-
     public void setScale(double scale) {
         this.scale = scale;
 
@@ -325,16 +279,6 @@ public class Piece extends Group {
         return (color == 'w' && curGame.isWhitesTurn()) || (color == 'b' && !curGame.isWhitesTurn());
     }
 
-    public void storeLegalMoves() {
-        tempLegalMoves.clear();
-        tempLegalMoves.addAll(legalMoves);
-    }
-
-    public void restoreLegalMoves() {
-        legalMoves.clear();
-        legalMoves.addAll(tempLegalMoves);
-    }
-
     public void wipeLegalMoves() { legalMoves.clear(); }
 
     public Move getLegalMove(int x, int y) {
@@ -0,0 +1,13 @@
+package chess.core;
+
+/**
+ * Decides games the rules alone would let go on, such as endgames whose result with best play is known. A Game
+ * asks it once the rules have not ended the game.
+ */
+@FunctionalInterface
+public interface Adjudicator {
+    /**
+     * @return W: white wins, B: black wins, d: draw, n: no decision
+     */
+    char adjudicate(Position position);
+}
@@ -0,0 +1,261 @@
+package chess.core;
+
+/**
+ * Precomputed attack tables, built once when the class is loaded.
+ * Knights, kings and pawns use a plain table per square. Rooks and bishops use magic bitboards: the blockers on
+ * the rays of a square are multiplied by a magic number so the top bits of the product index the attack set
+ * for that exact blocker configuration, which turns a slider lookup into a multiply, a shift and a load.
+ */
+public final class Attacks {
+    private final static long FILE_A = 0x0101010101010101L;
+    private final static long FILE_H = FILE_A << 7;
+    private final static long RANK_1 = 0xFFL;
+    private final static long RANK_8 = RANK_1 << 56;
+
+    /** Ray directions as file and rank steps */
+    private final static int[][] ROOK_DIRECTIONS = {{0, 1}, {1, 0}, {0, -1}, {-1, 0}};
+    private final static int[][] BISHOP_DIRECTIONS = {{1, 1}, {1, -1}, {-1, 1}, {-1, -1}};
+
+    private final static int[][] KNIGHT_STEPS = {{1, 2}, {2, 1}, {2, -1}, {1, -2}, {-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+    private final static int[][] KING_STEPS = {{0, 1}, {1, 1}, {1, 0}, {1, -1}, {0, -1}, {-1, -1}, {-1, 0}, {-1, 1}};
+
+    /** Squares a pawn of each color attacks, indexed by [color][square] */
+    private final static long[][] PAWN_ATTACKS = new long[2][64];
+    private final static long[] KNIGHT_ATTACKS = new long[64];
+    private final static long[] KING_ATTACKS = new long[64];
+
+    /** Relevant blockers of each square, the edge of a ray never changes what the ray attacks */
+    private final static long[] ROOK_MASKS = new long[64];
+    private final static long[] BISHOP_MASKS = new long[64];
+
+    /**
+     * Magic numbers of every square, found once with a seeded random search. Each one maps every blocker subset of
+     * its mask to an index that never collides with a different attack set.
+     */
+    private final static long[] ROOK_MAGICS = {
+            0x008000908064C000L, 0x0040200040001000L, 0x0180100080A0010AL, 0x8880041000800800L,
+            0x1200100201200804L, 0x0200020004011008L, 0x2180010000800600L, 0x0200005088210204L,
+            0x0000800080204001L, 0x1000804000802001L, 0x8240801000200080L, 0x8611001004200900L,
+            0x008180800C001800L, 0x0100800200800400L, 0x0A02000102000408L, 0x8020802300104280L,
+            0x0080004000402000L, 0xE010104000402000L, 0x0800808010002000L, 0xA280210008100100L,
+            0x0001818014000800L, 0xA002010100080400L, 0x0008040088020130L, 0x0001020004048845L,
+            0x0081826280004004L, 0x2020810900284000L, 0x0200100080802000L, 0x0200080080100080L,
+            0x8083080100100500L, 0x4406000901000400L, 0x0005020080800100L, 0x0090204200008114L,
+            0x0010400094800420L, 0x0900804000802002L, 0x0201001841002000L, 0x4100080080801000L,
+            0x4540040080800800L, 0x0000800400800200L, 0x9281800100808200L, 0x8004048102000854L,
+            0x4420802040008006L, 0x0880500020004002L, 0x0801200241050010L, 0x8400080010008080L,
+            0x0008000500090010L, 0x0082009084020008L, 0x4012000108020004L, 0x9000104D08860004L,
+            0x2004204114800100L, 0x0148802112400300L, 0x0202842000100880L, 0x001B080080900080L,
+            0x001A002008100600L, 0x0004008004020080L, 0x5181000600040300L, 0x0000044401128A00L,
+            0x8044110480002441L, 0x1023012082044112L, 0x00804080200A0012L, 0x000420310A004A42L,
+            0x0023001004020801L, 0x0882001008040102L, 0x000230088118020CL, 0x0000019025040042L
+    };
+
+    private final static long[] BISHOP_MAGICS = {
+            0x1010220204082A00L, 0x80E0020202002804L, 0x2008480104200020L, 0x000220920280002DL,
+            0x32040421000B0284L, 0x1002080404000400L, 0x0004160892080040L, 0x2203024206204201L,
+            0x0002404264010200L, 0x1120908408428124L, 0xB100424403002280L, 0x240008060440C288L,
+            0x2040040420490400L, 0x0100620210040022L, 0x0400084104202028L, 0x0010050080908820L,
+            0x0C90A04490824802L, 0x000200A008210130L, 0x0C08001000204010L, 0x0008000186014480L,
+            0x0601044820080021L, 0x0002000101013100L, 0x1400A08108080204L, 0x0250401104485410L,
+            0x4820240810142843L, 0x0009142A20182200L, 0x0848140048440020L, 0x2020120000400440L,
+            0x0108840200802003L, 0x0009070082009492L, 0x020C0C0038424245L, 0xCA44005808210410L,
+            0x8011212000500404L, 0x2028840510101008L, 0x0004042A00041400L, 0x0624020080980080L,
+            0x1820410040840040L, 0x2201004202050100L, 0x402A088A24040224L, 0x0242061040002400L,
+            0x90020202400821A0L, 0x00C9009004E01002L, 0x58C2060202023100L, 0x0000012214040800L,
+            0x0210846810100200L, 0x0004208081010200L, 0x01A4108404442100L, 0x8054082C80280106L,
+            0x0004144904104208L, 0x00324C0A11104000L, 0x1000020231040100L, 0x2080001042020004L,
+            0x0544021020288104L, 0x1103501408083020L, 0x4010451004960002L, 0x003010091C44902CL,
+            0x0102402884202000L, 0x0480804C00841086L, 0x04602C8602210400L, 0x0000004000420200L,
+            0x0040000020442C18L, 0x4483804089094100L, 0x80000B0248020400L, 0x0045010808008680L
+    };
+
+    private final static int[] ROOK_SHIFTS = new int[64];
+    private final static int[] BISHOP_SHIFTS = new int[64];
+
+    /** Where the attacks of each square start in the shared tables */
+    private final static int[] ROOK_OFFSETS = new int[64];
+    private final static int[] BISHOP_OFFSETS = new int[64];
+
+    private final static long[] ROOK_TABLE;
+    private final static long[] BISHOP_TABLE;
+
+    /** Squares strictly between two squares on the same rank, file or diagonal, indexed by [from][to] */
+    private final static long[][] BETWEEN = new long[64][64];
+
+    /** The whole rank, file or diagonal two squares share, indexed by [from][to] */
+    private final static long[][] LINE = new long[64][64];
+
+    static {
+        for (int square = 0; square < 64; square++) {
+            KNIGHT_ATTACKS[square] = stepAttacks(square, KNIGHT_STEPS);
+            KING_ATTACKS[square] = stepAttacks(square, KING_STEPS);
+            PAWN_ATTACKS[Position.WHITE][square] = stepAttacks(square, new int[][] {{-1, 1}, {1, 1}});
+            PAWN_ATTACKS[Position.BLACK][square] = stepAttacks(square, new int[][] {{-1, -1}, {1, -1}});
+
+            ROOK_MASKS[square] = slidingAttacks(square, 0, ROOK_DIRECTIONS) & ~edges(square);
+            BISHOP_MASKS[square] = slidingAttacks(square, 0, BISHOP_DIRECTIONS) & ~edges(square);
+        }
+
+        ROOK_TABLE = new long[initOffsets(ROOK_MASKS, ROOK_SHIFTS, ROOK_OFFSETS)];
+        BISHOP_TABLE = new long[initOffsets(BISHOP_MASKS, BISHOP_SHIFTS, BISHOP_OFFSETS)];
+
+        for (int square = 0; square < 64; square++) {
+            fillTable(square, ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS, ROOK_TABLE);
+            fillTable(square, BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS, BISHOP_TABLE);
+        }
+
+        for (int from = 0; from < 64; from++) {
+            for (int to = 0; to < 64; to++) {
+                long fromBit = 1L << from;
+                long toBit = 1L << to;
+
+                if ((rookAttacks(from, 0) & toBit) != 0) {
+                    BETWEEN[from][to] = rookAttacks(from, toBit) & rookAttacks(to, fromBit);
+                    LINE[from][to] = (rookAttacks(from, 0) & rookAttacks(to, 0)) | fromBit | toBit;
+                }
+                else if ((bishopAttacks(from, 0) & toBit) != 0) {
+                    BETWEEN[from][to] = bishopAttacks(from, toBit) & bishopAttacks(to, fromBit);
+                    LINE[from][to] = (bishopAttacks(from, 0) & bishopAttacks(to, 0)) | fromBit | toBit;
+                }
+            }
+        }
+    }
+
+    private Attacks() {}
+
+    public static long pawnAttacks(int square, int color) {
+        return PAWN_ATTACKS[color][square];
+    }
+
+    /**
+     * @return every square attacked by a set of pawns of the given color
+     */
+    public static long pawnAttacks(long pawns, int color) {
+        if (color == Position.WHITE) return ((pawns << 7) & ~FILE_H) | ((pawns << 9) & ~FILE_A);
+
+        return ((pawns >>> 9) & ~FILE_H) | ((pawns >>> 7) & ~FILE_A);
+    }
+
+    public static long knightAttacks(int square) {
+        return KNIGHT_ATTACKS[square];
+    }
+
+    public static long kingAttacks(int square) {
+        return KING_ATTACKS[square];
+    }
+
+    public static long rookAttacks(int square, long occupied) {
+        int index = (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+        return ROOK_TABLE[ROOK_OFFSETS[square] + index];
+    }
+
+    public static long bishopAttacks(int square, long occupied) {
+        int index = (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+        return BISHOP_TABLE[BISHOP_OFFSETS[square] + index];
+    }
+
+    public static long queenAttacks(int square, long occupied) {
+        return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+    }
+
+    /**
+     * @return squares strictly between two squares, empty if they do not share a rank, file or diagonal
+     */
+    public static long between(int from, int to) {
+        return BETWEEN[from][to];
+    }
+
+    /**
+     * @return the rank, file or diagonal through both squares, empty if they do not share one
+     */
+    public static long line(int from, int to) {
+        return LINE[from][to];
+    }
+
+    /**
+     * Edges of the board that are not on the same rank or file as the square
+     */
+    private static long edges(int square) {
+        long rank = RANK_1 << (8 * (square >>> 3));
+        long file = FILE_A << (square & 7);
+
+        return ((RANK_1 | RANK_8) & ~rank) | ((FILE_A | FILE_H) & ~file);
+    }
+
+    /**
+     * Gives each square a slice of the shared table large enough for every subset of its mask
+     *
+     * @return size of the shared table
+     */
+    private static int initOffsets(long[] masks, int[] shifts, int[] offsets) {
+        int size = 0;
+
+        for (int square = 0; square < 64; square++) {
+            int bits = Long.bitCount(masks[square]);
+
+            shifts[square] = 64 - bits;
+            offsets[square] = size;
+            size += 1 << bits;
+        }
+
+        return size;
+    }
+
+    /**
+     * Stores the attacks of every blocker subset of the square's mask at the index its magic maps it to
+     */
+    private static void fillTable(int square, int[][] directions, long[] masks, long[] magics, int[] shifts,
+                                  int[] offsets, long[] table) {
+        long mask = masks[square];
+
+        // Enumerate every subset of the mask
+        long subset = 0;
+        do {
+            int index = (int) ((subset * magics[square]) >>> shifts[square]);
+            table[offsets[square] + index] = slidingAttacks(square, subset, directions);
+
+            subset = (subset - mask) & mask;
+        } while (subset != 0);
+    }
+
+    private static long stepAttacks(int square, int[][] steps) {
+        long attacks = 0;
+
+        for (int[] step : steps) {
+            int file = (square & 7) + step[0];
+            int rank = (square >>> 3) + step[1];
+
+            if (file >= 0 && file <= 7 && rank >= 0 && rank <= 7) attacks |= 1L << (rank * 8 + file);
+        }
+
+        return attacks;
+    }
+
+    /**
+     * Walks every ray until it leaves the board or hits a blocker, only used to fill the tables
+     */
+    private static long slidingAttacks(int square, long occupied, int[][] directions) {
+        long attacks = 0;
+
+        for (int[] direction : directions) {
+            int file = square & 7;
+            int rank = square >>> 3;
+
+            while (true) {
+                file += direction[0];
+                rank += direction[1];
+
+                if (file < 0 || file > 7 || rank < 0 || rank > 7) break;
+
+                long bit = 1L << (rank * 8 + file);
+                attacks |= bit;
+
+                // Path is blocked by a piece
+                if ((occupied & bit) != 0) break;
+            }
+        }
+
+        return attacks;
+    }
+}
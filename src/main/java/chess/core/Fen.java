@@ -0,0 +1,286 @@
+package chess.core;
+
+import exceptions.InvalidFenException;
+
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.util.ArrayList;
+
+import static chess.core.Position.*;
+
+/**
+ * Reads and writes positions in FEN format, all six fields included.
+ * Parsing walks the string once without splitting it and can load into an existing Position, so bulk loading
+ * positions does not allocate. EPD lines are accepted too, anything after the en passant field that is not a
+ * move counter is ignored.
+ *
+ * Usage:
+ *   Fen [file.epd]   parses every line of the file, or the perft reference positions, and reports the speed
+ */
+public final class Fen {
+    public final static String START_POSITION = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+
+    private Fen() {}
+
+    public static Position parse(CharSequence fen) {
+        Position position = new Position();
+        parse(fen, position);
+
+        return position;
+    }
+
+    /**
+     * Loads a FEN string into an existing position, replacing whatever it held
+     *
+     * @throws InvalidFenException if the string is not a valid position
+     */
+    public static void parse(CharSequence fen, Position position) {
+        position.clear();
+
+        int length = fen.length();
+        int i = skipSpaces(fen, 0);
+
+        // Piece placement starts at the eighth rank
+        int rank = 7, file = 0;
+        for (; i < length && fen.charAt(i) != ' '; i++) {
+            char cur = fen.charAt(i);
+
+            if (cur == '/') {
+                if (file != 8 || rank == 0) throw invalid(fen, "rank " + (rank + 1) + " does not have 8 squares");
+
+                rank--;
+                file = 0;
+            }
+            else if (cur >= '1' && cur <= '8') {
+                file += cur - '0';
+            }
+            else {
+                int piece = pieceFromFen(cur);
+                if (piece == NO_PIECE) throw invalid(fen, cur + " is not a valid FEN character");
+                if (file > 7) throw invalid(fen, "rank " + (rank + 1) + " has more than 8 squares");
+
+                position.placePiece(piece, rank * 8 + file);
+                file++;
+            }
+
+            if (file > 8) throw invalid(fen, "rank " + (rank + 1) + " has more than 8 squares");
+        }
+
+        if (rank != 0 || file != 8) throw invalid(fen, "piece placement does not cover the whole board");
+
+        if (Long.bitCount(position.getPieces(makePiece(WHITE, KING))) != 1
+                || Long.bitCount(position.getPieces(makePiece(BLACK, KING))) != 1) {
+            throw invalid(fen, "each side needs exactly one king");
+        }
+
+        // Side to move
+        int sideToMove = WHITE;
+        i = skipSpaces(fen, i);
+        if (i < length) {
+            char cur = fen.charAt(i++);
+
+            if (cur == 'b') sideToMove = BLACK;
+            else if (cur != 'w') throw invalid(fen, "side to move has to be w or b");
+        }
+
+        // Castling rights, when they are left out every king and rook at home may still castle
+        int castlingRights = 0;
+        boolean hasCastlingField = false;
+        i = skipSpaces(fen, i);
+        if (i < length) {
+            hasCastlingField = true;
+
+            if (fen.charAt(i) == '-') {
+                i++;
+            }
+            else {
+                for (; i < length && fen.charAt(i) != ' '; i++) {
+                    char cur = fen.charAt(i);
+
+                    if (cur == 'K') castlingRights |= WHITE_KING_SIDE;
+                    else if (cur == 'Q') castlingRights |= WHITE_QUEEN_SIDE;
+                    else if (cur == 'k') castlingRights |= BLACK_KING_SIDE;
+                    else if (cur == 'q') castlingRights |= BLACK_QUEEN_SIDE;
+                    else throw invalid(fen, cur + " is not a castling right");
+                }
+            }
+        }
+
+        // En passant square
+        int enPassantSquare = NO_SQUARE;
+        i = skipSpaces(fen, i);
+        if (i < length) {
+            if (fen.charAt(i) == '-') {
+                i++;
+            }
+            else {
+                char fileChar = fen.charAt(i);
+                char rankChar = i + 1 < length ? fen.charAt(i + 1) : ' ';
+
+                if (fileChar < 'a' || fileChar > 'h' || (rankChar != '3' && rankChar != '6'))
+                    throw invalid(fen, "invalid en passant square");
+
+                enPassantSquare = (rankChar - '1') * 8 + (fileChar - 'a');
+                i += 2;
+            }
+        }
+
+        // Move counters, EPD operations take their place in EPD lines
+        int halfmoveClock = 0;
+        int fullmoveNumber = 1;
+
+        i = skipSpaces(fen, i);
+        if (i < length && isDigit(fen.charAt(i))) {
+            int end = skipDigits(fen, i);
+            halfmoveClock = parseNumber(fen, i, end);
+
+            i = skipSpaces(fen, end);
+            if (i < length && isDigit(fen.charAt(i))) {
+                fullmoveNumber = Math.max(1, parseNumber(fen, i, skipDigits(fen, i)));
+            }
+        }
+
+        // The move generator trusts both fields, a right without its king and rook or an en passant square without
+        // a pawn that just moved past it would have it play pieces that are not there. They are dropped instead.
+        castlingRights &= position.castlingRightsOnBoard();
+        if (enPassantSquare != NO_SQUARE && !isEnPassantPossible(position, sideToMove, enPassantSquare)) {
+            enPassantSquare = NO_SQUARE;
+        }
+
+        position.setState(sideToMove, castlingRights, enPassantSquare, halfmoveClock, fullmoveNumber);
+
+        if (!hasCastlingField) position.resetCastlingRights();
+    }
+
+    public static String toFen(Position position) {
+        StringBuilder sb = new StringBuilder(90);
+        appendFen(position, sb);
+
+        return sb.toString();
+    }
+
+    public static void appendFen(Position position, StringBuilder sb) {
+        for (int rank = 7; rank >= 0; rank--) {
+            int empty = 0;
+
+            for (int file = 0; file < 8; file++) {
+                int piece = position.getPiece(rank * 8 + file);
+
+                if (piece == NO_PIECE) {
+                    empty++;
+                    continue;
+                }
+
+                if (empty > 0) sb.append((char) ('0' + empty));
+                empty = 0;
+
+                sb.append(fenFromPiece(piece));
+            }
+
+            if (empty > 0) sb.append((char) ('0' + empty));
+            if (rank > 0) sb.append('/');
+        }
+
+        sb.append(position.isWhiteToMove() ? " w " : " b ");
+
+        int castlingRights = position.getCastlingRights();
+        if (castlingRights == 0) sb.append('-');
+        if ((castlingRights & WHITE_KING_SIDE) != 0) sb.append('K');
+        if ((castlingRights & WHITE_QUEEN_SIDE) != 0) sb.append('Q');
+        if ((castlingRights & BLACK_KING_SIDE) != 0) sb.append('k');
+        if ((castlingRights & BLACK_QUEEN_SIDE) != 0) sb.append('q');
+
+        sb.append(' ');
+
+        int enPassantSquare = position.getEnPassantSquare();
+        if (enPassantSquare == NO_SQUARE) {
+            sb.append('-');
+        }
+        else {
+            sb.append((char) ('a' + (enPassantSquare & 7))).append((char) ('1' + (enPassantSquare >>> 3)));
+        }
+
+        sb.append(' ').append(position.getHalfmoveClock()).append(' ').append(position.getFullmoveNumber());
+    }
+
+    /**
+     * @return whether an enemy pawn stands in front of the square, having just moved two squares across it
+     */
+    private static boolean isEnPassantPossible(Position position, int sideToMove, int enPassantSquare) {
+        int rank = enPassantSquare >>> 3;
+        if (rank != (sideToMove == WHITE ? 5 : 2)) return false;
+
+        // Square by square in the direction the pawn moved
+        int direction = sideToMove == WHITE ? -8 : 8;
+
+        return position.getPiece(enPassantSquare - direction) == NO_PIECE
+                && position.getPiece(enPassantSquare) == NO_PIECE
+                && position.getPiece(enPassantSquare + direction) == makePiece(1 - sideToMove, PAWN);
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static int skipSpaces(CharSequence fen, int i) {
+        while (i < fen.length() && fen.charAt(i) == ' ') i++;
+
+        return i;
+    }
+
+    private static int skipDigits(CharSequence fen, int i) {
+        while (i < fen.length() && isDigit(fen.charAt(i))) i++;
+
+        return i;
+    }
+
+    private static int parseNumber(CharSequence fen, int start, int end) {
+        int number = 0;
+        for (int i = start; i < end; i++) number = number * 10 + (fen.charAt(i) - '0');
+
+        return number;
+    }
+
+    private static InvalidFenException invalid(CharSequence fen, String reason) {
+        return new InvalidFenException("Invalid FEN \"" + fen + "\": " + reason);
+    }
+
+    public static void main(String[] args) throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+
+        if (args.length > 0) {
+            try (BufferedReader reader = new BufferedReader(new FileReader(args[0]))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (!line.trim().isEmpty()) lines.add(line);
+                }
+            }
+        }
+        else {
+            for (Perft.ReferencePosition reference : Perft.REFERENCE_POSITIONS) lines.add(reference.getFen());
+        }
+
+        // Every position has to come back unchanged when written out again
+        Position position = new Position();
+        for (String line : lines) {
+            parse(line, position);
+
+            if (args.length == 0 && !toFen(position).equals(line))
+                System.err.println("Round trip changed " + line + " into " + toFen(position));
+        }
+
+        int rounds = Math.max(1, 2_000_000 / lines.size());
+        long start = System.nanoTime();
+
+        for (int round = 0; round < rounds; round++) {
+            for (String line : lines) parse(line, position);
+        }
+
+        long elapsed = System.nanoTime() - start;
+        long parsed = (long) rounds * lines.size();
+
+        System.out.printf("Parsed %,d positions in %.3f s (%,.0f positions per second)%n",
+                parsed, elapsed / 1e9, parsed / (elapsed / 1e9));
+    }
+}
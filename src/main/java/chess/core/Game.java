@@ -0,0 +1,163 @@
+package chess.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * State of one game without any display attached: the position, the moves played and the result.
+ * Nothing in chess.core depends on JavaFX, so a server can keep many of these alive at a few kilobytes each,
+ * while ChessGame renders one of them.
+ */
+public class Game {
+    private final Position position;
+
+    /**
+     * Legal moves of the position whose key is legalMovesKey. They are generated once per position and answer both
+     * whether a move is legal and whether the game is over, however often either is asked.
+     */
+    private final MoveList legalMoves = new MoveList();
+    private long legalMovesKey;
+
+    /** Ends games early that the rules would let go on, null to play every game out */
+    private Adjudicator adjudicator;
+
+    /** Moves played so far, packed. Grows since a game can outlast a MoveList */
+    private int[] history = new int[128];
+    private int historySize;
+
+    public Game() {
+        this(Fen.START_POSITION);
+    }
+
+    /**
+     * Used to start a game from a position other than the default
+     *
+     * @param positionFEN position in FEN format
+     */
+    public Game(String positionFEN) {
+        this.position = Fen.parse(positionFEN);
+        generateLegalMoves();
+    }
+
+    public Position getPosition() {
+        return position;
+    }
+
+    /**
+     * Every party to a game has to adjudicate the same way, or one of them declares a result the others play on from
+     */
+    public void setAdjudicator(Adjudicator adjudicator) {
+        this.adjudicator = adjudicator;
+    }
+
+    /**
+     * Finds the legal move matching the given one
+     *
+     * @return the packed legal move, Moves.NONE if the move is not legal in the current position
+     */
+    public int findLegalMove(Move move) {
+        MoveList moves = getCurrentLegalMoves();
+        if (isOver()) return Moves.NONE;
+
+        int from = Position.square(move.getBegX(), move.getBegY());
+        int to = Position.square(move.getEndX(), move.getEndY());
+
+        // Piece and square checks come first, encodeMove expects a piece on the starting square
+        int piece = position.getPiece(from);
+        if (piece == Position.NO_PIECE || Position.pieceColor(piece) != position.getSideToMove()) return Moves.NONE;
+
+        int packed = position.encodeMove(move);
+        if (Moves.from(packed) != from || Moves.to(packed) != to) return Moves.NONE;
+
+        return moves.contains(packed) ? packed : Moves.NONE;
+    }
+
+    /**
+     * @return the legal moves of the current position, only generated again once the position has changed
+     */
+    private MoveList getCurrentLegalMoves() {
+        if (legalMovesKey != position.getKey()) generateLegalMoves();
+
+        return legalMoves;
+    }
+
+    private void generateLegalMoves() {
+        MoveGenerator.generateLegalMoves(position, legalMoves);
+        legalMovesKey = position.getKey();
+    }
+
+    public boolean isLegal(Move move) {
+        return findLegalMove(move) != Moves.NONE;
+    }
+
+    /**
+     * Plays a move if it is legal
+     *
+     * @return whether the move was played
+     */
+    public boolean play(Move move) {
+        int packed = findLegalMove(move);
+        if (packed == Moves.NONE) return false;
+
+        play(packed);
+        return true;
+    }
+
+    /**
+     * Plays a packed move that is known to be legal
+     */
+    public void play(int move) {
+        position.makeMove(move);
+
+        if (historySize == history.length) history = Arrays.copyOf(history, historySize * 2);
+        history[historySize++] = move;
+    }
+
+    /**
+     * Takes back the last move played
+     */
+    public void takeBack() {
+        if (historySize == 0) throw new IllegalStateException("There is no move to take back");
+
+        position.unmakeMove();
+        historySize--;
+    }
+
+    /**
+     * @return all legal moves of the side to move as Move objects
+     */
+    public ArrayList<Move> getLegalMoves() {
+        return position.generateLegalMoves();
+    }
+
+    public int getMoveCount() {
+        return historySize;
+    }
+
+    public int getMove(int index) {
+        if (index < 0 || index >= historySize) throw new IndexOutOfBoundsException("Move " + index + " of " + historySize);
+        return history[index];
+    }
+
+    public boolean isWhitesTurn() {
+        return position.isWhiteToMove();
+    }
+
+    /**
+     * @return the result in the format of Position.getGameResult, or W, B or d if the adjudicator decided the game
+     */
+    public char getResult() {
+        char result = position.getGameResult(!getCurrentLegalMoves().isEmpty());
+        if (result != 'n' || adjudicator == null) return result;
+
+        return adjudicator.adjudicate(position);
+    }
+
+    public boolean isOver() {
+        return getResult() != 'n';
+    }
+
+    public String toFen() {
+        return position.toFen();
+    }
+}
@@ -1,7 +1,11 @@
-package chess;
+package chess.core;
 
 import java.io.Serializable;
 
+/**
+ * Object form of a move used by the GUI and the network, the rules engine itself works on moves packed into
+ * ints (see Moves) and only creates these through Position.toMove
+ */
 public class Move implements Serializable {
     /** Whether this move is a castle */
     private boolean isCastle = false;
@@ -11,6 +15,9 @@ public class Move implements Serializable {
     /** Whether this move is a capture */
     private boolean isCapture = false;
 
+    /** Whether this move is a pawn capturing en passant */
+    private boolean isEnPassant = false;
+
     /** Whether this move is a check */
     private boolean isCheck = false;
 
@@ -56,10 +63,18 @@ public class Move implements Serializable {
         isCastle = castle;
     }
 
+    public void setCastleKingSide(boolean castleKingSide) {
+        isCastleKingSide = castleKingSide;
+    }
+
     public void setCapture(boolean capture) {
         isCapture = capture;
     }
 
+    public void setEnPassant(boolean enPassant) {
+        isEnPassant = enPassant;
+    }
+
     public void setIsCheck(boolean check) {
         isCheck = check;
     }
@@ -80,10 +95,16 @@ public class Move implements Serializable {
         return isCheck;
     }
 
+    public boolean isCheckmate() {
+        return isCheckmate;
+    }
+
     public boolean isCapture() {
         return isCapture;
     }
 
+    public boolean isEnPassant() { return isEnPassant; }
+
     public boolean isCastle() { return isCastle; }
 
     public boolean isCastleKingSide() { return isCastleKingSide; }
@@ -103,6 +124,10 @@ public class Move implements Serializable {
     public int getEndX() { return endX; }
     public int getEndY() { return endY; }
 
+    public char getPieceType() {
+        return pieceType;
+    }
+
     public char getColor() {
         return Character.isUpperCase(pieceType) ? 'w' : 'b';
     }
@@ -120,6 +145,20 @@ public class Move implements Serializable {
         this.endY += newY;
     }
 
+    /**
+     * Returns the move in the long algebraic notation used by UCI, for example e2e4 or e7e8q
+     */
+    public String toUci() {
+        StringBuilder sb = new StringBuilder(5);
+
+        sb.append((char) ('a' + begX)).append((char) ('8' - begY));
+        sb.append((char) ('a' + endX)).append((char) ('8' - endY));
+
+        if (promotion != 'x') sb.append(Character.toLowerCase(promotion));
+
+        return sb.toString();
+    }
+
     /** Returns the move in PGN notation */
     @Override
     public String toString() {
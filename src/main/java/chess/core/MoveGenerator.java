@@ -0,0 +1,210 @@
+package chess.core;
+
+import static chess.core.Position.*;
+
+/**
+ * Generates only legal moves, without playing them to see whether they leave the king in check.
+ * The checkers, the pinned pieces and the squares the king may not step on are found once per position,
+ * every piece then only gets the targets that resolve a check and keep it on its pin line.
+ */
+public final class MoveGenerator {
+    private final static long RANK_2 = 0xFFL << 8;
+    private final static long RANK_7 = 0xFFL << 48;
+
+    private MoveGenerator() {}
+
+    /**
+     * Adds all legal moves for the side to move to the list, the list is cleared first
+     */
+    public static void generateLegalMoves(Position position, MoveList moves) {
+        moves.clear();
+
+        int us = position.getSideToMove();
+        int them = 1 - us;
+        long own = position.getOccupancy(us);
+        long enemy = position.getOccupancy(them);
+        long occupied = own | enemy;
+
+        int king = position.getKingSquare(us);
+        long kingDanger = position.getAttackMap(them);
+        long checkers = 0;
+
+        if ((kingDanger & (1L << king)) != 0) {
+            checkers = position.attackersTo(king, occupied) & enemy;
+
+            // A checking slider also attacks the squares behind the king, so the king cannot step back along its ray
+            long sliders = position.getPieces(makePiece(them, BISHOP)) | position.getPieces(makePiece(them, ROOK))
+                    | position.getPieces(makePiece(them, QUEEN));
+            if ((checkers & sliders) != 0) kingDanger = position.attackedSquares(them, occupied ^ (1L << king));
+        }
+
+        addMoves(moves, king, Attacks.kingAttacks(king) & ~own & ~kingDanger);
+
+        // Only the king can get out of a double check
+        if (Long.bitCount(checkers) > 1) return;
+
+        // Every other piece has to capture the checker or block it
+        long checkMask = ~0L;
+        if (checkers != 0) {
+            int checker = Long.numberOfTrailingZeros(checkers);
+            checkMask = checkers | Attacks.between(king, checker);
+        }
+
+        long pinned = pinnedPieces(position, king, us, occupied);
+
+        generatePawnMoves(position, moves, king, pinned, checkMask, enemy, occupied);
+
+        long knights = position.getPieces(makePiece(us, KNIGHT)) & ~pinned;
+        while (knights != 0) {
+            int from = Long.numberOfTrailingZeros(knights);
+            knights &= knights - 1;
+            addMoves(moves, from, Attacks.knightAttacks(from) & ~own & checkMask);
+        }
+
+        long queens = position.getPieces(makePiece(us, QUEEN));
+
+        long diagonalSliders = position.getPieces(makePiece(us, BISHOP)) | queens;
+        while (diagonalSliders != 0) {
+            int from = Long.numberOfTrailingZeros(diagonalSliders);
+            diagonalSliders &= diagonalSliders - 1;
+
+            long targets = Attacks.bishopAttacks(from, occupied) & ~own & checkMask;
+            addMoves(moves, from, targets & pinMask(king, from, pinned));
+        }
+
+        long straightSliders = position.getPieces(makePiece(us, ROOK)) | queens;
+        while (straightSliders != 0) {
+            int from = Long.numberOfTrailingZeros(straightSliders);
+            straightSliders &= straightSliders - 1;
+
+            long targets = Attacks.rookAttacks(from, occupied) & ~own & checkMask;
+            addMoves(moves, from, targets & pinMask(king, from, pinned));
+        }
+
+        if (checkers == 0) generateCastles(position, moves, king, kingDanger, occupied);
+    }
+
+    /**
+     * A pinned piece may only move along the line through its king and the pinning piece
+     */
+    private static long pinMask(int king, int from, long pinned) {
+        return (pinned & (1L << from)) == 0 ? ~0L : Attacks.line(king, from);
+    }
+
+    /**
+     * @return our pieces that are the only piece between our king and an enemy slider
+     */
+    private static long pinnedPieces(Position position, int king, int us, long occupied) {
+        int them = 1 - us;
+        long queens = position.getPieces(makePiece(them, QUEEN));
+
+        long snipers = (Attacks.rookAttacks(king, 0) & (position.getPieces(makePiece(them, ROOK)) | queens))
+                | (Attacks.bishopAttacks(king, 0) & (position.getPieces(makePiece(them, BISHOP)) | queens));
+
+        long pinned = 0;
+        while (snipers != 0) {
+            int sniper = Long.numberOfTrailingZeros(snipers);
+            snipers &= snipers - 1;
+
+            long blockers = Attacks.between(king, sniper) & occupied;
+            if (Long.bitCount(blockers) == 1) pinned |= blockers & position.getOccupancy(us);
+        }
+
+        return pinned;
+    }
+
+    private static void generatePawnMoves(Position position, MoveList moves, int king, long pinned,
+                                          long checkMask, long enemy, long occupied) {
+        int us = position.getSideToMove();
+        long pawns = position.getPieces(makePiece(us, PAWN));
+        int forward = us == WHITE ? 8 : -8;
+        long startRank = us == WHITE ? RANK_2 : RANK_7;
+        int enPassantSquare = position.getEnPassantSquare();
+
+        while (pawns != 0) {
+            int from = Long.numberOfTrailingZeros(pawns);
+            long bit = pawns & -pawns;
+            pawns &= pawns - 1;
+
+            long allowed = checkMask & pinMask(king, from, pinned);
+
+            int to = from + forward;
+            if ((occupied & (1L << to)) == 0) {
+                if ((allowed & (1L << to)) != 0) addPawnMove(moves, from, to);
+
+                int doublePush = to + forward;
+                if ((bit & startRank) != 0 && (occupied & (1L << doublePush)) == 0
+                        && (allowed & (1L << doublePush)) != 0) {
+                    addPawnMove(moves, from, doublePush);
+                }
+            }
+
+            long captures = Attacks.pawnAttacks(from, us) & enemy & allowed;
+            while (captures != 0) {
+                addPawnMove(moves, from, Long.numberOfTrailingZeros(captures));
+                captures &= captures - 1;
+            }
+
+            if (enPassantSquare != NO_SQUARE && (Attacks.pawnAttacks(from, us) & (1L << enPassantSquare)) != 0
+                    && isEnPassantLegal(position, king, from, enPassantSquare, occupied)) {
+                moves.add(Moves.create(from, enPassantSquare, Moves.EN_PASSANT));
+            }
+        }
+    }
+
+    /**
+     * En passant takes two pawns off the same rank at once, which can uncover the king in ways pins do not see,
+     * so the resulting occupancy is checked for attackers directly
+     */
+    private static boolean isEnPassantLegal(Position position, int king, int from, int to, long occupied) {
+        int us = position.getSideToMove();
+        int capturedPawn = us == WHITE ? to - 8 : to + 8;
+
+        long after = (occupied ^ (1L << from) ^ (1L << capturedPawn)) | (1L << to);
+        long attackers = position.attackersTo(king, after) & position.getOccupancy(1 - us) & ~(1L << capturedPawn);
+
+        return attackers == 0;
+    }
+
+    private static void addPawnMove(MoveList moves, int from, int to) {
+        int rank = to >>> 3;
+
+        if (rank != 0 && rank != 7) {
+            moves.add(Moves.create(from, to));
+            return;
+        }
+
+        // Queen comes first so it is the promotion picked when a pawn is dropped on the last rank
+        for (int type = QUEEN; type >= KNIGHT; type--) {
+            moves.add(Moves.createPromotion(from, to, type));
+        }
+    }
+
+    private static void generateCastles(Position position, MoveList moves, int king, long kingDanger,
+                                        long occupied) {
+        int us = position.getSideToMove();
+        int castlingRights = position.getCastlingRights();
+        int kingSide = us == WHITE ? WHITE_KING_SIDE : BLACK_KING_SIDE;
+        int queenSide = us == WHITE ? WHITE_QUEEN_SIDE : BLACK_QUEEN_SIDE;
+
+        // Cannot castle through a piece or through check
+        if ((castlingRights & kingSide) != 0
+                && (occupied & ((1L << (king + 1)) | (1L << (king + 2)))) == 0
+                && (kingDanger & ((1L << (king + 1)) | (1L << (king + 2)))) == 0) {
+            moves.add(Moves.create(king, king + 2, Moves.CASTLING));
+        }
+
+        if ((castlingRights & queenSide) != 0
+                && (occupied & ((1L << (king - 1)) | (1L << (king - 2)) | (1L << (king - 3)))) == 0
+                && (kingDanger & ((1L << (king - 1)) | (1L << (king - 2)))) == 0) {
+            moves.add(Moves.create(king, king - 2, Moves.CASTLING));
+        }
+    }
+
+    private static void addMoves(MoveList moves, int from, long targets) {
+        while (targets != 0) {
+            moves.add(Moves.create(from, Long.numberOfTrailingZeros(targets)));
+            targets &= targets - 1;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package chess.core;
+
+/**
+ * Fixed size list of packed moves. Callers keep one list per ply and clear it instead of making a new one,
+ * so filling it during a search or perft allocates nothing.
+ */
+public final class MoveList {
+    /** No legal position has more than 218 moves */
+    public final static int MAX_MOVES = 256;
+
+    private final int[] moves = new int[MAX_MOVES];
+    private int size = 0;
+
+    public void add(int move) {
+        moves[size++] = move;
+    }
+
+    public int get(int index) {
+        return moves[index];
+    }
+
+    public void set(int index, int move) {
+        moves[index] = move;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public boolean contains(int move) {
+        for (int i = 0; i < size; i++) {
+            if (moves[i] == move) return true;
+        }
+
+        return false;
+    }
+}
@@ -0,0 +1,69 @@
+package chess.core;
+
+/**
+ * Moves packed into the low 16 bits of an int so generating and storing them never allocates.
+ * Bits 0-5 hold the from square, bits 6-11 the to square, bits 12-13 the promotion piece (knight to queen) and
+ * bits 14-15 the kind of move. Move is only created from these for the GUI and the network.
+ */
+public final class Moves {
+    /** Never a legal move, a1 to a1 */
+    public final static int NONE = 0;
+
+    /** Kind of move */
+    public final static int NORMAL = 0;
+    public final static int PROMOTION = 1 << 14;
+    public final static int EN_PASSANT = 2 << 14;
+    public final static int CASTLING = 3 << 14;
+
+    private Moves() {}
+
+    public static int create(int from, int to) {
+        return from | to << 6;
+    }
+
+    public static int create(int from, int to, int kind) {
+        return from | to << 6 | kind;
+    }
+
+    public static int createPromotion(int from, int to, int pieceType) {
+        return from | to << 6 | (pieceType - Position.KNIGHT) << 12 | PROMOTION;
+    }
+
+    public static int from(int move) {
+        return move & 0x3F;
+    }
+
+    public static int to(int move) {
+        return (move >>> 6) & 0x3F;
+    }
+
+    public static int kind(int move) {
+        return move & (3 << 14);
+    }
+
+    /**
+     * @return the piece type a pawn promotes to, only meaningful for promotions
+     */
+    public static int promotionType(int move) {
+        return ((move >>> 12) & 3) + Position.KNIGHT;
+    }
+
+    /**
+     * Returns the move in the long algebraic notation used by UCI, for example e2e4 or e7e8q
+     */
+    public static String toUci(int move) {
+        if (move == NONE) return "0000";
+
+        StringBuilder sb = new StringBuilder(5);
+        appendSquare(sb, from(move));
+        appendSquare(sb, to(move));
+
+        if (kind(move) == PROMOTION) sb.append("nbrq".charAt(promotionType(move) - Position.KNIGHT));
+
+        return sb.toString();
+    }
+
+    private static void appendSquare(StringBuilder sb, int square) {
+        sb.append((char) ('a' + (square & 7))).append((char) ('1' + (square >>> 3)));
+    }
+}
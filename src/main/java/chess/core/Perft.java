@@ -0,0 +1,246 @@
+package chess.core;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Counts the leaf nodes of the move tree to a fixed depth. Comparing the counts with known reference values
+ * checks the move generator, and the time it takes measures its speed.
+ *
+ * Usage:
+ *   Perft suite [--parallel]                 runs every reference position and checks its count
+ *   Perft depth [fen] [--divide] [--parallel] counts one position, the start position if no FEN is given
+ */
+public class Perft {
+    /**
+     * Well known positions and their node counts, chosen to cover castling, en passant, promotions, pins and checks
+     */
+    public final static ReferencePosition[] REFERENCE_POSITIONS = {
+        new ReferencePosition("Start position", Fen.START_POSITION, 5, 4865609L),
+        new ReferencePosition("Kiwipete",
+                "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1", 4, 4085603L),
+        new ReferencePosition("Position 3", "8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1", 6, 11030083L),
+        new ReferencePosition("Position 4",
+                "r3k2r/Pppp1ppp/1b3nbN/nP6/BBP1P3/q4N2/Pp1P2PP/R2Q1RK1 w kq - 0 1", 5, 15833292L),
+        new ReferencePosition("Position 5",
+                "rnbq1k1r/pp1Pbppp/2p5/8/2B5/8/PPP1NnPP/RNBQK2R w KQ - 1 8", 4, 2103487L),
+        new ReferencePosition("Position 6",
+                "r4rk1/1pp1qppp/p1np1n2/2b1p1B1/2B1P1b1/P1NP1N2/1PP1QPPP/R4RK1 w - - 0 10", 4, 3894594L)
+    };
+
+    public static class ReferencePosition {
+        private final String name;
+        private final String fen;
+        private final int depth;
+        private final long nodes;
+
+        public ReferencePosition(String name, String fen, int depth, long nodes) {
+            this.name = name;
+            this.fen = fen;
+            this.depth = depth;
+            this.nodes = nodes;
+        }
+
+        public String getName() { return name; }
+
+        public String getFen() { return fen; }
+
+        public int getDepth() { return depth; }
+
+        public long getNodes() { return nodes; }
+    }
+
+    /**
+     * @return number of leaf nodes at the given depth
+     */
+    public static long perft(Position position, int depth) {
+        return perft(position, depth, createMoveLists(depth));
+    }
+
+    /**
+     * Counts with one preallocated move list per ply, so the count itself allocates nothing
+     */
+    private static long perft(Position position, int depth, MoveList[] moveLists) {
+        if (depth == 0) return 1;
+
+        MoveList moves = moveLists[depth];
+        MoveGenerator.generateLegalMoves(position, moves);
+
+        // Every legal move is a leaf, so there is no need to play them
+        if (depth == 1) return moves.size();
+
+        long nodes = 0;
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+
+            position.makeMove(move);
+            nodes += perft(position, depth - 1, moveLists);
+            position.unmakeMove();
+        }
+
+        return nodes;
+    }
+
+    private static MoveList[] createMoveLists(int depth) {
+        MoveList[] moveLists = new MoveList[depth + 1];
+        for (int i = 0; i <= depth; i++) moveLists[i] = new MoveList();
+
+        return moveLists;
+    }
+
+    /**
+     * @return number of leaf nodes below every root move, in generation order
+     */
+    public static Map<String, Long> divide(Position position, int depth) {
+        Map<String, Long> counts = new LinkedHashMap<>();
+        MoveList[] moveLists = createMoveLists(depth);
+
+        MoveList rootMoves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, rootMoves);
+
+        for (int i = 0; i < rootMoves.size(); i++) {
+            int move = rootMoves.get(i);
+
+            position.makeMove(move);
+            counts.put(Moves.toUci(move), perft(position, depth - 1, moveLists));
+            position.unmakeMove();
+        }
+
+        return counts;
+    }
+
+    /**
+     * Same as divide, but every root move is counted on its own copy of the position in the pool
+     */
+    public static Map<String, Long> divideParallel(Position position, int depth, ForkJoinPool pool) {
+        ArrayList<RootMoveTask> tasks = new ArrayList<>();
+
+        MoveList rootMoves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, rootMoves);
+
+        for (int i = 0; i < rootMoves.size(); i++) {
+            tasks.add(new RootMoveTask(position, rootMoves.get(i), depth));
+        }
+
+        for (RootMoveTask task : tasks) pool.execute(task);
+
+        Map<String, Long> counts = new LinkedHashMap<>();
+        for (RootMoveTask task : tasks) {
+            counts.put(Moves.toUci(task.move), task.join());
+        }
+
+        return counts;
+    }
+
+    public static long perftParallel(Position position, int depth, ForkJoinPool pool) {
+        if (depth <= 1) return perft(position, depth);
+
+        long nodes = 0;
+        for (long count : divideParallel(position, depth, pool).values()) nodes += count;
+
+        return nodes;
+    }
+
+    private static class RootMoveTask extends RecursiveTask<Long> {
+        private final Position position;
+        private final int move;
+        private final int depth;
+
+        RootMoveTask(Position root, int move, int depth) {
+            this.position = new Position(root);
+            this.move = move;
+            this.depth = depth;
+        }
+
+        @Override
+        protected Long compute() {
+            position.makeMove(move);
+            return perft(position, depth - 1);
+        }
+    }
+
+    public static void main(String[] args) {
+        boolean isParallel = false;
+        boolean isDivide = false;
+        ArrayList<String> arguments = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.equals("--parallel")) isParallel = true;
+            else if (arg.equals("--divide")) isDivide = true;
+            else arguments.add(arg);
+        }
+
+        ForkJoinPool pool = isParallel ? new ForkJoinPool() : null;
+
+        if (arguments.isEmpty() || arguments.get(0).equals("suite")) {
+            boolean isPassing = runSuite(pool);
+            System.exit(isPassing ? 0 : 1);
+        }
+
+        int depth = Integer.parseInt(arguments.get(0));
+        String fen = arguments.size() > 1
+                ? String.join(" ", arguments.subList(1, arguments.size()))
+                : Fen.START_POSITION;
+        Position position = Position.fromFen(fen);
+
+        long start = System.nanoTime();
+        long nodes;
+
+        if (isDivide) {
+            Map<String, Long> counts = isParallel ? divideParallel(position, depth, pool) : divide(position, depth);
+
+            nodes = 0;
+            for (Map.Entry<String, Long> entry : counts.entrySet()) {
+                System.out.println(entry.getKey() + ": " + entry.getValue());
+                nodes += entry.getValue();
+            }
+            System.out.println();
+        }
+        else {
+            nodes = isParallel ? perftParallel(position, depth, pool) : perft(position, depth);
+        }
+
+        printResult("Nodes", nodes, System.nanoTime() - start);
+    }
+
+    private static boolean runSuite(ForkJoinPool pool) {
+        boolean isPassing = true;
+        long totalNodes = 0;
+        long totalTime = 0;
+
+        for (ReferencePosition reference : REFERENCE_POSITIONS) {
+            Position position = Position.fromFen(reference.fen);
+
+            long start = System.nanoTime();
+            long nodes = pool != null
+                    ? perftParallel(position, reference.depth, pool)
+                    : perft(position, reference.depth);
+            long elapsed = System.nanoTime() - start;
+
+            boolean isCorrect = nodes == reference.nodes;
+            isPassing &= isCorrect;
+            totalNodes += nodes;
+            totalTime += elapsed;
+
+            System.out.printf("%-16s depth %d: %,d nodes, expected %,d %s (%,.0f nps)%n",
+                    reference.name, reference.depth, nodes, reference.nodes, isCorrect ? "OK" : "FAILED",
+                    nodesPerSecond(nodes, elapsed));
+        }
+
+        printResult("Total", totalNodes, totalTime);
+
+        return isPassing;
+    }
+
+    private static void printResult(String label, long nodes, long elapsedNanos) {
+        System.out.printf("%s: %,d in %.3f s (%,.0f nps)%n",
+                label, nodes, elapsedNanos / 1e9, nodesPerSecond(nodes, elapsedNanos));
+    }
+
+    private static double nodesPerSecond(long nodes, long elapsedNanos) {
+        return nodes / Math.max(elapsedNanos / 1e9, 1e-9);
+    }
+}
@@ -0,0 +1,787 @@
+package chess.core;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Headless representation of a chess position, every rules query of the game is answered from here.
+ * The board is stored as one 64-bit bitboard per piece (bit 0 is a1, bit 63 is h8) plus the occupancy of
+ * each color, a mailbox is kept alongside so the piece on a square can be found without scanning.
+ */
+public class Position {
+    public final static int WHITE = 0;
+    public final static int BLACK = 1;
+
+    /** Piece types, the index of a colored piece is color * 6 + type */
+    public final static int PAWN = 0;
+    public final static int KNIGHT = 1;
+    public final static int BISHOP = 2;
+    public final static int ROOK = 3;
+    public final static int QUEEN = 4;
+    public final static int KING = 5;
+
+    public final static int NO_PIECE = -1;
+    public final static int NO_SQUARE = -1;
+
+    /** Castling rights flags */
+    public final static int WHITE_KING_SIDE = 1;
+    public final static int WHITE_QUEEN_SIDE = 2;
+    public final static int BLACK_KING_SIDE = 4;
+    public final static int BLACK_QUEEN_SIDE = 8;
+
+    /** FEN characters of every piece, indexed by piece */
+    private final static String PIECE_CHARS = "PNBRQKpnbrqk";
+
+    /** Castling rights that are kept when a piece moves from or to a square */
+    private final static int[] CASTLING_MASK = new int[64];
+
+    static {
+        Arrays.fill(CASTLING_MASK, WHITE_KING_SIDE | WHITE_QUEEN_SIDE | BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+        CASTLING_MASK[0] &= ~WHITE_QUEEN_SIDE;
+        CASTLING_MASK[7] &= ~WHITE_KING_SIDE;
+        CASTLING_MASK[4] &= ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE);
+        CASTLING_MASK[56] &= ~BLACK_QUEEN_SIDE;
+        CASTLING_MASK[63] &= ~BLACK_KING_SIDE;
+        CASTLING_MASK[60] &= ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+    }
+
+    /** One bitboard for each piece, indexed by piece */
+    private final long[] pieces = new long[12];
+
+    /** All pieces of each color */
+    private final long[] occupancy = new long[2];
+
+    /** Piece standing on each square, NO_PIECE if the square is empty */
+    private final int[] board = new int[64];
+
+    private int sideToMove = WHITE;
+
+    private int castlingRights = 0;
+
+    /** Square a pawn can capture en passant on, NO_SQUARE if there is none */
+    private int enPassantSquare = NO_SQUARE;
+
+    /** Half moves since the last capture or pawn move */
+    private int halfmoveClock = 0;
+
+    private int fullmoveNumber = 1;
+
+    /** Zobrist key of the position, kept up to date by every change to the board */
+    private long key = 0;
+
+    /** Zobrist key of the pawns alone, for caching what only depends on the pawn structure */
+    private long pawnKey = 0;
+
+    /**
+     * Sums of the PieceSquareTables values of every piece, kept up to date like the key. Material and the
+     * piece-square bonuses are packed middlegame/endgame scores from white's point of view.
+     */
+    private int material = 0;
+    private int pieceSquareScore = 0;
+    private int phase = 0;
+
+    /**
+     * One entry for every move made that has not been unmade yet, each entry packs the move with what it cannot
+     * restore on its own: the moved piece, the captured piece, the castling rights, the en passant square and the
+     * halfmove clock
+     */
+    private long[] undoStack = new long[256];
+    private int undoSize = 0;
+
+    /** Key of the position before each move on the undo stack, doubles as the history for repetitions */
+    private long[] keyStack = new long[256];
+
+    /**
+     * Every square attacked by each color, computed the first time it is asked for in a position. validAttackMaps
+     * has a bit for each color whose map is up to date, and any change to the board clears it.
+     */
+    private final long[] attackMaps = new long[2];
+    private int validAttackMaps = 0;
+
+    /**
+     * Creates an empty position with white to move
+     */
+    public Position() {
+        Arrays.fill(board, NO_PIECE);
+    }
+
+    /**
+     * Creates a copy of another position
+     */
+    public Position(Position other) {
+        System.arraycopy(other.pieces, 0, pieces, 0, pieces.length);
+        System.arraycopy(other.occupancy, 0, occupancy, 0, occupancy.length);
+        System.arraycopy(other.board, 0, board, 0, board.length);
+
+        this.sideToMove = other.sideToMove;
+        this.castlingRights = other.castlingRights;
+        this.enPassantSquare = other.enPassantSquare;
+        this.halfmoveClock = other.halfmoveClock;
+        this.fullmoveNumber = other.fullmoveNumber;
+
+        this.key = other.key;
+        this.pawnKey = other.pawnKey;
+
+        this.material = other.material;
+        this.pieceSquareScore = other.pieceSquareScore;
+        this.phase = other.phase;
+
+        this.attackMaps[WHITE] = other.attackMaps[WHITE];
+        this.attackMaps[BLACK] = other.attackMaps[BLACK];
+        this.validAttackMaps = other.validAttackMaps;
+
+        this.undoStack = Arrays.copyOf(other.undoStack, other.undoStack.length);
+        this.keyStack = Arrays.copyOf(other.keyStack, other.keyStack.length);
+        this.undoSize = other.undoSize;
+    }
+
+    /**
+     * Creates a position from all fields of a FEN string
+     *
+     * @param fen position in FEN format
+     */
+    public static Position fromFen(String fen) {
+        return Fen.parse(fen);
+    }
+
+    /**
+     * Empties the board and forgets every move made, used to load another position into this object
+     */
+    void clear() {
+        Arrays.fill(pieces, 0);
+        Arrays.fill(occupancy, 0);
+        Arrays.fill(board, NO_PIECE);
+
+        sideToMove = WHITE;
+        castlingRights = 0;
+        enPassantSquare = NO_SQUARE;
+        halfmoveClock = 0;
+        fullmoveNumber = 1;
+
+        key = 0;
+        pawnKey = 0;
+        material = 0;
+        pieceSquareScore = 0;
+        phase = 0;
+        validAttackMaps = 0;
+        undoSize = 0;
+    }
+
+    /**
+     * Places a piece while loading a position, setState has to be called once every piece is placed
+     */
+    void placePiece(int piece, int square) {
+        addPiece(piece, square);
+    }
+
+    /**
+     * Sets every field of a position besides the pieces and brings the key and attack maps up to date
+     */
+    void setState(int sideToMove, int castlingRights, int enPassantSquare, int halfmoveClock, int fullmoveNumber) {
+        this.sideToMove = sideToMove;
+        this.castlingRights = castlingRights;
+        this.enPassantSquare = enPassantSquare;
+        this.halfmoveClock = halfmoveClock;
+        this.fullmoveNumber = fullmoveNumber;
+
+        this.key = computeKey();
+        this.validAttackMaps = 0;
+    }
+
+    public String toFen() {
+        return Fen.toFen(this);
+    }
+
+    /**
+     * Converts board coordinates as used by ChessGame (y = 0 is the eighth rank) to a square index
+     */
+    public static int square(int x, int y) {
+        return (7 - y) * 8 + x;
+    }
+
+    public static int squareX(int square) {
+        return square & 7;
+    }
+
+    public static int squareY(int square) {
+        return 7 - (square >>> 3);
+    }
+
+    public static int pieceColor(int piece) {
+        return piece < 6 ? WHITE : BLACK;
+    }
+
+    public static int pieceType(int piece) {
+        return piece % 6;
+    }
+
+    public static int makePiece(int color, int type) {
+        return color * 6 + type;
+    }
+
+    /**
+     * @return the piece described by a FEN character, NO_PIECE if the character is not a piece
+     */
+    public static int pieceFromFen(char fenChar) {
+        return PIECE_CHARS.indexOf(fenChar);
+    }
+
+    public static char fenFromPiece(int piece) {
+        return PIECE_CHARS.charAt(piece);
+    }
+
+    /**
+     * Places a piece given in FEN notation on the board
+     */
+    public void setPiece(char fenChar, int x, int y) {
+        int piece = pieceFromFen(fenChar);
+        assert piece != NO_PIECE : fenChar + " is not a valid FEN character";
+
+        int square = square(x, y);
+        if (board[square] != NO_PIECE) removePiece(square);
+
+        addPiece(piece, square);
+        validAttackMaps = 0;
+    }
+
+    /**
+     * Gives castling rights to every king and rook still standing on their starting squares
+     */
+    public void resetCastlingRights() {
+        castlingRights = castlingRightsOnBoard();
+        key = computeKey();
+    }
+
+    /**
+     * @return the castling rights of every king and rook standing on their starting squares, the most a position
+     * can have
+     */
+    int castlingRightsOnBoard() {
+        int rights = 0;
+
+        if (board[4] == makePiece(WHITE, KING)) {
+            if (board[7] == makePiece(WHITE, ROOK)) rights |= WHITE_KING_SIDE;
+            if (board[0] == makePiece(WHITE, ROOK)) rights |= WHITE_QUEEN_SIDE;
+        }
+
+        if (board[60] == makePiece(BLACK, KING)) {
+            if (board[63] == makePiece(BLACK, ROOK)) rights |= BLACK_KING_SIDE;
+            if (board[56] == makePiece(BLACK, ROOK)) rights |= BLACK_QUEEN_SIDE;
+        }
+
+        return rights;
+    }
+
+    public void setSideToMove(int sideToMove) {
+        assert (sideToMove == WHITE || sideToMove == BLACK) : "Side to move must be either WHITE or BLACK";
+        this.sideToMove = sideToMove;
+        this.key = computeKey();
+    }
+
+    public int getSideToMove() {
+        return sideToMove;
+    }
+
+    public boolean isWhiteToMove() {
+        return sideToMove == WHITE;
+    }
+
+    public int getPiece(int square) {
+        return board[square];
+    }
+
+    public long getPieces(int piece) {
+        return pieces[piece];
+    }
+
+    public long getOccupancy(int color) {
+        return occupancy[color];
+    }
+
+    public long getOccupied() {
+        return occupancy[WHITE] | occupancy[BLACK];
+    }
+
+    public int getCastlingRights() {
+        return castlingRights;
+    }
+
+    public int getEnPassantSquare() {
+        return enPassantSquare;
+    }
+
+    public int getHalfmoveClock() {
+        return halfmoveClock;
+    }
+
+    public int getFullmoveNumber() {
+        return fullmoveNumber;
+    }
+
+    public long getKey() {
+        return key;
+    }
+
+    /**
+     * @return Zobrist key of the pawns alone, 0 without pawns
+     */
+    public long getPawnKey() {
+        return pawnKey;
+    }
+
+    /**
+     * @return packed middlegame/endgame material balance from white's point of view
+     */
+    public int getMaterial() {
+        return material;
+    }
+
+    /**
+     * @return packed middlegame/endgame piece-square balance from white's point of view
+     */
+    public int getPieceSquareScore() {
+        return pieceSquareScore;
+    }
+
+    /**
+     * @return game phase, PieceSquareTables.MAX_PHASE with all pieces on the board down to 0 with only pawns and kings
+     */
+    public int getPhase() {
+        return phase;
+    }
+
+    /**
+     * Computes the Zobrist key from scratch, the kept key should always be equal to it
+     */
+    public long computeKey() {
+        long newKey = Zobrist.castling(castlingRights) ^ enPassantKey();
+
+        for (int square = 0; square < 64; square++) {
+            if (board[square] != NO_PIECE) newKey ^= Zobrist.piece(board[square], square);
+        }
+
+        if (sideToMove == BLACK) newKey ^= Zobrist.blackToMove();
+
+        return newKey;
+    }
+
+    /**
+     * The en passant square is only part of the key when the side to move has a pawn that can take on it,
+     * otherwise the position repeats just as if there were no en passant square
+     */
+    private long enPassantKey() {
+        if (enPassantSquare == NO_SQUARE) return 0;
+
+        long capturers = Attacks.pawnAttacks(enPassantSquare, 1 - sideToMove) & pieces[makePiece(sideToMove, PAWN)];
+
+        return capturers != 0 ? Zobrist.enPassant(enPassantSquare) : 0;
+    }
+
+    public int getKingSquare(int color) {
+        return Long.numberOfTrailingZeros(pieces[makePiece(color, KING)]);
+    }
+
+    private void addPiece(int piece, int square) {
+        long bit = 1L << square;
+
+        pieces[piece] |= bit;
+        occupancy[pieceColor(piece)] |= bit;
+        board[square] = piece;
+        key ^= Zobrist.piece(piece, square);
+        if (pieceType(piece) == PAWN) pawnKey ^= Zobrist.piece(piece, square);
+
+        material += PieceSquareTables.material(piece);
+        pieceSquareScore += PieceSquareTables.square(piece, square);
+        phase += PieceSquareTables.phase(piece);
+    }
+
+    private void removePiece(int square) {
+        int piece = board[square];
+        long bit = 1L << square;
+
+        pieces[piece] &= ~bit;
+        occupancy[pieceColor(piece)] &= ~bit;
+        board[square] = NO_PIECE;
+        key ^= Zobrist.piece(piece, square);
+        if (pieceType(piece) == PAWN) pawnKey ^= Zobrist.piece(piece, square);
+
+        material -= PieceSquareTables.material(piece);
+        pieceSquareScore -= PieceSquareTables.square(piece, square);
+        phase -= PieceSquareTables.phase(piece);
+    }
+
+    private void movePiece(int from, int to) {
+        int piece = board[from];
+        long bits = (1L << from) | (1L << to);
+
+        pieces[piece] ^= bits;
+        occupancy[pieceColor(piece)] ^= bits;
+        board[from] = NO_PIECE;
+        board[to] = piece;
+        key ^= Zobrist.piece(piece, from) ^ Zobrist.piece(piece, to);
+        if (pieceType(piece) == PAWN) pawnKey ^= Zobrist.piece(piece, from) ^ Zobrist.piece(piece, to);
+
+        pieceSquareScore += PieceSquareTables.square(piece, to) - PieceSquareTables.square(piece, from);
+    }
+
+    /**
+     * Plays a move given as a Move, as received from the GUI or the network. The move is expected to be legal.
+     */
+    public void makeMove(Move move) {
+        makeMove(encodeMove(move));
+    }
+
+    /**
+     * Plays a packed move on the board, the move is expected to be legal. It can be taken back with unmakeMove.
+     */
+    public void makeMove(int move) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int kind = Moves.kind(move);
+
+        int piece = board[from];
+        int us = sideToMove;
+
+        int captured = kind == Moves.EN_PASSANT ? makePiece(1 - us, PAWN) : board[to];
+
+        pushUndo(move, piece, captured);
+        validAttackMaps = 0;
+
+        // Take out the old castling rights and en passant square, the new ones are put in at the end
+        key ^= Zobrist.castling(castlingRights) ^ enPassantKey();
+
+        halfmoveClock++;
+
+        if (board[to] != NO_PIECE) {
+            removePiece(to);
+            halfmoveClock = 0;
+        }
+
+        movePiece(from, to);
+
+        if (kind == Moves.EN_PASSANT) {
+            removePiece(us == WHITE ? to - 8 : to + 8);
+        }
+        else if (kind == Moves.PROMOTION) {
+            removePiece(to);
+            addPiece(makePiece(us, Moves.promotionType(move)), to);
+        }
+        else if (kind == Moves.CASTLING) {
+            // The king has already moved, so all that is left is the rook
+            if (to > from) movePiece(to + 1, to - 1);
+            else movePiece(to - 2, to + 1);
+        }
+
+        enPassantSquare = NO_SQUARE;
+
+        if (pieceType(piece) == PAWN) {
+            halfmoveClock = 0;
+
+            if (Math.abs(to - from) == 16) enPassantSquare = (from + to) / 2;
+        }
+
+        castlingRights &= CASTLING_MASK[from] & CASTLING_MASK[to];
+
+        if (us == BLACK) fullmoveNumber++;
+        sideToMove = 1 - us;
+
+        key ^= Zobrist.castling(castlingRights) ^ enPassantKey() ^ Zobrist.blackToMove();
+    }
+
+    /**
+     * Takes back the last move made
+     */
+    public void unmakeMove() {
+        assert undoSize > 0 : "There is no move to unmake";
+
+        long entry = undoStack[--undoSize];
+
+        int move = (int) (entry & 0xFFFF);
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int kind = Moves.kind(move);
+
+        int piece = (int) ((entry >>> 16) & 0xF) - 1;
+        int captured = (int) ((entry >>> 20) & 0xF) - 1;
+
+        validAttackMaps = 0;
+
+        sideToMove = 1 - sideToMove;
+        if (sideToMove == BLACK) fullmoveNumber--;
+
+        castlingRights = (int) ((entry >>> 24) & 0xF);
+        enPassantSquare = (int) ((entry >>> 28) & 0x7F) - 1;
+        halfmoveClock = (int) (entry >>> 35);
+
+        // Putting the original piece back also undoes a promotion
+        removePiece(to);
+        addPiece(piece, from);
+
+        if (kind == Moves.CASTLING) {
+            if (to > from) movePiece(to - 1, to + 1);
+            else movePiece(to + 1, to - 2);
+        }
+
+        if (captured != NO_PIECE) {
+            addPiece(captured, kind == Moves.EN_PASSANT ? (sideToMove == WHITE ? to - 8 : to + 8) : to);
+        }
+
+        key = keyStack[undoSize];
+    }
+
+    private void pushUndo(int move, int piece, int captured) {
+        if (undoSize == undoStack.length) {
+            undoStack = Arrays.copyOf(undoStack, undoSize * 2);
+            keyStack = Arrays.copyOf(keyStack, undoSize * 2);
+        }
+
+        keyStack[undoSize] = key;
+        undoStack[undoSize++] = move
+                | (long) (piece + 1) << 16
+                | (long) (captured + 1) << 20
+                | (long) castlingRights << 24
+                | (long) (enPassantSquare + 1) << 28
+                | (long) halfmoveClock << 35;
+    }
+
+    /**
+     * Packs a Move played in this position. Castling, en passant and promotions are recognized from the board
+     * itself so moves received from the network can be played as is.
+     */
+    public int encodeMove(Move move) {
+        int from = square(move.getBegX(), move.getBegY());
+        int to = square(move.getEndX(), move.getEndY());
+        int type = pieceType(board[from]);
+
+        if (type == KING && Math.abs(to - from) == 2) return Moves.create(from, to, Moves.CASTLING);
+
+        if (type == PAWN && to == enPassantSquare) return Moves.create(from, to, Moves.EN_PASSANT);
+
+        if (type == PAWN && ((to >>> 3) == 0 || (to >>> 3) == 7)) {
+            int promotion = "pnbrqk".indexOf(Character.toLowerCase(move.getPromotion()));
+
+            // Promote to a queen if the move does not say otherwise
+            if (promotion <= PAWN || promotion == KING) promotion = QUEEN;
+
+            return Moves.createPromotion(from, to, promotion);
+        }
+
+        return Moves.create(from, to);
+    }
+
+    /**
+     * Unpacks a move of this position into a Move for the GUI and the network
+     */
+    public Move toMove(int move) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int kind = Moves.kind(move);
+
+        Move boxed = kind == Moves.CASTLING
+                ? new Move(true, squareX(from), squareY(from), to > from)
+                : new Move(squareX(from), squareY(from), squareX(to), squareY(to));
+
+        boxed.setPieceType(fenFromPiece(board[from]));
+        boxed.setCapture(board[to] != NO_PIECE || kind == Moves.EN_PASSANT);
+        boxed.setEnPassant(kind == Moves.EN_PASSANT);
+
+        if (kind == Moves.PROMOTION) {
+            boxed.setPromotion(fenFromPiece(makePiece(pieceColor(board[from]), Moves.promotionType(move))));
+        }
+
+        return boxed;
+    }
+
+    /**
+     * @return all legal moves for the side to move as Move objects, meant for the GUI
+     */
+    public ArrayList<Move> generateLegalMoves() {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(this, moves);
+
+        ArrayList<Move> boxedMoves = new ArrayList<>(moves.size());
+        for (int i = 0; i < moves.size(); i++) {
+            boxedMoves.add(toMove(moves.get(i)));
+        }
+
+        return boxedMoves;
+    }
+
+    /**
+     * @return whether the side to move has at least one legal move
+     */
+    public boolean hasLegalMoves() {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(this, moves);
+
+        return !moves.isEmpty();
+    }
+
+    /**
+     * @return pieces of both colors attacking the square, with the given pieces blocking the sliders
+     */
+    public long attackersTo(int square, long occupied) {
+        long rooks = pieces[makePiece(WHITE, ROOK)] | pieces[makePiece(BLACK, ROOK)]
+                | pieces[makePiece(WHITE, QUEEN)] | pieces[makePiece(BLACK, QUEEN)];
+        long bishops = pieces[makePiece(WHITE, BISHOP)] | pieces[makePiece(BLACK, BISHOP)]
+                | pieces[makePiece(WHITE, QUEEN)] | pieces[makePiece(BLACK, QUEEN)];
+
+        // A square is attacked by a pawn if a pawn of the other color standing on it would attack that pawn
+        return (Attacks.pawnAttacks(square, BLACK) & pieces[makePiece(WHITE, PAWN)])
+                | (Attacks.pawnAttacks(square, WHITE) & pieces[makePiece(BLACK, PAWN)])
+                | (Attacks.knightAttacks(square) & (pieces[makePiece(WHITE, KNIGHT)] | pieces[makePiece(BLACK, KNIGHT)]))
+                | (Attacks.kingAttacks(square) & (pieces[makePiece(WHITE, KING)] | pieces[makePiece(BLACK, KING)]))
+                | (Attacks.bishopAttacks(square, occupied) & bishops)
+                | (Attacks.rookAttacks(square, occupied) & rooks);
+    }
+
+    /**
+     * @return every square attacked by the given color with the given pieces blocking the sliders
+     */
+    public long attackedSquares(int color, long occupied) {
+        long attacked = Attacks.pawnAttacks(pieces[makePiece(color, PAWN)], color);
+
+        long knights = pieces[makePiece(color, KNIGHT)];
+        while (knights != 0) {
+            attacked |= Attacks.knightAttacks(Long.numberOfTrailingZeros(knights));
+            knights &= knights - 1;
+        }
+
+        long queens = pieces[makePiece(color, QUEEN)];
+
+        long diagonalSliders = pieces[makePiece(color, BISHOP)] | queens;
+        while (diagonalSliders != 0) {
+            attacked |= Attacks.bishopAttacks(Long.numberOfTrailingZeros(diagonalSliders), occupied);
+            diagonalSliders &= diagonalSliders - 1;
+        }
+
+        long straightSliders = pieces[makePiece(color, ROOK)] | queens;
+        while (straightSliders != 0) {
+            attacked |= Attacks.rookAttacks(Long.numberOfTrailingZeros(straightSliders), occupied);
+            straightSliders &= straightSliders - 1;
+        }
+
+        long king = pieces[makePiece(color, KING)];
+        if (king != 0) attacked |= Attacks.kingAttacks(Long.numberOfTrailingZeros(king));
+
+        return attacked;
+    }
+
+    /**
+     * @return every square attacked by the given color, the map is computed once per position and then reused
+     */
+    public long getAttackMap(int color) {
+        if ((validAttackMaps & (1 << color)) == 0) {
+            attackMaps[color] = attackedSquares(color, getOccupied());
+            validAttackMaps |= 1 << color;
+        }
+
+        return attackMaps[color];
+    }
+
+    /**
+     * @return whether any piece of the given color attacks the square
+     */
+    public boolean isSquareAttacked(int square, int byColor) {
+        return (getAttackMap(byColor) & (1L << square)) != 0;
+    }
+
+    public boolean isInCheck(int color) {
+        long king = pieces[makePiece(color, KING)];
+        return (getAttackMap(1 - color) & king) != 0;
+    }
+
+    public boolean isInCheck() {
+        return isInCheck(sideToMove);
+    }
+
+    public boolean isCheckmate() {
+        return isInCheck() && !hasLegalMoves();
+    }
+
+    public boolean isStalemate() {
+        return !isInCheck() && !hasLegalMoves();
+    }
+
+    /**
+     * @return whether fifty moves by each side were played without a capture or a pawn move
+     */
+    public boolean isFiftyMoveRule() {
+        return halfmoveClock >= 100;
+    }
+
+    /**
+     * @return whether the position occurred at least three times with the same side to move
+     */
+    public boolean isThreefoldRepetition() {
+        return countRepetitions() >= 2;
+    }
+
+    /**
+     * @return whether the position occurred before with the same side to move. A search can score the first repetition
+     * as a draw, since whatever was best the first time can be repeated again.
+     */
+    public boolean isRepetition() {
+        return countRepetitions() >= 1;
+    }
+
+    /**
+     * Counts earlier occurrences of the position by comparing keys. A capture, pawn move or castle can never be
+     * undone, so only the positions since the halfmove clock was last reset can repeat, and only every other one
+     * has the same side to move.
+     */
+    private int countRepetitions() {
+        int count = 0;
+        int earliest = Math.max(0, undoSize - halfmoveClock);
+
+        for (int i = undoSize - 2; i >= earliest; i -= 2) {
+            if (keyStack[i] == key) count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Returns the game result in the same format as ChessGame
+     *
+     * @return b: black wins, w: white wins, s: stalemate, f: draw by 50 move rule,
+     * t: draw by threefold repetition, n: game has not yet reached a result
+     */
+    public char getGameResult() {
+        return getGameResult(hasLegalMoves());
+    }
+
+    /**
+     * Same as getGameResult, for callers that have generated the legal moves already
+     *
+     * @param hasLegalMoves whether the side to move has at least one legal move
+     */
+    public char getGameResult(boolean hasLegalMoves) {
+        if (!hasLegalMoves) {
+            if (!isInCheck()) return 's';
+
+            return sideToMove == WHITE ? 'b' : 'w';
+        }
+
+        if (isFiftyMoveRule()) return 'f';
+
+        if (isThreefoldRepetition()) return 't';
+
+        return 'n';
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+
+        for (int y = 0; y < 8; y++) {
+            for (int x = 0; x < 8; x++) {
+                int piece = board[square(x, y)];
+                sb.append(piece == NO_PIECE ? '.' : fenFromPiece(piece));
+            }
+            sb.append('\n');
+        }
+
+        return sb.toString();
+    }
+}
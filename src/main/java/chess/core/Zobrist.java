@@ -0,0 +1,66 @@
+package chess.core;
+
+/**
+ * Random keys for Zobrist hashing. The key of a position is the XOR of the keys of every piece on its square,
+ * the castling rights, the en passant file and the side to move, so a move only has to XOR in what it changes.
+ */
+public final class Zobrist {
+    private final static long[][] PIECE_KEYS = new long[12][64];
+    private final static long[] CASTLING_KEYS = new long[16];
+    private final static long[] EN_PASSANT_KEYS = new long[8];
+    private final static long BLACK_TO_MOVE_KEY;
+
+    static {
+        // Fixed seed so keys, and anything stored under them, stay the same between runs
+        long seed = 0x9E3779B97F4A7C15L;
+
+        for (int piece = 0; piece < 12; piece++) {
+            for (int square = 0; square < 64; square++) {
+                seed = nextSeed(seed);
+                PIECE_KEYS[piece][square] = mix(seed);
+            }
+        }
+
+        for (int rights = 0; rights < 16; rights++) {
+            seed = nextSeed(seed);
+            CASTLING_KEYS[rights] = mix(seed);
+        }
+
+        for (int file = 0; file < 8; file++) {
+            seed = nextSeed(seed);
+            EN_PASSANT_KEYS[file] = mix(seed);
+        }
+
+        BLACK_TO_MOVE_KEY = mix(nextSeed(seed));
+    }
+
+    private Zobrist() {}
+
+    public static long piece(int piece, int square) {
+        return PIECE_KEYS[piece][square];
+    }
+
+    public static long castling(int castlingRights) {
+        return CASTLING_KEYS[castlingRights];
+    }
+
+    public static long enPassant(int square) {
+        return EN_PASSANT_KEYS[square & 7];
+    }
+
+    public static long blackToMove() {
+        return BLACK_TO_MOVE_KEY;
+    }
+
+    private static long nextSeed(long seed) {
+        return seed + 0x9E3779B97F4A7C15L;
+    }
+
+    /** SplitMix64 finalizer */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+
+        return z ^ (z >>> 31);
+    }
+}
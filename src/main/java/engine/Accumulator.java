@@ -0,0 +1,127 @@
+package engine;
+
+import chess.core.Moves;
+import chess.core.Position;
+
+/**
+ * First layer of a Network for the positions along the line being searched, one entry per ply. Making a move
+ * derives the next entry from the current one by adding and subtracting the weights of the two to four pieces that
+ * changed, and unmaking a move just steps back to the previous entry.
+ */
+public class Accumulator {
+    private final Network network;
+    private final int hiddenSize;
+    private final short[] weights;
+
+    /** Indexed by ply, then perspective */
+    private final short[][][] stack;
+    private int top = 0;
+
+    public Accumulator(Network network) {
+        this.network = network;
+        this.hiddenSize = network.getHiddenSize();
+        this.weights = network.getFeatureWeights();
+        this.stack = new short[Search.MAX_PLY + 1][2][hiddenSize];
+    }
+
+    /**
+     * Computes the accumulators of the position from scratch and makes them the only entry
+     */
+    public void refresh(Position position) {
+        top = 0;
+
+        for (int perspective = Position.WHITE; perspective <= Position.BLACK; perspective++) {
+            short[] accumulator = stack[0][perspective];
+            System.arraycopy(network.getFeatureBiases(), 0, accumulator, 0, hiddenSize);
+
+            for (int square = 0; square < 64; square++) {
+                int piece = position.getPiece(square);
+                if (piece == Position.NO_PIECE) continue;
+
+                int offset = Network.featureIndex(perspective, piece, square) * hiddenSize;
+                for (int i = 0; i < hiddenSize; i++) {
+                    accumulator[i] += weights[offset + i];
+                }
+            }
+        }
+    }
+
+    /**
+     * Pushes the accumulators of the position after the move, must be called before the move is made on the
+     * position since the pieces it moves and captures are read from it
+     */
+    public void push(Position position, int move) {
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+        int kind = Moves.kind(move);
+
+        int piece = position.getPiece(from);
+        int us = Position.pieceColor(piece);
+        int placed = kind == Moves.PROMOTION ? Position.makePiece(us, Moves.promotionType(move)) : piece;
+
+        int capturedSquare = kind == Moves.EN_PASSANT ? (us == Position.WHITE ? to - 8 : to + 8) : to;
+        int captured = position.getPiece(capturedSquare);
+
+        for (int perspective = Position.WHITE; perspective <= Position.BLACK; perspective++) {
+            short[] parent = stack[top][perspective];
+            short[] child = stack[top + 1][perspective];
+
+            int add = Network.featureIndex(perspective, placed, to) * hiddenSize;
+            int sub = Network.featureIndex(perspective, piece, from) * hiddenSize;
+
+            if (kind == Moves.CASTLING) {
+                int rook = Position.makePiece(us, Position.ROOK);
+                int rookFrom = to > from ? to + 1 : to - 2;
+                int rookTo = to > from ? to - 1 : to + 1;
+
+                addAddSubSub(parent, child, add, Network.featureIndex(perspective, rook, rookTo) * hiddenSize,
+                        sub, Network.featureIndex(perspective, rook, rookFrom) * hiddenSize);
+            }
+            else if (captured != Position.NO_PIECE) {
+                addSubSub(parent, child, add, sub,
+                        Network.featureIndex(perspective, captured, capturedSquare) * hiddenSize);
+            }
+            else {
+                addSub(parent, child, add, sub);
+            }
+        }
+
+        top++;
+    }
+
+    /**
+     * Steps back to the accumulators from before the last pushed move
+     */
+    public void pop() {
+        assert top > 0 : "There is no move to pop";
+        top--;
+    }
+
+    /**
+     * @return score in centipawns for the side to move
+     */
+    public int evaluate(int sideToMove) {
+        return network.evaluate(stack[top][sideToMove], stack[top][1 - sideToMove]);
+    }
+
+    // Straight loops over int16 arrays the JIT compiles to SIMD additions
+
+    private void addSub(short[] parent, short[] child, int add, int sub) {
+        for (int i = 0; i < hiddenSize; i++) {
+            child[i] = (short) (parent[i] + weights[add + i] - weights[sub + i]);
+        }
+    }
+
+    private void addSubSub(short[] parent, short[] child, int add, int sub1, int sub2) {
+        for (int i = 0; i < hiddenSize; i++) {
+            child[i] = (short) (parent[i] + weights[add + i] - weights[sub1 + i] - weights[sub2 + i]);
+        }
+    }
+
+    private void addAddSubSub(short[] parent, short[] child, int add1, int add2, int sub1, int sub2) {
+        for (int i = 0; i < hiddenSize; i++) {
+            child[i] = (short) (parent[i] + weights[add1 + i] + weights[add2 + i] - weights[sub1 + i]
+                    - weights[sub2 + i]);
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package engine;
+
+import chess.core.Attacks;
+import chess.core.Position;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Win/draw table of one endgame of a king and a pawn, rook or queen against a lone king, one bit per position.
+ * Positions are seen from the stronger side, which has the extra piece and moves up the board, so a position with
+ * black as the stronger side is looked up flipped. A set bit means the stronger side wins with best play; the
+ * weaker side can never win these endgames, so a clear bit is a draw.
+ *
+ * Tables are generated by retrograde analysis: every mate is marked won, then wins are propagated backwards
+ * through the moves that lead to them until nothing changes. Saved tables are memory-mapped rather than read.
+ */
+public class Bitbase {
+    /** Positions of each side to move, king, king and piece squares */
+    public final static int POSITIONS = 2 * 64 * 64 * 64;
+
+    private final static int MAGIC = 0x43424233; // "CBB3"
+    private final static int VERSION = 1;
+    private final static int HEADER_SIZE = 8;
+
+    // Outcomes of a move that leaves the table
+    private final static int CHILD_DRAW = -1;
+    private final static int CHILD_WIN = -2;
+
+    private final int pieceType;
+
+    /** Header followed by POSITIONS bits, lowest bit first */
+    private final ByteBuffer data;
+
+    private Bitbase(int pieceType, ByteBuffer data) {
+        this.pieceType = pieceType;
+        this.data = data;
+    }
+
+    public int getPieceType() {
+        return pieceType;
+    }
+
+    /**
+     * @param isStrongToMove whether the side with the extra piece is to move
+     * @param strongKing square of the stronger king, from the stronger side's point of view
+     * @param weakKing square of the lone king, from the stronger side's point of view
+     * @param piece square of the extra piece, from the stronger side's point of view
+     * @return whether the stronger side wins
+     */
+    public boolean isWin(boolean isStrongToMove, int strongKing, int weakKing, int piece) {
+        int index = index(isStrongToMove, strongKing, weakKing, piece);
+        return (data.get(HEADER_SIZE + (index >>> 3)) & (1 << (index & 7))) != 0;
+    }
+
+    private static int index(boolean isStrongToMove, int strongKing, int weakKing, int piece) {
+        return ((isStrongToMove ? 0 : 1) << 18) | strongKing << 12 | weakKing << 6 | piece;
+    }
+
+    private static boolean isStrongToMove(int index) {
+        return (index >>> 18) == 0;
+    }
+
+    private static int strongKing(int index) {
+        return (index >>> 12) & 63;
+    }
+
+    private static int weakKing(int index) {
+        return (index >>> 6) & 63;
+    }
+
+    private static int piece(int index) {
+        return index & 63;
+    }
+
+    /**
+     * Opens a saved table, mapping the file read-only
+     */
+    public static Bitbase open(int pieceType, Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() != HEADER_SIZE + POSITIONS / 8) throw new IOException(path + " has the wrong size");
+
+            ByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (data.getInt(0) != MAGIC || data.getInt(4) != VERSION) throw new IOException(path + " is not a bitbase");
+
+            return new Bitbase(pieceType, data);
+        }
+    }
+
+    public void save(Path path) throws IOException {
+        byte[] bytes = new byte[data.capacity()];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = data.get(i);
+        }
+
+        try (OutputStream out = Files.newOutputStream(path)) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Generates the table of a king and a piece against a king
+     *
+     * @param pieceType Position.PAWN, Position.ROOK or Position.QUEEN
+     * @param queens table pawns promote into, only needed for pawns
+     * @param rooks table of the underpromotion to a rook, only needed for pawns
+     */
+    public static Bitbase generate(int pieceType, Bitbase queens, Bitbase rooks) {
+        return new Generator(pieceType, queens, rooks).generate();
+    }
+
+    /**
+     * Works on one table at a time. Every move between two positions of the table is stored reversed, so once a
+     * position is known to be won the positions leading to it can be found without generating moves backwards.
+     */
+    private static class Generator {
+        private final int pieceType;
+        private final Bitbase queens;
+        private final Bitbase rooks;
+
+        private final boolean[] isValid = new boolean[POSITIONS];
+        private final boolean[] isWin = new boolean[POSITIONS];
+
+        /** Moves of a position to move from the lone king's side that are not yet known to lose */
+        private final int[] movesLeft = new int[POSITIONS];
+
+        /** Positions with a move to each position, in one array with the start of every position's run */
+        private int[] parentStarts;
+        private int[] parents;
+
+        private final int[] children = new int[64];
+
+        Generator(int pieceType, Bitbase queens, Bitbase rooks) {
+            this.pieceType = pieceType;
+            this.queens = queens;
+            this.rooks = rooks;
+        }
+
+        Bitbase generate() {
+            int[] queue = new int[POSITIONS];
+            int queueEnd = 0;
+
+            int[] parentCounts = new int[POSITIONS + 1];
+
+            for (int index = 0; index < POSITIONS; index++) {
+                isValid[index] = isValid(index);
+            }
+
+            for (int index = 0; index < POSITIONS; index++) {
+                if (!isValid[index]) continue;
+
+                int count = generateChildren(index);
+                boolean isStrongToMove = isStrongToMove(index);
+                boolean isWon = false;
+
+                for (int i = 0; i < count; i++) {
+                    if (children[i] >= 0) parentCounts[children[i]]++;
+                    else if (children[i] == CHILD_WIN) isWon = true;
+                }
+
+                // Mated, stalemate is a draw
+                if (count == 0 && !isStrongToMove && isWeakKingInCheck(index)) isWon = true;
+
+                if (!isStrongToMove) movesLeft[index] = count;
+
+                if (isWon) {
+                    isWin[index] = true;
+                    queue[queueEnd++] = index;
+                }
+            }
+
+            parentStarts = new int[POSITIONS + 1];
+            for (int index = 0; index < POSITIONS; index++) {
+                parentStarts[index + 1] = parentStarts[index] + parentCounts[index];
+            }
+
+            parents = new int[parentStarts[POSITIONS]];
+            int[] filled = new int[POSITIONS];
+
+            for (int index = 0; index < POSITIONS; index++) {
+                if (!isValid[index]) continue;
+
+                int count = generateChildren(index);
+                for (int i = 0; i < count; i++) {
+                    int child = children[i];
+                    if (child >= 0) parents[parentStarts[child] + filled[child]++] = index;
+                }
+            }
+
+            for (int queueStart = 0; queueStart < queueEnd; queueStart++) {
+                int child = queue[queueStart];
+
+                for (int i = parentStarts[child]; i < parentStarts[child + 1]; i++) {
+                    int parent = parents[i];
+                    if (isWin[parent]) continue;
+
+                    // One winning move is enough for the stronger side, the lone king has to run out of moves
+                    if (isStrongToMove(parent) || --movesLeft[parent] == 0) {
+                        isWin[parent] = true;
+                        queue[queueEnd++] = parent;
+                    }
+                }
+            }
+
+            ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + POSITIONS / 8);
+            data.putInt(0, MAGIC);
+            data.putInt(4, VERSION);
+
+            for (int index = 0; index < POSITIONS; index++) {
+                if (isWin[index]) {
+                    int offset = HEADER_SIZE + (index >>> 3);
+                    data.put(offset, (byte) (data.get(offset) | 1 << (index & 7)));
+                }
+            }
+
+            return new Bitbase(pieceType, data);
+        }
+
+        /**
+         * Both kings apart and on their own squares, pawns off the first and last rank, and the side that just
+         * moved not left in check
+         */
+        private boolean isValid(int index) {
+            int strongKing = strongKing(index);
+            int weakKing = weakKing(index);
+            int piece = piece(index);
+
+            if (strongKing == weakKing || strongKing == piece || weakKing == piece) return false;
+            if ((Attacks.kingAttacks(strongKing) & (1L << weakKing)) != 0) return false;
+            if (pieceType == Position.PAWN && (piece < 8 || piece >= 56)) return false;
+
+            return !isStrongToMove(index) || !isWeakKingInCheck(index);
+        }
+
+        private boolean isWeakKingInCheck(int index) {
+            long occupied = 1L << strongKing(index) | 1L << weakKing(index);
+            return (pieceAttacks(piece(index), occupied) & (1L << weakKing(index))) != 0;
+        }
+
+        private long pieceAttacks(int square, long occupied) {
+            switch (pieceType) {
+                case Position.PAWN:
+                    return Attacks.pawnAttacks(square, Position.WHITE);
+                case Position.ROOK:
+                    return Attacks.rookAttacks(square, occupied);
+                default:
+                    return Attacks.queenAttacks(square, occupied);
+            }
+        }
+
+        /**
+         * Fills children with the positions after every legal move, or with CHILD_WIN and CHILD_DRAW for moves
+         * that leave the table
+         *
+         * @return number of legal moves
+         */
+        private int generateChildren(int index) {
+            int strongKing = strongKing(index);
+            int weakKing = weakKing(index);
+            int piece = piece(index);
+            int count = 0;
+
+            if (isStrongToMove(index)) {
+                long kingTargets = Attacks.kingAttacks(strongKing) & ~Attacks.kingAttacks(weakKing) & ~(1L << piece);
+                for (; kingTargets != 0; kingTargets &= kingTargets - 1) {
+                    children[count++] = index(false, Long.numberOfTrailingZeros(kingTargets), weakKing, piece);
+                }
+
+                long occupied = 1L << strongKing | 1L << weakKing;
+
+                if (pieceType != Position.PAWN) {
+                    for (long targets = pieceAttacks(piece, occupied) & ~occupied; targets != 0; targets &= targets - 1) {
+                        children[count++] = index(false, strongKing, weakKing, Long.numberOfTrailingZeros(targets));
+                    }
+                }
+                else if ((occupied & (1L << (piece + 8))) == 0) {
+                    int push = piece + 8;
+
+                    if (push >= 56) {
+                        boolean isWon = queens.isWin(false, strongKing, weakKing, push)
+                                || rooks.isWin(false, strongKing, weakKing, push);
+                        children[count++] = isWon ? CHILD_WIN : CHILD_DRAW;
+                    }
+                    else {
+                        children[count++] = index(false, strongKing, weakKing, push);
+
+                        if (piece < 16 && (occupied & (1L << (push + 8))) == 0) {
+                            children[count++] = index(false, strongKing, weakKing, push + 8);
+                        }
+                    }
+                }
+            }
+            else {
+                // The lone king no longer blocks the piece from the square it leaves
+                long attacked = Attacks.kingAttacks(strongKing) | pieceAttacks(piece, 1L << strongKing);
+
+                for (long targets = Attacks.kingAttacks(weakKing) & ~attacked; targets != 0; targets &= targets - 1) {
+                    int target = Long.numberOfTrailingZeros(targets);
+                    children[count++] = target == piece ? CHILD_DRAW : index(true, strongKing, target, piece);
+                }
+            }
+
+            return count;
+        }
+    }
+}
@@ -0,0 +1,201 @@
+package engine;
+
+import chess.core.Fen;
+import chess.core.Position;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Exact results of king and pawn, king and rook, and king and queen against a lone king. The tables are generated
+ * the first time they are needed and saved to DIRECTORY, later runs map the saved files instead.
+ */
+public final class Bitbases {
+    /** Results from the point of view of the side to move */
+    public final static int LOSS = -1;
+    public final static int DRAW = 0;
+    public final static int WIN = 1;
+
+    /** The position is not one of the endgames covered */
+    public final static int UNKNOWN = 2;
+
+    /** Where the tables are saved, relative to the working directory */
+    public final static String DIRECTORY = "bitbases";
+
+    /** Tables indexed by the piece type of the extra piece, null for the types without one */
+    private static volatile Bitbase[] tables = null;
+
+    /** Set once loadInBackground has started its thread */
+    private static final AtomicBoolean isLoadStarted = new AtomicBoolean(false);
+
+    private Bitbases() {}
+
+    /**
+     * Opens the tables, generating and saving any that have not been saved yet. Probing loads them as well, this
+     * only moves the wait to a better moment.
+     */
+    public static void load() {
+        getTables();
+    }
+
+    /**
+     * Starts loading the tables on a thread of their own, for callers like the JavaFX thread that cannot wait for
+     * them. Only the first call starts one.
+     */
+    public static void loadInBackground() {
+        if (tables != null || !isLoadStarted.compareAndSet(false, true)) return;
+
+        Thread thread = new Thread(Bitbases::load, "bitbases");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /**
+     * @return whether the tables are ready, probing never waits for them once they are
+     */
+    public static boolean isLoaded() {
+        return tables != null;
+    }
+
+    private static Bitbase[] getTables() {
+        Bitbase[] tables = Bitbases.tables;
+        if (tables != null) return tables;
+
+        synchronized (Bitbases.class) {
+            if (Bitbases.tables == null) {
+                Bitbase[] loaded = new Bitbase[Position.KING];
+                loaded[Position.QUEEN] = loadOrGenerate(Position.QUEEN, "kqk.bin", null, null);
+                loaded[Position.ROOK] = loadOrGenerate(Position.ROOK, "krk.bin", null, null);
+                loaded[Position.PAWN] = loadOrGenerate(Position.PAWN, "kpk.bin", loaded[Position.QUEEN],
+                        loaded[Position.ROOK]);
+
+                Bitbases.tables = loaded;
+            }
+
+            return Bitbases.tables;
+        }
+    }
+
+    private static Bitbase loadOrGenerate(int pieceType, String name, Bitbase queens, Bitbase rooks) {
+        Path path = Paths.get(DIRECTORY, name);
+
+        if (Files.isRegularFile(path)) {
+            try {
+                return Bitbase.open(pieceType, path);
+            }
+            catch (IOException ex) {
+                System.err.println("Regenerating " + path + ": " + ex.getMessage());
+            }
+        }
+
+        Bitbase bitbase = Bitbase.generate(pieceType, queens, rooks);
+
+        // A table that cannot be saved is still used, it is just generated again next time
+        try {
+            Files.createDirectories(path.getParent());
+            bitbase.save(path);
+            return Bitbase.open(pieceType, path);
+        }
+        catch (IOException ex) {
+            System.err.println("Could not save " + path + ": " + ex.getMessage());
+            return bitbase;
+        }
+    }
+
+    /**
+     * @return whether the position is one of the endgames covered
+     */
+    public static boolean isCovered(Position position) {
+        return extraPiece(position) != Position.NO_PIECE;
+    }
+
+    /**
+     * @return the piece besides the kings if it is a pawn, rook or queen and there is nothing else on the board
+     */
+    private static int extraPiece(Position position) {
+        long occupied = position.getOccupied();
+        if (Long.bitCount(occupied) != 3) return Position.NO_PIECE;
+
+        for (long pieces = occupied; pieces != 0; pieces &= pieces - 1) {
+            int piece = position.getPiece(Long.numberOfTrailingZeros(pieces));
+            int type = Position.pieceType(piece);
+
+            if (type == Position.PAWN || type == Position.ROOK || type == Position.QUEEN) return piece;
+            if (type != Position.KING) return Position.NO_PIECE;
+        }
+
+        return Position.NO_PIECE;
+    }
+
+    /**
+     * Adjudicator of a Game, ends the endgames covered with their result with best play. A covered position waits for
+     * tables still loading rather than letting the game go on, so the server's game and both players' games always
+     * end on the same move.
+     *
+     * @return W: white wins, B: black wins, d: draw, n: the position is not covered
+     */
+    public static char adjudicate(Position position) {
+        int result = probe(position);
+        if (result == UNKNOWN) return 'n';
+        if (result == DRAW) return 'd';
+
+        return (result == WIN) == position.isWhiteToMove() ? 'W' : 'B';
+    }
+
+    /**
+     * @return WIN, DRAW or LOSS for the side to move, UNKNOWN if the position is not covered
+     */
+    public static int probe(Position position) {
+        int extraPiece = extraPiece(position);
+        if (extraPiece == Position.NO_PIECE) return UNKNOWN;
+
+        int strong = Position.pieceColor(extraPiece);
+        int weak = 1 - strong;
+
+        // The tables are seen from white, black's pawns run down the board
+        int flip = strong == Position.WHITE ? 0 : 56;
+
+        int strongKing = position.getKingSquare(strong) ^ flip;
+        int weakKing = position.getKingSquare(weak) ^ flip;
+        int piece = Long.numberOfTrailingZeros(position.getPieces(extraPiece)) ^ flip;
+        boolean isStrongToMove = position.getSideToMove() == strong;
+
+        Bitbase bitbase = getTables()[Position.pieceType(extraPiece)];
+
+        if (!bitbase.isWin(isStrongToMove, strongKing, weakKing, piece)) return DRAW;
+
+        return isStrongToMove ? WIN : LOSS;
+    }
+
+    /**
+     * Generates or opens the tables and prints how many positions of each are won, or the result of a position
+     *
+     * Usage: Bitbases [fen]
+     */
+    public static void main(String[] args) {
+        long start = System.nanoTime();
+        Bitbase[] tables = getTables();
+        System.out.printf("Loaded in %d ms%n", (System.nanoTime() - start) / 1_000_000);
+
+        if (args.length > 0) {
+            int result = probe(Fen.parse(String.join(" ", args)));
+            System.out.println(result == WIN ? "win" : result == LOSS ? "loss" : result == DRAW ? "draw" : "not covered");
+            return;
+        }
+
+        String[] names = { "KPK", null, null, "KRK", "KQK" };
+        for (int type = Position.PAWN; type < Position.KING; type++) {
+            if (tables[type] == null) continue;
+
+            int wins = 0;
+            for (int index = 0; index < Bitbase.POSITIONS / 2; index++) {
+                if (tables[type].isWin(true, (index >>> 12) & 63, (index >>> 6) & 63, index & 63)) wins++;
+            }
+
+            System.out.printf("%s: %d positions won with the stronger side to move%n", names[type], wins);
+        }
+    }
+}
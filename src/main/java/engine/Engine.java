@@ -0,0 +1,269 @@
+package engine;
+
+import chess.core.Fen;
+import chess.core.Moves;
+import chess.core.Position;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Computer opponent, runs searches one at a time on its own thread so the caller (usually the JavaFX thread)
+ * never waits for one. With more than one thread, helper searches run alongside the main one and share its hash
+ * table (lazy SMP).
+ */
+public class Engine {
+    public final static int MAX_THREADS = 256;
+
+    private final TranspositionTable table = new TranspositionTable();
+
+    private final Search search = new Search(table);
+
+    /** Network every thread evaluates with, null for the classical evaluation */
+    private Network network = null;
+
+    /** Book the engine plays from while the position is in it, null to always search */
+    private PolyglotBook book = null;
+
+    /** Helper searches, one per thread beyond the first */
+    private Search[] helpers = new Search[0];
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "engine");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ExecutorService helperExecutor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "engine-helper");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public Engine() {
+        // Generating the bitbases on the first run takes about a second, better before the first search than in it
+        executor.execute(Bitbases::load);
+    }
+
+    public Engine(int threads) {
+        this();
+        setThreads(threads);
+    }
+
+    /**
+     * Starts searching a copy of the position, so the caller is free to keep changing its own. A position in the
+     * book is not searched, the result is a book move at depth 0.
+     *
+     * @param listener told about every completed iteration on the engine thread, may be null
+     * @return completes with the final result on the engine thread
+     */
+    public CompletableFuture<SearchInfo> think(Position position, SearchLimits limits, SearchListener listener) {
+        int bookMove = book == null ? Moves.NONE : book.pickMove(position);
+        if (bookMove != Moves.NONE) {
+            return CompletableFuture.completedFuture(new SearchInfo(0, 0, 0, 0, 0, new int[] { bookMove }));
+        }
+
+        Position root = new Position(position);
+
+        // Cleared here rather than on the engine thread, so a stop right after this is not lost
+        search.clearStop();
+        search.clearTimeLimit();
+
+        return CompletableFuture.supplyAsync(() -> runSearch(root, limits, listener), executor);
+    }
+
+    /**
+     * Runs the main search on this thread and the helpers on their own, the helpers are stopped and waited for
+     * once the main search is done so the next search starts from a quiet table
+     */
+    private SearchInfo runSearch(Position root, SearchLimits limits, SearchListener listener) {
+        Search[] helpers = this.helpers;
+        Future<?>[] helperResults = new Future<?>[helpers.length];
+
+        for (int i = 0; i < helpers.length; i++) {
+            Search helper = helpers[i];
+            Position helperRoot = new Position(root);
+
+            helperResults[i] = helperExecutor.submit(
+                    () -> helper.search(helperRoot, SearchLimits.depth(Search.MAX_DEPTH), null));
+        }
+
+        SearchListener totalListener = listener == null ? null : info -> listener.onInfo(withTotalNodes(info, helpers));
+
+        try {
+            return withTotalNodes(search.search(root, limits, totalListener), helpers);
+        }
+        finally {
+            search.stop();
+
+            for (Future<?> helperResult : helperResults) {
+                try {
+                    helperResult.get();
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                catch (ExecutionException ex) {
+                    System.err.println(ex.getCause().getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * @return the info with the nodes of the helpers added, they are read while running so the sum is approximate
+     */
+    private SearchInfo withTotalNodes(SearchInfo info, Search[] helpers) {
+        long nodes = info.getNodes();
+        for (Search helper : helpers) {
+            nodes += helper.getNodes();
+        }
+
+        return new SearchInfo(info.getDepth(), info.getSelectiveDepth(), info.getScore(), nodes, info.getTimeMs(),
+                info.getPv());
+    }
+
+    /**
+     * Sets how many threads search at once. Must not be called while searching.
+     */
+    public void setThreads(int threads) {
+        assert threads >= 1 && threads <= MAX_THREADS : "Thread count must be between 1 and " + MAX_THREADS;
+
+        Search[] helpers = new Search[Math.max(0, Math.min(threads, MAX_THREADS) - 1)];
+        for (int i = 0; i < helpers.length; i++) {
+            helpers[i] = new Search(search, i + 1);
+            helpers[i].setNetwork(network);
+        }
+
+        this.helpers = helpers;
+    }
+
+    public int getThreads() {
+        return helpers.length + 1;
+    }
+
+    /**
+     * Switches every thread between the network evaluation and the classical one. Must not be called while
+     * searching.
+     *
+     * @param network network to use, null for the classical evaluation
+     */
+    public void setNetwork(Network network) {
+        this.network = network;
+
+        search.setNetwork(network);
+        for (Search helper : helpers) {
+            helper.setNetwork(network);
+        }
+    }
+
+    public Network getNetwork() {
+        return network;
+    }
+
+    /**
+     * @param book book to play from, null to always search
+     */
+    public void setBook(PolyglotBook book) {
+        this.book = book;
+    }
+
+    public PolyglotBook getBook() {
+        return book;
+    }
+
+    /**
+     * Resizes the hash table, which empties it. Must not be called while searching.
+     */
+    public void setHashSize(int sizeMb) {
+        table.resize(sizeMb);
+    }
+
+    public void clearHash() {
+        table.clear();
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return table;
+    }
+
+    /**
+     * @return share of the hash table probes of the last search that found an entry, summed over every thread
+     */
+    public double getTableHitRate() {
+        long probes = search.getTableProbes();
+        long hits = search.getTableHits();
+
+        for (Search helper : helpers) {
+            probes += helper.getTableProbes();
+            hits += helper.getTableHits();
+        }
+
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    /**
+     * Gives the running search a time limit counted from now, for a search started without one
+     */
+    public void setTimeLimit(long timeMs) {
+        search.setTimeLimit(timeMs);
+    }
+
+    /**
+     * Makes the running search return its best move so far
+     */
+    public void stop() {
+        search.stop();
+    }
+
+    public void shutdown() {
+        search.stop();
+        executor.shutdownNow();
+        helperExecutor.shutdownNow();
+    }
+
+    /**
+     * Searches a position and prints every iteration
+     *
+     * Usage: Engine [movetime ms] [threads] [fen] [--nnue]
+     */
+    public static void main(String[] args) throws IOException {
+        boolean isNnue = false;
+        ArrayList<String> arguments = new ArrayList<>();
+
+        for (String arg : args) {
+            if (arg.equals("--nnue")) isNnue = true;
+            else arguments.add(arg);
+        }
+
+        long timeMs = arguments.size() > 0 ? Long.parseLong(arguments.get(0)) : 5000;
+        int threads = arguments.size() > 1 ? Integer.parseInt(arguments.get(1)) : 1;
+        String fen = arguments.size() > 2 ? String.join(" ", arguments.subList(2, arguments.size()))
+                : Fen.START_POSITION;
+
+        Engine engine = new Engine(threads);
+        if (isNnue) engine.setNetwork(Network.loadDefault());
+        SearchInfo result = engine.think(Fen.parse(fen), SearchLimits.moveTime(timeMs),
+                info -> System.out.println("info " + info)).join();
+
+        TranspositionTable table = engine.getTranspositionTable();
+        System.out.printf("hash %d MB, hashfull %d, hit rate %.1f%%%n", table.getSizeMb(), table.hashfull(),
+                engine.getTableHitRate() * 100);
+
+        PawnTable pawnTable = engine.search.getPawnTable();
+        System.out.printf("pawn table hits %d, misses %d, hit rate %.1f%%%n", pawnTable.getHits(),
+                pawnTable.getMisses(), pawnTable.getHitRate() * 100);
+
+        MoveOrdering ordering = engine.search.getOrdering();
+        System.out.printf("cutoffs %d, first move cutoffs %.1f%%%n", ordering.getCutoffs(),
+                ordering.getFirstMoveCutoffRate() * 100);
+
+        System.out.println("bestmove " + Moves.toUci(result.getBestMove()));
+        engine.shutdown();
+    }
+}
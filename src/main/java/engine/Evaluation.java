@@ -0,0 +1,205 @@
+package engine;
+
+import chess.core.Fen;
+import chess.core.Perft;
+import chess.core.Perft.ReferencePosition;
+import chess.core.PieceSquareTables;
+import chess.core.Position;
+
+import java.util.ArrayList;
+
+/**
+ * Static evaluation of a position in centipawns: material, piece-square tables and pawn structure, each with a
+ * middlegame and an endgame value that are blended by how much material is left. Position keeps the material and
+ * piece-square sums up to date as moves are made and unmade, and PawnTable caches the pawn structure, so most
+ * evaluations only add a few numbers and blend them.
+ */
+public final class Evaluation {
+    /** Value of each piece type, indexed by Position.PAWN..Position.KING, for exchanges and move ordering */
+    public final static int[] PIECE_VALUES = { 100, 320, 330, 500, 900, 0 };
+
+    /** Score of a position the bitbases say is won, above any evaluation and below every mate */
+    public final static int KNOWN_WIN = 10000;
+
+    private Evaluation() {}
+
+    /**
+     * @return score of the position from the point of view of the side to move
+     */
+    public static int evaluate(Position position, PawnTable pawnTable) {
+        int packed = position.getMaterial() + position.getPieceSquareScore() + pawnTable.probe(position)
+                + PawnStructure.evaluateShields(position);
+        int score = PieceSquareTables.taper(packed, position.getPhase());
+
+        return position.getSideToMove() == Position.WHITE ? score : -score;
+    }
+
+    /**
+     * Evaluates without a pawn table, for the odd position outside a search
+     *
+     * @return score of the position from the point of view of the side to move
+     */
+    public static int evaluate(Position position) {
+        return evaluate(position, new PawnTable(1));
+    }
+
+    /**
+     * Scores a position with a result from the bitbases. Knowing a position is won does not say how to win it, so
+     * won positions also score progress: an advanced pawn, or the lone king driven to the edge with the other king
+     * close to it.
+     *
+     * @param result Bitbases.WIN, DRAW or LOSS for the side to move
+     * @return score of the position from the point of view of the side to move
+     */
+    public static int evaluateKnown(Position position, int result) {
+        if (result == Bitbases.DRAW) return 0;
+
+        int strong = result == Bitbases.WIN ? position.getSideToMove() : 1 - position.getSideToMove();
+        int strongKing = position.getKingSquare(strong);
+        int weakKing = position.getKingSquare(1 - strong);
+
+        int score = KNOWN_WIN;
+
+        long pawns = position.getPieces(Position.makePiece(strong, Position.PAWN));
+        if (pawns != 0) {
+            int rank = Long.numberOfTrailingZeros(pawns) >>> 3;
+            score += 20 * (strong == Position.WHITE ? rank : 7 - rank);
+        }
+        else {
+            score += 10 * centerDistance(weakKing) + 5 * (7 - distance(strongKing, weakKing));
+        }
+
+        return result == Bitbases.WIN ? score : -score;
+    }
+
+    private static int distance(int from, int to) {
+        return Math.max(Math.abs((from & 7) - (to & 7)), Math.abs((from >>> 3) - (to >>> 3)));
+    }
+
+    /**
+     * @return how many files and ranks the square is from the four center squares, 0 to 6
+     */
+    private static int centerDistance(int square) {
+        int file = square & 7;
+        int rank = square >>> 3;
+
+        return Math.max(3 - file, file - 4) + Math.max(3 - rank, rank - 4);
+    }
+
+    /**
+     * @return score of the position from white's point of view
+     */
+    public static int evaluate(String fen) {
+        return breakdown(Fen.parse(fen)).getTotal();
+    }
+
+    /**
+     * Recomputes every term from the board instead of using the sums kept by the position, so the result can be
+     * checked against the incremental evaluation
+     */
+    public static Breakdown breakdown(Position position) {
+        int material = 0;
+        int pieceSquareScore = 0;
+        int phase = 0;
+
+        for (int square = 0; square < 64; square++) {
+            int piece = position.getPiece(square);
+            if (piece == Position.NO_PIECE) continue;
+
+            material += PieceSquareTables.material(piece);
+            pieceSquareScore += PieceSquareTables.square(piece, square);
+            phase += PieceSquareTables.phase(piece);
+        }
+
+        Breakdown breakdown = new Breakdown(phase);
+        breakdown.add("Material", material);
+        breakdown.add("Piece squares", pieceSquareScore);
+        breakdown.add("Pawn structure", PawnStructure.evaluatePawns(position));
+        breakdown.add("Pawn shield", PawnStructure.evaluateShields(position));
+
+        return breakdown;
+    }
+
+    public static Breakdown breakdown(String fen) {
+        return breakdown(Fen.parse(fen));
+    }
+
+    /**
+     * Every term of an evaluation from white's point of view, with its middlegame, endgame and blended values
+     */
+    public static class Breakdown {
+        private final ArrayList<String> names = new ArrayList<>();
+
+        /** Packed middlegame/endgame score of each term */
+        private final ArrayList<Integer> scores = new ArrayList<>();
+
+        private final int phase;
+
+        public Breakdown(int phase) {
+            this.phase = phase;
+        }
+
+        public void add(String name, int score) {
+            names.add(name);
+            scores.add(score);
+        }
+
+        public int getPhase() { return phase; }
+
+        public int size() { return names.size(); }
+
+        public String getName(int term) { return names.get(term); }
+
+        public int getMg(int term) { return PieceSquareTables.mg(scores.get(term)); }
+
+        public int getEg(int term) { return PieceSquareTables.eg(scores.get(term)); }
+
+        public int getTapered(int term) { return PieceSquareTables.taper(scores.get(term), phase); }
+
+        /**
+         * @return the blended sum of all terms, the terms are added before blending just like evaluate does
+         */
+        public int getTotal() {
+            int total = 0;
+            for (int score : scores) {
+                total += score;
+            }
+
+            return PieceSquareTables.taper(total, phase);
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder sb = new StringBuilder();
+            sb.append(String.format("%-16s %6s %6s %6s%n", "Term", "MG", "EG", "Total"));
+
+            for (int term = 0; term < size(); term++) {
+                sb.append(String.format("%-16s %6d %6d %6d%n", getName(term), getMg(term), getEg(term),
+                        getTapered(term)));
+            }
+
+            sb.append(String.format("Phase %d/%d, total %d (white's view)%n", phase, PieceSquareTables.MAX_PHASE,
+                    getTotal()));
+
+            return sb.toString();
+        }
+    }
+
+    /**
+     * Prints the breakdown of a position, or of every perft reference position for comparing against an earlier run
+     *
+     * Usage: Evaluation suite | Evaluation [fen]
+     */
+    public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("suite")) {
+            for (ReferencePosition reference : Perft.REFERENCE_POSITIONS) {
+                System.out.println(reference.getName() + ": " + reference.getFen());
+                System.out.println(breakdown(reference.getFen()));
+            }
+            return;
+        }
+
+        String fen = args.length > 0 ? String.join(" ", args) : Fen.START_POSITION;
+        System.out.print(breakdown(fen));
+    }
+}
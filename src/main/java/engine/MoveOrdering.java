@@ -0,0 +1,105 @@
+package engine;
+
+import chess.core.MoveList;
+import chess.core.Moves;
+
+/**
+ * What one search thread has learned about which quiet moves cause cutoffs: two killer moves per ply and a
+ * butterfly history table indexed by color, from and to square. Also counts how often the first move searched was
+ * the one to cause the cutoff, the measure of how good the ordering is.
+ */
+public class MoveOrdering {
+    /** History scores stay within plus and minus this */
+    final static int MAX_HISTORY = 16384;
+
+    private final int[][] killers = new int[Search.MAX_PLY + 1][2];
+
+    /** Indexed by color * 4096 + from * 64 + to */
+    private final int[] history = new int[2 * 64 * 64];
+
+    private long cutoffs = 0;
+    private long firstMoveCutoffs = 0;
+
+    /**
+     * Prepares for a new search, killers only apply to the tree they were found in while history is halved so it
+     * still counts but new results soon outweigh it
+     */
+    public void newSearch() {
+        for (int[] plyKillers : killers) {
+            plyKillers[0] = Moves.NONE;
+            plyKillers[1] = Moves.NONE;
+        }
+
+        for (int i = 0; i < history.length; i++) {
+            history[i] /= 2;
+        }
+
+        cutoffs = 0;
+        firstMoveCutoffs = 0;
+    }
+
+    public boolean isKiller(int ply, int move) {
+        return killers[ply][0] == move || killers[ply][1] == move;
+    }
+
+    public int getKiller(int ply, int slot) {
+        return killers[ply][slot];
+    }
+
+    public int getHistory(int color, int move) {
+        return history[historyIndex(color, move)];
+    }
+
+    /**
+     * Records a beta cutoff
+     *
+     * @param move move that caused the cutoff
+     * @param isQuiet whether the move neither captures nor promotes, only those are remembered as killers and in
+     * the history
+     * @param triedQuiets quiet moves searched before it without a cutoff, their history is lowered
+     * @param moveIndex how many moves were searched before it
+     */
+    public void recordCutoff(int ply, int color, int move, boolean isQuiet, MoveList triedQuiets, int depth,
+                             int moveIndex) {
+        cutoffs++;
+        if (moveIndex == 0) firstMoveCutoffs++;
+
+        if (!isQuiet) return;
+
+        if (killers[ply][0] != move) {
+            killers[ply][1] = killers[ply][0];
+            killers[ply][0] = move;
+        }
+
+        int bonus = Math.min(depth * depth, MAX_HISTORY / 16);
+
+        updateHistory(color, move, bonus);
+        for (int i = 0; i < triedQuiets.size(); i++) {
+            updateHistory(color, triedQuiets.get(i), -bonus);
+        }
+    }
+
+    /**
+     * Moves the score towards the bonus by an amount that shrinks as the score nears the limit, so the scores never
+     * leave the range and a move that stops working loses its score quickly
+     */
+    private void updateHistory(int color, int move, int bonus) {
+        int index = historyIndex(color, move);
+        history[index] += bonus - history[index] * Math.abs(bonus) / MAX_HISTORY;
+    }
+
+    private static int historyIndex(int color, int move) {
+        return (color << 12) | (Moves.from(move) << 6) | Moves.to(move);
+    }
+
+    public long getCutoffs() {
+        return cutoffs;
+    }
+
+    /**
+     * @return share of cutoffs caused by the first move searched
+     */
+    public double getFirstMoveCutoffRate() {
+        return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+    }
+}
@@ -0,0 +1,138 @@
+package engine;
+
+import chess.core.MoveList;
+import chess.core.Moves;
+import chess.core.Position;
+
+/**
+ * Hands out the moves of a generated list best first. Every move is scored once, then each call to next selects the
+ * best remaining one, so a node that is cut off after a move or two never pays for sorting the rest.
+ *
+ * Order: the hash move, captures that do not lose material (most valuable victim, then least valuable attacker),
+ * killers, quiet moves by history, and captures that lose material last.
+ */
+public class MovePicker {
+    private final static int HASH_MOVE_SCORE = 1 << 30;
+    private final static int GOOD_CAPTURE_SCORE = 1 << 29;
+    private final static int KILLER_SCORE = 1 << 28;
+    private final static int BAD_CAPTURE_SCORE = -(1 << 29);
+
+    /** Marks moves next skips, in a tactical-only picker quiet moves and captures that lose material */
+    private final static int SKIPPED = Integer.MIN_VALUE;
+
+    /** Killers and history, null orders by the static scores only */
+    private final MoveOrdering ordering;
+
+    private final int[] scores = new int[MoveList.MAX_MOVES];
+
+    private Position position;
+    private MoveList moves;
+    private int index;
+
+    public MovePicker(MoveOrdering ordering) {
+        this.ordering = ordering;
+    }
+
+    /**
+     * Scores the moves of a list, which are then taken from it by next and reordered in place
+     *
+     * @param hashMove move to try first, Moves.NONE if there is none
+     * @param ply distance from the root, for the killers
+     * @param isTacticalOnly whether to skip quiet moves and captures that lose material, for the quiescence search
+     */
+    public void init(Position position, MoveList moves, int hashMove, int ply, boolean isTacticalOnly) {
+        this.position = position;
+        this.moves = moves;
+        this.index = 0;
+
+        int color = position.getSideToMove();
+
+        for (int i = 0; i < moves.size(); i++) {
+            int move = moves.get(i);
+
+            if (move == hashMove) {
+                scores[i] = HASH_MOVE_SCORE;
+            }
+            else if (isTactical(position, move)) {
+                boolean isGood = StaticExchange.isAtLeast(position, move, 0);
+
+                if (isGood) scores[i] = GOOD_CAPTURE_SCORE + mvvLva(move);
+                else scores[i] = isTacticalOnly ? SKIPPED : BAD_CAPTURE_SCORE + mvvLva(move);
+            }
+            else if (isTacticalOnly) {
+                scores[i] = SKIPPED;
+            }
+            else if (ordering != null && ordering.isKiller(ply, move)) {
+                scores[i] = ordering.getKiller(ply, 0) == move ? KILLER_SCORE + 1 : KILLER_SCORE;
+            }
+            else {
+                scores[i] = ordering != null ? ordering.getHistory(color, move) : 0;
+            }
+        }
+    }
+
+    /**
+     * @return the best move not handed out yet, Moves.NONE once there are none left
+     */
+    public int next() {
+        int size = moves.size();
+        if (index >= size) return Moves.NONE;
+
+        int best = index;
+        for (int i = index + 1; i < size; i++) {
+            if (scores[i] > scores[best]) best = i;
+        }
+
+        if (scores[best] == SKIPPED) {
+            index = size;
+            return Moves.NONE;
+        }
+
+        int move = moves.get(best);
+
+        moves.set(best, moves.get(index));
+        moves.set(index, move);
+
+        int score = scores[best];
+        scores[best] = scores[index];
+        scores[index] = score;
+
+        index++;
+        return move;
+    }
+
+    /**
+     * Higher for more valuable victims, then for less valuable attackers. Promotions count the new piece as the
+     * victim.
+     */
+    private int mvvLva(int move) {
+        int victim = position.getPiece(Moves.to(move));
+        int victimType = victim == Position.NO_PIECE ? Position.PAWN : Position.pieceType(victim);
+
+        if (Moves.kind(move) == Moves.PROMOTION) victimType = Math.max(victimType, Moves.promotionType(move));
+
+        int attackerType = Position.pieceType(position.getPiece(Moves.from(move)));
+
+        return victimType * 8 + (Position.KING - attackerType);
+    }
+
+    /**
+     * @return whether the move captures or promotes
+     */
+    public static boolean isTactical(Position position, int move) {
+        return position.getPiece(Moves.to(move)) != Position.NO_PIECE || Moves.kind(move) == Moves.EN_PASSANT
+                || Moves.kind(move) == Moves.PROMOTION;
+    }
+
+    /**
+     * Sorts a list best first by the static part of the ordering, for showing moves without a search
+     */
+    public static void sort(Position position, MoveList moves) {
+        MovePicker picker = new MovePicker(null);
+        picker.init(position, moves, Moves.NONE, 0, false);
+
+        while (picker.next() != Moves.NONE) {
+            // next puts each move in its place
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package engine;
+
+import chess.core.Position;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Weights of an efficiently updatable neural network (NNUE) evaluation with the layout (768 -> N) x 2 -> 1.
+ *
+ * Each of the 768 inputs is one piece (own or enemy, six types) on one square, seen from one side. The first layer
+ * sums the weights of every piece on the board into an accumulator of N int16 values per side, which Accumulator
+ * keeps up to date as moves are made instead of recomputing it. The output layer clips both accumulators to
+ * [0, QA], side to move first, and takes their dot product with the output weights.
+ *
+ * File format, big-endian: int magic, int version, int N, short[768 * N] feature weights, short[N] feature biases,
+ * short[2 * N] output weights, int output bias
+ */
+public class Network {
+    public final static int INPUTS = 768;
+
+    /** Scale of the first layer weights and the clipping limit of the accumulators */
+    public final static int QA = 255;
+
+    /** Scale of the output weights */
+    public final static int QB = 64;
+
+    /** Centipawns per unit of the unscaled output */
+    public final static int SCALE = 400;
+
+    public final static String DEFAULT_RESOURCE = "/network/eval.bin";
+
+    /** "CNET" */
+    private final static int MAGIC = 0x434E4554;
+    private final static int VERSION = 1;
+
+    private final int hiddenSize;
+
+    /** Indexed by feature * hiddenSize + neuron, so the weights of one feature are contiguous */
+    private final short[] featureWeights;
+    private final short[] featureBiases;
+
+    /** The side to move's half first, then the other side's */
+    private final short[] outputWeights;
+    private final int outputBias;
+
+    public Network(int hiddenSize, short[] featureWeights, short[] featureBiases, short[] outputWeights,
+                   int outputBias) {
+        assert featureWeights.length == INPUTS * hiddenSize : "Feature weights do not match the hidden size";
+        assert featureBiases.length == hiddenSize && outputWeights.length == 2 * hiddenSize
+                : "Biases or output weights do not match the hidden size";
+
+        this.hiddenSize = hiddenSize;
+        this.featureWeights = featureWeights;
+        this.featureBiases = featureBiases;
+        this.outputWeights = outputWeights;
+        this.outputBias = outputBias;
+    }
+
+    public static Network load(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new BufferedInputStream(in));
+
+        if (data.readInt() != MAGIC) throw new IOException("Not a network file");
+
+        int version = data.readInt();
+        if (version != VERSION) throw new IOException("Unsupported network version " + version);
+
+        int hiddenSize = data.readInt();
+        if (hiddenSize <= 0 || hiddenSize > 4096) throw new IOException("Invalid hidden layer size " + hiddenSize);
+
+        short[] featureWeights = readShorts(data, INPUTS * hiddenSize);
+        short[] featureBiases = readShorts(data, hiddenSize);
+        short[] outputWeights = readShorts(data, 2 * hiddenSize);
+        int outputBias = data.readInt();
+
+        return new Network(hiddenSize, featureWeights, featureBiases, outputWeights, outputBias);
+    }
+
+    /**
+     * Loads the network shipped on the classpath
+     */
+    public static Network loadDefault() throws IOException {
+        InputStream in = Network.class.getResourceAsStream(DEFAULT_RESOURCE);
+        if (in == null) throw new FileNotFoundException("Network " + DEFAULT_RESOURCE + " is not on the classpath");
+
+        try {
+            return load(in);
+        }
+        finally {
+            in.close();
+        }
+    }
+
+    public void save(OutputStream out) throws IOException {
+        DataOutputStream data = new DataOutputStream(new BufferedOutputStream(out));
+
+        data.writeInt(MAGIC);
+        data.writeInt(VERSION);
+        data.writeInt(hiddenSize);
+        writeShorts(data, featureWeights);
+        writeShorts(data, featureBiases);
+        writeShorts(data, outputWeights);
+        data.writeInt(outputBias);
+
+        data.flush();
+    }
+
+    private static short[] readShorts(DataInputStream data, int length) throws IOException {
+        short[] values = new short[length];
+        for (int i = 0; i < length; i++) {
+            values[i] = data.readShort();
+        }
+
+        return values;
+    }
+
+    private static void writeShorts(DataOutputStream data, short[] values) throws IOException {
+        for (short value : values) {
+            data.writeShort(value);
+        }
+    }
+
+    /**
+     * @return input index of a piece on a square as seen by one side, which sees its own pieces as the first six
+     * types and the board from its own end
+     */
+    public static int featureIndex(int perspective, int piece, int square) {
+        int relativeColor = Position.pieceColor(piece) == perspective ? 0 : 1;
+        int relativeSquare = perspective == Position.WHITE ? square : square ^ 56;
+
+        return (relativeColor * 6 + Position.pieceType(piece)) * 64 + relativeSquare;
+    }
+
+    /**
+     * Runs the output layer. The loops only touch int16 arrays in order, so the JIT can compile them to SIMD
+     * instructions.
+     *
+     * @return score in centipawns for the side whose accumulator is passed first
+     */
+    public int evaluate(short[] us, short[] them) {
+        int sum = 0;
+
+        for (int i = 0; i < hiddenSize; i++) {
+            sum += Math.min(Math.max(us[i], 0), QA) * outputWeights[i];
+        }
+        for (int i = 0; i < hiddenSize; i++) {
+            sum += Math.min(Math.max(them[i], 0), QA) * outputWeights[hiddenSize + i];
+        }
+
+        return (int) ((long) (sum + outputBias) * SCALE / (QA * QB));
+    }
+
+    public int getHiddenSize() {
+        return hiddenSize;
+    }
+
+    short[] getFeatureWeights() {
+        return featureWeights;
+    }
+
+    short[] getFeatureBiases() {
+        return featureBiases;
+    }
+}
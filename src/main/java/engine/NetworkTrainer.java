@@ -0,0 +1,326 @@
+package engine;
+
+import chess.core.Fen;
+import chess.core.MoveGenerator;
+import chess.core.MoveList;
+import chess.core.Perft;
+import chess.core.Perft.ReferencePosition;
+import chess.core.Position;
+
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Random;
+
+/**
+ * Trains the network shipped in src/main/resources/network by distilling the classical evaluation: positions
+ * from seeded random games are labelled with Evaluation.evaluate, and a float network is fitted to them with
+ * Adam on the squared error of the win probabilities, then quantized. The seed is fixed, so the same arguments
+ * always write the same file.
+ *
+ * Usage: NetworkTrainer [output file] [positions] [epochs] [hidden size]
+ */
+public class NetworkTrainer {
+    private final static long SEED = 0x5EEDL;
+
+    /** No position has more than 32 pieces, so each sample stores that many features per perspective */
+    private final static int MAX_FEATURES = 32;
+
+    private final static int BATCH_SIZE = 256;
+    private final static float LEARNING_RATE = 0.001f;
+    private final static float BETA1 = 0.9f;
+    private final static float BETA2 = 0.999f;
+    private final static float EPSILON = 1e-8f;
+
+    /** Float weights stay within what their quantized form can hold */
+    private final static float MAX_FEATURE_WEIGHT = Short.MAX_VALUE / (float) Network.QA / 2;
+
+    private final int hiddenSize;
+
+    // Side to move first, like Network
+    private final int[] features;
+    private final int[] featureCounts;
+    private final float[] targets;
+    private final int sampleCount;
+
+    private final float[] featureWeights;
+    private final float[] featureBiases;
+    private final float[] outputWeights;
+    private final float[] outputBias = new float[1];
+
+    private final Adam featureWeightsOptimizer;
+    private final Adam featureBiasesOptimizer;
+    private final Adam outputWeightsOptimizer;
+    private final Adam outputBiasOptimizer = new Adam(1);
+
+    private final float[] featureWeightsGradient;
+    private final float[] featureBiasesGradient;
+    private final float[] outputWeightsGradient;
+    private final float[] outputBiasGradient = new float[1];
+
+    private final Random random = new Random(SEED);
+
+    public NetworkTrainer(int sampleCount, int hiddenSize) {
+        this.hiddenSize = hiddenSize;
+        this.sampleCount = sampleCount;
+
+        features = new int[sampleCount * 2 * MAX_FEATURES];
+        featureCounts = new int[sampleCount];
+        targets = new float[sampleCount];
+
+        featureWeights = new float[Network.INPUTS * hiddenSize];
+        featureBiases = new float[hiddenSize];
+        outputWeights = new float[2 * hiddenSize];
+
+        for (int i = 0; i < featureWeights.length; i++) {
+            featureWeights[i] = (float) random.nextGaussian() * 0.05f;
+        }
+        for (int i = 0; i < featureBiases.length; i++) {
+            featureBiases[i] = 0.5f;
+        }
+        for (int i = 0; i < outputWeights.length; i++) {
+            outputWeights[i] = (float) random.nextGaussian() * 0.1f;
+        }
+
+        featureWeightsOptimizer = new Adam(featureWeights.length);
+        featureBiasesOptimizer = new Adam(featureBiases.length);
+        outputWeightsOptimizer = new Adam(outputWeights.length);
+
+        featureWeightsGradient = new float[featureWeights.length];
+        featureBiasesGradient = new float[featureBiases.length];
+        outputWeightsGradient = new float[outputWeights.length];
+    }
+
+    /**
+     * Plays random games from the start position and keeps a position every few moves, skipping positions in check
+     * since their static evaluation means little
+     */
+    public void generateSamples() {
+        MoveList moves = new MoveList();
+        int sample = 0;
+
+        while (sample < sampleCount) {
+            Position position = Fen.parse(Fen.START_POSITION);
+
+            for (int ply = 0; ply < 200 && sample < sampleCount; ply++) {
+                MoveGenerator.generateLegalMoves(position, moves);
+                if (moves.isEmpty() || position.isFiftyMoveRule()) break;
+
+                position.makeMove(moves.get(random.nextInt(moves.size())));
+
+                if (ply >= 4 && !position.isInCheck() && random.nextInt(3) == 0) {
+                    storeSample(sample++, position);
+                }
+            }
+        }
+    }
+
+    private void storeSample(int sample, Position position) {
+        int us = position.getSideToMove();
+        int base = sample * 2 * MAX_FEATURES;
+        int count = 0;
+
+        for (int square = 0; square < 64; square++) {
+            int piece = position.getPiece(square);
+            if (piece == Position.NO_PIECE) continue;
+
+            features[base + count] = Network.featureIndex(us, piece, square);
+            features[base + MAX_FEATURES + count] = Network.featureIndex(1 - us, piece, square);
+            count++;
+        }
+
+        featureCounts[sample] = count;
+        targets[sample] = sigmoid(Evaluation.evaluate(position) / (float) Network.SCALE);
+    }
+
+    /**
+     * @return mean squared error of the epoch
+     */
+    public double trainEpoch() {
+        int[] order = shuffledOrder();
+        double totalError = 0;
+
+        float[] usHidden = new float[hiddenSize];
+        float[] themHidden = new float[hiddenSize];
+
+        for (int start = 0; start < sampleCount; start += BATCH_SIZE) {
+            int end = Math.min(start + BATCH_SIZE, sampleCount);
+
+            for (int i = start; i < end; i++) {
+                int sample = order[i];
+                int base = sample * 2 * MAX_FEATURES;
+                int count = featureCounts[sample];
+
+                accumulate(base, count, usHidden);
+                accumulate(base + MAX_FEATURES, count, themHidden);
+
+                float output = outputBias[0];
+                for (int n = 0; n < hiddenSize; n++) {
+                    output += clip(usHidden[n]) * outputWeights[n] + clip(themHidden[n]) * outputWeights[hiddenSize + n];
+                }
+
+                float prediction = sigmoid(output);
+                float error = prediction - targets[sample];
+                totalError += error * error;
+
+                float outputGradient = 2 * error * prediction * (1 - prediction);
+                outputBiasGradient[0] += outputGradient;
+
+                backpropagate(base, count, usHidden, outputGradient, 0);
+                backpropagate(base + MAX_FEATURES, count, themHidden, outputGradient, hiddenSize);
+            }
+
+            float scale = 1f / (end - start);
+            featureWeightsOptimizer.step(featureWeights, featureWeightsGradient, scale, MAX_FEATURE_WEIGHT);
+            featureBiasesOptimizer.step(featureBiases, featureBiasesGradient, scale, MAX_FEATURE_WEIGHT);
+            outputWeightsOptimizer.step(outputWeights, outputWeightsGradient, scale, Short.MAX_VALUE / (float) Network.QB);
+            outputBiasOptimizer.step(outputBias, outputBiasGradient, scale, Float.MAX_VALUE);
+        }
+
+        return totalError / sampleCount;
+    }
+
+    private void accumulate(int base, int count, float[] hidden) {
+        System.arraycopy(featureBiases, 0, hidden, 0, hiddenSize);
+
+        for (int f = 0; f < count; f++) {
+            int offset = features[base + f] * hiddenSize;
+            for (int n = 0; n < hiddenSize; n++) {
+                hidden[n] += featureWeights[offset + n];
+            }
+        }
+    }
+
+    private void backpropagate(int base, int count, float[] hidden, float outputGradient, int outputOffset) {
+        for (int n = 0; n < hiddenSize; n++) {
+            outputWeightsGradient[outputOffset + n] += outputGradient * clip(hidden[n]);
+
+            // The clipped activation passes no gradient outside (0, 1)
+            if (hidden[n] <= 0 || hidden[n] >= 1) continue;
+
+            float hiddenGradient = outputGradient * outputWeights[outputOffset + n];
+            featureBiasesGradient[n] += hiddenGradient;
+
+            for (int f = 0; f < count; f++) {
+                featureWeightsGradient[features[base + f] * hiddenSize + n] += hiddenGradient;
+            }
+        }
+    }
+
+    private int[] shuffledOrder() {
+        int[] order = new int[sampleCount];
+        for (int i = 0; i < sampleCount; i++) {
+            order[i] = i;
+        }
+
+        for (int i = sampleCount - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int swap = order[i];
+            order[i] = order[j];
+            order[j] = swap;
+        }
+
+        return order;
+    }
+
+    /**
+     * @return the network with the activations scaled to [0, QA] and the output weights by QB
+     */
+    public Network quantize() {
+        short[] quantizedFeatureWeights = quantize(featureWeights, Network.QA);
+        short[] quantizedFeatureBiases = quantize(featureBiases, Network.QA);
+        short[] quantizedOutputWeights = quantize(outputWeights, Network.QB);
+        int quantizedOutputBias = Math.round(outputBias[0] * Network.QA * Network.QB);
+
+        return new Network(hiddenSize, quantizedFeatureWeights, quantizedFeatureBiases, quantizedOutputWeights,
+                quantizedOutputBias);
+    }
+
+    private static short[] quantize(float[] values, int scale) {
+        short[] quantized = new short[values.length];
+        for (int i = 0; i < values.length; i++) {
+            quantized[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(values[i] * scale)));
+        }
+
+        return quantized;
+    }
+
+    private static float clip(float value) {
+        return Math.min(Math.max(value, 0), 1);
+    }
+
+    private static float sigmoid(float value) {
+        return (float) (1 / (1 + Math.exp(-value)));
+    }
+
+    /**
+     * Adam optimizer state for one array of weights
+     */
+    private static class Adam {
+        private final float[] firstMoment;
+        private final float[] secondMoment;
+        private int steps = 0;
+
+        Adam(int size) {
+            firstMoment = new float[size];
+            secondMoment = new float[size];
+        }
+
+        /**
+         * Applies the gradient scaled by scale, then clears it
+         */
+        void step(float[] weights, float[] gradient, float scale, float limit) {
+            steps++;
+            float correction1 = 1 - (float) Math.pow(BETA1, steps);
+            float correction2 = 1 - (float) Math.pow(BETA2, steps);
+
+            for (int i = 0; i < weights.length; i++) {
+                float g = gradient[i] * scale;
+                gradient[i] = 0;
+
+                firstMoment[i] = BETA1 * firstMoment[i] + (1 - BETA1) * g;
+                secondMoment[i] = BETA2 * secondMoment[i] + (1 - BETA2) * g * g;
+
+                float update = LEARNING_RATE * (firstMoment[i] / correction1)
+                        / ((float) Math.sqrt(secondMoment[i] / correction2) + EPSILON);
+
+                weights[i] = Math.max(-limit, Math.min(limit, weights[i] - update));
+            }
+        }
+    }
+
+    public static void main(String[] args) throws IOException {
+        String output = args.length > 0 ? args[0] : "src/main/resources/network/eval.bin";
+        int positions = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+        int epochs = args.length > 2 ? Integer.parseInt(args[2]) : 20;
+        int hiddenSize = args.length > 3 ? Integer.parseInt(args[3]) : 64;
+
+        NetworkTrainer trainer = new NetworkTrainer(positions, hiddenSize);
+
+        long start = System.nanoTime();
+        trainer.generateSamples();
+        System.out.printf("Generated %d positions in %d ms%n", positions, (System.nanoTime() - start) / 1_000_000);
+
+        for (int epoch = 1; epoch <= epochs; epoch++) {
+            double error = trainer.trainEpoch();
+            System.out.printf("Epoch %d: error %.6f%n", epoch, error);
+        }
+
+        Network network = trainer.quantize();
+
+        try (OutputStream out = new FileOutputStream(output)) {
+            network.save(out);
+        }
+        System.out.println("Wrote " + output);
+
+        // How far the quantized network is from what it was trained on
+        for (ReferencePosition reference : Perft.REFERENCE_POSITIONS) {
+            Position position = Fen.parse(reference.getFen());
+            Accumulator accumulator = new Accumulator(network);
+            accumulator.refresh(position);
+
+            System.out.printf("%-16s classical %5d, network %5d%n", reference.getName(),
+                    Evaluation.evaluate(position), accumulator.evaluate(position.getSideToMove()));
+        }
+    }
+}
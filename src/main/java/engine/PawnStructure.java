@@ -0,0 +1,148 @@
+package engine;
+
+import chess.core.Attacks;
+import chess.core.PieceSquareTables;
+import chess.core.Position;
+
+/**
+ * Pawn structure terms: passed, doubled, isolated and backward pawns, which depend on the pawns alone and are
+ * cached by PawnTable, and the pawn shield in front of each king, which also depends on where the king is and is
+ * cheap enough to compute every time. Scores are packed middlegame/endgame values from white's point of view.
+ */
+public final class PawnStructure {
+    final static int DOUBLED = PieceSquareTables.pack(-10, -20);
+    final static int ISOLATED = PieceSquareTables.pack(-10, -15);
+    final static int BACKWARD = PieceSquareTables.pack(-8, -10);
+
+    /** Bonus of a passed pawn by how far it has advanced, rank 2 to rank 7 */
+    final static int[] PASSED = {
+            0,
+            PieceSquareTables.pack(5, 10),
+            PieceSquareTables.pack(10, 20),
+            PieceSquareTables.pack(15, 35),
+            PieceSquareTables.pack(25, 60),
+            PieceSquareTables.pack(40, 100),
+            PieceSquareTables.pack(60, 150),
+            0,
+    };
+
+    /** Bonus of each pawn right in front of a castled king, and of each pawn one rank further */
+    final static int SHIELD_CLOSE = PieceSquareTables.pack(12, 0);
+    final static int SHIELD_FAR = PieceSquareTables.pack(6, 0);
+
+    private final static long FILE_A = 0x0101010101010101L;
+
+    private final static long[] FILES = new long[8];
+    private final static long[] ADJACENT_FILES = new long[8];
+
+    /** Squares in front of a pawn on its own and both adjacent files, by color and square */
+    private final static long[][] PASSED_SPANS = new long[2][64];
+
+    /** Squares beside and behind a pawn on both adjacent files, where a pawn could come to support it */
+    private final static long[][] SUPPORT_SPANS = new long[2][64];
+
+    static {
+        for (int file = 0; file < 8; file++) {
+            FILES[file] = FILE_A << file;
+            ADJACENT_FILES[file] = (file > 0 ? FILE_A << (file - 1) : 0) | (file < 7 ? FILE_A << (file + 1) : 0);
+        }
+
+        for (int square = 0; square < 64; square++) {
+            int file = square & 7;
+            int rank = square >>> 3;
+
+            long ranksAboveWhite = rank == 7 ? 0 : -1L << ((rank + 1) * 8);
+            long ranksBelowBlack = rank == 0 ? 0 : -1L >>> ((8 - rank) * 8);
+            long ranksUpToWhite = -1L >>> ((7 - rank) * 8);
+            long ranksFromBlack = -1L << (rank * 8);
+
+            long span = FILES[file] | ADJACENT_FILES[file];
+
+            PASSED_SPANS[Position.WHITE][square] = span & ranksAboveWhite;
+            PASSED_SPANS[Position.BLACK][square] = span & ranksBelowBlack;
+
+            SUPPORT_SPANS[Position.WHITE][square] = ADJACENT_FILES[file] & ranksUpToWhite;
+            SUPPORT_SPANS[Position.BLACK][square] = ADJACENT_FILES[file] & ranksFromBlack;
+        }
+    }
+
+    private PawnStructure() {}
+
+    /**
+     * @return the terms that depend on the pawns alone
+     */
+    public static int evaluatePawns(Position position) {
+        return evaluatePawns(position, Position.WHITE) - evaluatePawns(position, Position.BLACK);
+    }
+
+    private static int evaluatePawns(Position position, int color) {
+        long ours = position.getPieces(Position.makePiece(color, Position.PAWN));
+        long theirs = position.getPieces(Position.makePiece(1 - color, Position.PAWN));
+        long theirAttacks = Attacks.pawnAttacks(theirs, 1 - color);
+
+        int score = 0;
+
+        for (int file = 0; file < 8; file++) {
+            int count = Long.bitCount(ours & FILES[file]);
+            if (count > 1) score += DOUBLED * (count - 1);
+        }
+
+        for (long pawns = ours; pawns != 0; pawns &= pawns - 1) {
+            int square = Long.numberOfTrailingZeros(pawns);
+            int file = square & 7;
+
+            if ((PASSED_SPANS[color][square] & theirs) == 0 && (forwardFile(color, square) & ours) == 0) {
+                int relativeRank = color == Position.WHITE ? square >>> 3 : 7 - (square >>> 3);
+                score += PASSED[relativeRank];
+            }
+
+            if ((ours & ADJACENT_FILES[file]) == 0) {
+                score += ISOLATED;
+            }
+            else if ((SUPPORT_SPANS[color][square] & ours) == 0) {
+                // Nothing can come up to support it, and moving on walks into an enemy pawn's capture
+                int stop = color == Position.WHITE ? square + 8 : square - 8;
+                if ((theirAttacks & (1L << stop)) != 0) score += BACKWARD;
+            }
+        }
+
+        return score;
+    }
+
+    /**
+     * @return squares in front of the pawn on its own file, a pawn behind another of its color is not passed
+     */
+    private static long forwardFile(int color, int square) {
+        return PASSED_SPANS[color][square] & FILES[square & 7];
+    }
+
+    /**
+     * @return the pawn shield of both kings, only a king that has gone to a wing gets one
+     */
+    public static int evaluateShields(Position position) {
+        return evaluateShield(position, Position.WHITE) - evaluateShield(position, Position.BLACK);
+    }
+
+    private static int evaluateShield(Position position, int color) {
+        int king = position.getKingSquare(color);
+        int file = king & 7;
+
+        if (file >= 3 && file <= 4) return 0;
+
+        long pawns = position.getPieces(Position.makePiece(color, Position.PAWN));
+        long files = FILES[file] | ADJACENT_FILES[file];
+
+        int close = color == Position.WHITE ? king + 8 : king - 8;
+        int far = color == Position.WHITE ? king + 16 : king - 16;
+
+        int score = 0;
+        if (close >= 0 && close < 64) score += SHIELD_CLOSE * Long.bitCount(pawns & files & rankOf(close));
+        if (far >= 0 && far < 64) score += SHIELD_FAR * Long.bitCount(pawns & files & rankOf(far));
+
+        return score;
+    }
+
+    private static long rankOf(int square) {
+        return 0xFFL << (square & ~7);
+    }
+}
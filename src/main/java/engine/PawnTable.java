@@ -0,0 +1,77 @@
+package engine;
+
+import chess.core.Position;
+
+/**
+ * Cache of the pawn-only structure terms keyed by the pawn key of the position. Pawns move rarely compared to the
+ * other pieces, so nearly every evaluation finds its pawn structure already scored.
+ *
+ * A fixed table of parallel primitive arrays, each key has exactly one slot and a new entry always replaces the
+ * old one. Not thread safe, every search thread has its own.
+ */
+public class PawnTable {
+    public final static int DEFAULT_ENTRIES = 1 << 14;
+
+    private final long[] keys;
+    private final int[] scores;
+    private final int mask;
+
+    private long hits = 0;
+    private long misses = 0;
+
+    public PawnTable() {
+        this(DEFAULT_ENTRIES);
+    }
+
+    /**
+     * @param entries number of entries, rounded down to a power of two
+     */
+    public PawnTable(int entries) {
+        int size = Integer.highestOneBit(Math.max(1, entries));
+
+        keys = new long[size];
+        scores = new int[size];
+        mask = size - 1;
+
+        // An empty slot reads as key 0 with score 0, which is exactly the entry of a board without pawns
+    }
+
+    /**
+     * @return packed pawn structure score of the position from white's point of view
+     */
+    public int probe(Position position) {
+        long key = position.getPawnKey();
+        int index = (int) key & mask;
+
+        if (keys[index] == key) {
+            hits++;
+            return scores[index];
+        }
+
+        misses++;
+
+        int score = PawnStructure.evaluatePawns(position);
+        keys[index] = key;
+        scores[index] = score;
+
+        return score;
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    public double getHitRate() {
+        long probes = hits + misses;
+        return probes == 0 ? 0 : (double) hits / probes;
+    }
+
+    public void resetStatistics() {
+        hits = 0;
+        misses = 0;
+    }
+}
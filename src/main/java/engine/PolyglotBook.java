@@ -0,0 +1,215 @@
+package engine;
+
+import chess.core.Fen;
+import chess.core.MoveGenerator;
+import chess.core.MoveList;
+import chess.core.Moves;
+import chess.core.Position;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Opening book in the Polyglot .bin format: 16 byte big-endian entries of key, move, weight and learn data, sorted
+ * by key. The file is mapped read-only rather than read, so opening a book of any size costs nothing and every
+ * process using the same book shares it through the page cache. Probing binary searches the mapping for the first
+ * entry of a key.
+ *
+ * Only reads from the mapping, so one book can be probed from several threads at once.
+ */
+public class PolyglotBook {
+    /** Book opened by openDefault, relative to the working directory */
+    public final static String DEFAULT_PATH = "book.bin";
+
+    private final static int ENTRY_SIZE = 16;
+
+    private final MappedByteBuffer entries;
+    private final int entryCount;
+
+    private final Random random = new Random();
+
+    private PolyglotBook(MappedByteBuffer entries) {
+        this.entries = entries;
+        this.entryCount = entries.capacity() / ENTRY_SIZE;
+    }
+
+    public static PolyglotBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) throw new IOException("Book " + path + " is larger than 2 GB");
+
+            // The mapping stays valid after the channel is closed
+            return new PolyglotBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return the book at DEFAULT_PATH, null if there is none
+     */
+    public static PolyglotBook openDefault() {
+        Path path = Paths.get(DEFAULT_PATH);
+        if (!Files.isRegularFile(path)) return null;
+
+        try {
+            return open(path);
+        }
+        catch (IOException ex) {
+            System.err.println("Could not open book " + path + ": " + ex.getMessage());
+            return null;
+        }
+    }
+
+    public int getEntryCount() {
+        return entryCount;
+    }
+
+    /**
+     * Picks one of the book moves of the position at random, each with a chance proportional to its weight
+     *
+     * @return the packed move, Moves.NONE if the position is not in the book
+     */
+    public int pickMove(Position position) {
+        synchronized (random) {
+            return pickMove(position, random);
+        }
+    }
+
+    public int pickMove(Position position, Random random) {
+        MoveList legalMoves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, legalMoves);
+
+        long key = PolyglotKeys.key(position);
+        int totalWeight = 0;
+
+        for (int entry = findFirst(key); entry < entryCount && keyAt(entry) == key; entry++) {
+            if (toMove(position, legalMoves, moveAt(entry)) != Moves.NONE) totalWeight += weightAt(entry);
+        }
+
+        if (totalWeight == 0) return Moves.NONE;
+
+        int choice = random.nextInt(totalWeight);
+
+        for (int entry = findFirst(key); entry < entryCount && keyAt(entry) == key; entry++) {
+            int move = toMove(position, legalMoves, moveAt(entry));
+            if (move == Moves.NONE) continue;
+
+            choice -= weightAt(entry);
+            if (choice < 0) return move;
+        }
+
+        return Moves.NONE;
+    }
+
+    /**
+     * @return the packed book move with the highest weight, Moves.NONE if the position is not in the book
+     */
+    public int getBestMove(Position position) {
+        MoveList legalMoves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, legalMoves);
+
+        long key = PolyglotKeys.key(position);
+        int bestMove = Moves.NONE;
+        int bestWeight = -1;
+
+        for (int entry = findFirst(key); entry < entryCount && keyAt(entry) == key; entry++) {
+            int move = toMove(position, legalMoves, moveAt(entry));
+
+            if (move != Moves.NONE && weightAt(entry) > bestWeight) {
+                bestMove = move;
+                bestWeight = weightAt(entry);
+            }
+        }
+
+        return bestMove;
+    }
+
+    /**
+     * @return index of the first entry with the key, or of the first entry after it if there is none
+     */
+    private int findFirst(long key) {
+        int low = 0;
+        int high = entryCount;
+
+        // Keys are sorted as unsigned numbers
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+
+            if (Long.compareUnsigned(keyAt(middle), key) < 0) low = middle + 1;
+            else high = middle;
+        }
+
+        return low;
+    }
+
+    private long keyAt(int entry) {
+        return entries.getLong(entry * ENTRY_SIZE);
+    }
+
+    private int moveAt(int entry) {
+        return entries.getShort(entry * ENTRY_SIZE + 8) & 0xFFFF;
+    }
+
+    private int weightAt(int entry) {
+        return entries.getShort(entry * ENTRY_SIZE + 10) & 0xFFFF;
+    }
+
+    /**
+     * Finds the legal move a book move stands for. Book moves hold the from square in bits 6-11, the to square in
+     * bits 0-5 and the promotion piece (knight to queen as 1 to 4) in bits 12-14; castling is written as the king
+     * taking its own rook.
+     *
+     * @return the packed legal move, Moves.NONE if the book move is not legal in the position
+     */
+    private static int toMove(Position position, MoveList legalMoves, int bookMove) {
+        int from = (bookMove >>> 6) & 0x3F;
+        int to = bookMove & 0x3F;
+        int promotion = (bookMove >>> 12) & 7;
+
+        int piece = position.getPiece(from);
+        if (piece == Position.NO_PIECE) return Moves.NONE;
+
+        int ownRook = Position.makePiece(Position.pieceColor(piece), Position.ROOK);
+        if (Position.pieceType(piece) == Position.KING && position.getPiece(to) == ownRook) {
+            to = to > from ? from + 2 : from - 2;
+        }
+
+        for (int i = 0; i < legalMoves.size(); i++) {
+            int move = legalMoves.get(i);
+            if (Moves.from(move) != from || Moves.to(move) != to) continue;
+
+            boolean isPromotion = Moves.kind(move) == Moves.PROMOTION;
+            if (!isPromotion && promotion == 0) return move;
+            if (isPromotion && Moves.promotionType(move) == promotion) return move;
+        }
+
+        return Moves.NONE;
+    }
+
+    /**
+     * Prints the book moves of a position. The keys are checked against the reference positions by PolyglotKeysTest.
+     *
+     * Usage: PolyglotBook [book] [fen]
+     */
+    public static void main(String[] args) throws IOException {
+        PolyglotBook book = open(Paths.get(args.length > 0 ? args[0] : DEFAULT_PATH));
+        Position position = Fen.parse(args.length > 1 ? String.join(" ", Arrays.copyOfRange(args, 1, args.length))
+                : Fen.START_POSITION);
+
+        System.out.println(book.getEntryCount() + " entries");
+
+        long key = PolyglotKeys.key(position);
+        MoveList legalMoves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, legalMoves);
+
+        for (int entry = book.findFirst(key); entry < book.entryCount && book.keyAt(entry) == key; entry++) {
+            int move = toMove(position, legalMoves, book.moveAt(entry));
+            System.out.printf("%-6s weight %d%n", Moves.toUci(move), book.weightAt(entry));
+        }
+    }
+}
@@ -0,0 +1,525 @@
+package engine;
+
+import chess.core.MoveGenerator;
+import chess.core.MoveList;
+import chess.core.Moves;
+import chess.core.Position;
+
+/**
+ * Negamax alpha-beta search with iterative deepening, aspiration windows and principal variation search.
+ * A search runs on the thread that calls it and can be stopped from any other thread, see Engine for running one
+ * in the background.
+ *
+ * Several searches can work on the same root at once (lazy SMP): helpers share the transposition table with a main
+ * search and stop when it does. Everything else, move lists, principal variation and ordering state, belongs to
+ * each search, so the threads drift apart and fill the table with different parts of the tree.
+ */
+public class Search {
+    public final static int MAX_PLY = 128;
+    public final static int MAX_DEPTH = MAX_PLY - 1;
+
+    public final static int INFINITY = 32000;
+    public final static int MATE = 31000;
+
+    /** Scores beyond this are mates, the distance to mate is taken off MATE */
+    public final static int MATE_BOUND = MATE - MAX_PLY;
+
+    /** Half width of the first aspiration window, doubled after every fail */
+    final static int ASPIRATION_WINDOW = 25;
+
+    /** Shallow iterations are cheap and their scores swing too much to aim a window with */
+    final static int ASPIRATION_MIN_DEPTH = 5;
+
+    /** The clock is read once every this many nodes plus one */
+    final static int TIME_CHECK_MASK = 2047;
+
+    private Position position;
+
+    /** Results of earlier searches and other threads, shared */
+    private final TranspositionTable table;
+
+    /** One list per ply so generating the moves of a child does not overwrite those of its parent */
+    private final MoveList[] moveLists = new MoveList[MAX_PLY + 1];
+
+    /** Triangular principal variation table, row ply holds the best line found from that ply onward */
+    private final int[][] pvTable = new int[MAX_PLY + 1][MAX_PLY + 1];
+    private final int[] pvLength = new int[MAX_PLY + 1];
+
+    /** Principal variation of the last completed iteration, searched first in the next one */
+    private int[] previousPv = new int[0];
+
+    /** First layer of the network along the searched line, null to use the classical evaluation */
+    private Accumulator accumulator = null;
+
+    /** Pawn structure cache of this thread */
+    private final PawnTable pawnTable = new PawnTable();
+
+    /** Killers, history and cutoff statistics of this thread */
+    private final MoveOrdering ordering = new MoveOrdering();
+
+    private final MovePicker[] pickers = new MovePicker[MAX_PLY + 1];
+
+    /** Quiet moves searched at each ply without a cutoff, their history is lowered when a later move cuts off */
+    private final MoveList[] triedQuiets = new MoveList[MAX_PLY + 1];
+
+    private long nodes;
+    private int selectiveDepth;
+
+    /**
+     * Hash table probes of this search and how many found an entry, counted here rather than in the shared table so
+     * the threads do not all write the same counters on every probe
+     */
+    private long tableProbes;
+    private long tableHits;
+
+    private long startTime;
+
+    /** Time limit of the running search, it can be set while searching so it is read and written under a lock */
+    private volatile long budgetStart;
+    private volatile long deadline;
+    private volatile boolean hasDeadline;
+
+    /** Deadline set by setTimeLimit before the search it was meant for started, 0 if there is none */
+    private long pendingDeadline = 0;
+    private boolean isSearching = false;
+
+    private volatile boolean stopped;
+
+    /** Search this one helps, null for a main search */
+    private final Search main;
+
+    /** 0 for a main search, numbers the helpers from 1 */
+    private final int threadIndex;
+
+    public Search(TranspositionTable table) {
+        this(table, null, 0);
+    }
+
+    /**
+     * Creates a helper of a main search, it shares the table of the main search and stops with it
+     */
+    Search(Search main, int threadIndex) {
+        this(main.table, main, threadIndex);
+    }
+
+    private Search(TranspositionTable table, Search main, int threadIndex) {
+        this.table = table;
+        this.main = main;
+        this.threadIndex = threadIndex;
+
+        for (int i = 0; i < moveLists.length; i++) {
+            moveLists[i] = new MoveList();
+            pickers[i] = new MovePicker(ordering);
+            triedQuiets[i] = new MoveList();
+        }
+    }
+
+    /**
+     * Searches the position until the depth is reached, the time runs out or stop is called. The position is
+     * searched in place and is back in its original state when this returns.
+     *
+     * @param listener told about every completed iteration, may be null
+     * @return the last completed iteration, with at least a legal move to play if there is one
+     */
+    public SearchInfo search(Position position, SearchLimits limits, SearchListener listener) {
+        this.position = position;
+
+        nodes = 0;
+        selectiveDepth = 0;
+        tableProbes = 0;
+        tableHits = 0;
+        previousPv = new int[0];
+
+        // A main search stopped before it started stays stopped, clearStop is called before starting it instead
+        if (main != null) stopped = false;
+        ordering.newSearch();
+
+        if (accumulator != null) accumulator.refresh(position);
+
+        // Helpers join a search that has already started
+        if (main == null) table.newSearch();
+
+        startTime = System.nanoTime();
+
+        MoveList rootMoves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, rootMoves);
+
+        if (rootMoves.isEmpty()) {
+            int score = position.isInCheck() ? -MATE : 0;
+            return new SearchInfo(0, 0, score, 0, 0, new int[0]);
+        }
+
+        startClock(limits);
+
+        // A move has to be played even if the first iteration is cut short
+        SearchInfo best = new SearchInfo(0, 0, 0, 0, 0, new int[] { rootMoves.get(0) });
+
+        // Every other helper starts one deeper, so the threads are not all finishing the same iteration at once
+        int firstDepth = Math.min(1 + (threadIndex & 1), limits.getDepth());
+
+        try {
+            return iterate(rootMoves, firstDepth, limits.getDepth(), listener, best);
+        }
+        finally {
+            synchronized (this) {
+                isSearching = false;
+            }
+        }
+    }
+
+    private SearchInfo iterate(MoveList rootMoves, int firstDepth, int lastDepth, SearchListener listener,
+            SearchInfo best) {
+        int score = 0;
+
+        for (int depth = firstDepth; depth <= lastDepth; depth++) {
+            int iterationScore = aspirationSearch(depth, score);
+
+            // An unfinished iteration has not looked at every root move, so its result cannot be trusted
+            if (stopped) break;
+
+            score = iterationScore;
+            best = new SearchInfo(depth, selectiveDepth, score, nodes, elapsedMs(), copyPv());
+            previousPv = copyPv();
+
+            if (listener != null) listener.onInfo(best);
+
+            if (hasDeadline) {
+                // Nothing to think about with a single legal move
+                if (rootMoves.size() == 1) break;
+
+                // The next iteration takes longer than all before it, starting it past half the budget wastes the time
+                if (System.nanoTime() - budgetStart > (deadline - budgetStart) / 2) break;
+            }
+
+            // A mate that is found within the depth cannot be improved on
+            if (Math.abs(score) >= MATE_BOUND && MATE - Math.abs(score) <= depth) break;
+        }
+
+        return best;
+    }
+
+    private synchronized void startClock(SearchLimits limits) {
+        isSearching = true;
+
+        if (pendingDeadline != 0) {
+            deadline = pendingDeadline;
+            hasDeadline = true;
+            pendingDeadline = 0;
+        }
+        else {
+            budgetStart = startTime;
+            deadline = startTime + limits.getTimeMs() * 1_000_000;
+            hasDeadline = limits.hasTimeLimit();
+        }
+    }
+
+    /**
+     * Gives the running search a time limit counted from now, or the next one if none is running. Turns a search
+     * without a limit, such as one on the opponent's time, into one that has to move.
+     */
+    public synchronized void setTimeLimit(long timeMs) {
+        long now = System.nanoTime();
+
+        if (isSearching) {
+            budgetStart = now;
+            deadline = now + timeMs * 1_000_000;
+            hasDeadline = true;
+        }
+        else {
+            budgetStart = now;
+            pendingDeadline = now + timeMs * 1_000_000;
+        }
+    }
+
+    /**
+     * Forgets a time limit set for a search that has not started
+     */
+    public synchronized void clearTimeLimit() {
+        pendingDeadline = 0;
+    }
+
+    /**
+     * Stops the running search, which then returns the last completed iteration
+     */
+    public void stop() {
+        stopped = true;
+    }
+
+    public boolean isStopped() {
+        return stopped;
+    }
+
+    /**
+     * Clears a stop left from the last search, must be called before searching again and before helpers are
+     * started so they do not see it and quit at once
+     */
+    public void clearStop() {
+        stopped = false;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTableProbes() {
+        return tableProbes;
+    }
+
+    public long getTableHits() {
+        return tableHits;
+    }
+
+    public MoveOrdering getOrdering() {
+        return ordering;
+    }
+
+    public PawnTable getPawnTable() {
+        return pawnTable;
+    }
+
+    /**
+     * Evaluates positions with a network instead of the classical evaluation. Must not be called while searching.
+     *
+     * @param network network to use, null to go back to the classical evaluation
+     */
+    public void setNetwork(Network network) {
+        accumulator = network == null ? null : new Accumulator(network);
+    }
+
+    /**
+     * Searches with a narrow window around the score of the previous iteration, widening it until the score falls
+     * inside. Most of the time the score barely moves and the narrow window prunes far more.
+     */
+    private int aspirationSearch(int depth, int previousScore) {
+        int alpha = -INFINITY;
+        int beta = INFINITY;
+        int delta = ASPIRATION_WINDOW;
+
+        if (depth >= ASPIRATION_MIN_DEPTH) {
+            alpha = Math.max(previousScore - delta, -INFINITY);
+            beta = Math.min(previousScore + delta, INFINITY);
+        }
+
+        while (true) {
+            int score = negamax(depth, 0, alpha, beta);
+
+            if (stopped) return score;
+
+            if (score <= alpha) alpha = Math.max(score - delta, -INFINITY);
+            else if (score >= beta) beta = Math.min(score + delta, INFINITY);
+            else return score;
+
+            delta *= 2;
+        }
+    }
+
+    private int negamax(int depth, int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+
+        if ((++nodes & TIME_CHECK_MASK) == 0) checkTime();
+        if (stopped) return 0;
+
+        if (ply > 0) {
+            if (position.isFiftyMoveRule() || position.isRepetition()) return 0;
+
+            // No line from here can beat a mate that was already found closer to the root
+            alpha = Math.max(alpha, -MATE + ply);
+            beta = Math.min(beta, MATE - ply - 1);
+            if (alpha >= beta) return alpha;
+        }
+
+        if (ply >= MAX_PLY) return evaluate();
+
+        boolean isPvNode = beta - alpha > 1;
+
+        long entry = table.probe(position.getKey());
+        int tableMove = TranspositionTable.move(entry);
+
+        tableProbes++;
+        if (entry != TranspositionTable.NO_ENTRY) tableHits++;
+
+        // Outside the principal variation a deep enough stored result answers the node outright, on it the full
+        // line is wanted so the search goes on
+        if (entry != TranspositionTable.NO_ENTRY && !isPvNode && TranspositionTable.depth(entry) >= depth) {
+            int score = TranspositionTable.score(entry, ply);
+            int bound = TranspositionTable.bound(entry);
+
+            if (bound == TranspositionTable.EXACT
+                    || (bound == TranspositionTable.LOWER_BOUND && score >= beta)
+                    || (bound == TranspositionTable.UPPER_BOUND && score <= alpha)) {
+                return score;
+            }
+        }
+
+        boolean inCheck = position.isInCheck();
+
+        // Checks are forcing, looking one move further keeps the horizon from hiding what they lead to
+        if (inCheck) depth++;
+
+        if (depth <= 0) return quiescence(ply, alpha, beta);
+
+        MoveList moves = moveLists[ply];
+        MoveGenerator.generateLegalMoves(position, moves);
+
+        if (moves.isEmpty()) return inCheck ? -MATE + ply : 0;
+
+        // The previous principal variation stands in when the table has lost the move
+        int hashMove = tableMove;
+        if (hashMove == Moves.NONE && ply < previousPv.length) hashMove = previousPv[ply];
+
+        MovePicker picker = pickers[ply];
+        picker.init(position, moves, hashMove, ply, false);
+
+        MoveList quiets = triedQuiets[ply];
+        quiets.clear();
+
+        int originalAlpha = alpha;
+        int bestScore = -INFINITY;
+        int bestMove = Moves.NONE;
+
+        int move;
+        for (int i = 0; (move = picker.next()) != Moves.NONE; i++) {
+            boolean isQuiet = !MovePicker.isTactical(position, move);
+
+            makeMove(move);
+
+            int score;
+            if (i == 0) {
+                score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            }
+            else {
+                // The first move is expected to be best, the rest only have to be shown to be worse
+                score = -negamax(depth - 1, ply + 1, -alpha - 1, -alpha);
+
+                if (score > alpha && score < beta) score = -negamax(depth - 1, ply + 1, -beta, -alpha);
+            }
+
+            unmakeMove();
+
+            if (stopped) return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+
+                if (score > alpha) {
+                    alpha = score;
+                    bestMove = move;
+                    updatePv(ply, move);
+
+                    if (alpha >= beta) {
+                        ordering.recordCutoff(ply, position.getSideToMove(), move, isQuiet, quiets, depth, i);
+                        break;
+                    }
+                }
+            }
+
+            if (isQuiet) quiets.add(move);
+        }
+
+        int bound = bestScore >= beta ? TranspositionTable.LOWER_BOUND
+                : bestScore > originalAlpha ? TranspositionTable.EXACT : TranspositionTable.UPPER_BOUND;
+        table.store(position.getKey(), bestMove, bestScore, depth, bound, ply);
+
+        return bestScore;
+    }
+
+    /**
+     * Searches captures and promotions that do not lose material until the position is quiet, so the evaluation is
+     * never taken in the middle of an exchange. When in check every evasion is searched since standing pat is not an
+     * option.
+     */
+    private int quiescence(int ply, int alpha, int beta) {
+        pvLength[ply] = ply;
+
+        if ((++nodes & TIME_CHECK_MASK) == 0) checkTime();
+        if (stopped) return 0;
+
+        selectiveDepth = Math.max(selectiveDepth, ply);
+
+        if (ply >= MAX_PLY) return evaluate();
+
+        boolean inCheck = position.isInCheck();
+        int bestScore = -INFINITY;
+
+        if (!inCheck) {
+            bestScore = evaluate();
+
+            if (bestScore >= beta) return bestScore;
+            if (bestScore > alpha) alpha = bestScore;
+        }
+
+        MoveList moves = moveLists[ply];
+        MoveGenerator.generateLegalMoves(position, moves);
+
+        if (inCheck && moves.isEmpty()) return -MATE + ply;
+
+        // Out of check only captures that do not lose material can change the score enough to matter
+        MovePicker picker = pickers[ply];
+        picker.init(position, moves, Moves.NONE, ply, !inCheck);
+
+        int move;
+        while ((move = picker.next()) != Moves.NONE) {
+            makeMove(move);
+            int score = -quiescence(ply + 1, -beta, -alpha);
+            unmakeMove();
+
+            if (stopped) return 0;
+
+            if (score > bestScore) {
+                bestScore = score;
+
+                if (score > alpha) {
+                    alpha = score;
+                    updatePv(ply, move);
+
+                    if (alpha >= beta) break;
+                }
+            }
+        }
+
+        return bestScore;
+    }
+
+    private void makeMove(int move) {
+        if (accumulator != null) accumulator.push(position, move);
+        position.makeMove(move);
+    }
+
+    private void unmakeMove() {
+        position.unmakeMove();
+        if (accumulator != null) accumulator.pop();
+    }
+
+    private int evaluate() {
+        int result = Bitbases.probe(position);
+        if (result != Bitbases.UNKNOWN) return Evaluation.evaluateKnown(position, result);
+
+        return accumulator != null ? accumulator.evaluate(position.getSideToMove()) : Evaluation.evaluate(position, pawnTable);
+    }
+
+    private void updatePv(int ply, int move) {
+        int[] row = pvTable[ply];
+        int[] child = pvTable[ply + 1];
+
+        row[ply] = move;
+        System.arraycopy(child, ply + 1, row, ply + 1, pvLength[ply + 1] - ply - 1);
+        pvLength[ply] = pvLength[ply + 1];
+    }
+
+    private int[] copyPv() {
+        int[] pv = new int[pvLength[0]];
+        System.arraycopy(pvTable[0], 0, pv, 0, pv.length);
+
+        return pv;
+    }
+
+    private void checkTime() {
+        if (hasDeadline && System.nanoTime() >= deadline) stopped = true;
+
+        if (main != null && main.stopped) stopped = true;
+    }
+
+    private long elapsedMs() {
+        return (System.nanoTime() - startTime) / 1_000_000;
+    }
+}
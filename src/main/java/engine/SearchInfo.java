@@ -0,0 +1,99 @@
+package engine;
+
+import chess.core.Moves;
+
+/**
+ * Result of one completed iteration of a search: depth, score, node count and principal variation
+ */
+public class SearchInfo {
+    private final int depth;
+    private final int selectiveDepth;
+
+    /** Score from the point of view of the side to move at the root */
+    private final int score;
+
+    private final long nodes;
+    private final long timeMs;
+
+    /** Packed moves of the principal variation, the first one is the best move */
+    private final int[] pv;
+
+    public SearchInfo(int depth, int selectiveDepth, int score, long nodes, long timeMs, int[] pv) {
+        this.depth = depth;
+        this.selectiveDepth = selectiveDepth;
+        this.score = score;
+        this.nodes = nodes;
+        this.timeMs = timeMs;
+        this.pv = pv;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public int getSelectiveDepth() {
+        return selectiveDepth;
+    }
+
+    public int getScore() {
+        return score;
+    }
+
+    public long getNodes() {
+        return nodes;
+    }
+
+    public long getTimeMs() {
+        return timeMs;
+    }
+
+    public long getNodesPerSecond() {
+        return nodes * 1000 / Math.max(1, timeMs);
+    }
+
+    public int[] getPv() {
+        return pv.clone();
+    }
+
+    /**
+     * @return the packed best move, Moves.NONE if the root had no legal moves
+     */
+    public int getBestMove() {
+        return pv.length > 0 ? pv[0] : Moves.NONE;
+    }
+
+    public boolean isMate() {
+        return Math.abs(score) >= Search.MATE_BOUND;
+    }
+
+    /**
+     * @return moves until mate, negative if the side to move is getting mated
+     */
+    public int getMateIn() {
+        assert isMate() : "Score is not a mate score";
+
+        return score > 0 ? (Search.MATE - score + 1) / 2 : -(Search.MATE + score) / 2;
+    }
+
+    public String pvToUci() {
+        StringBuilder sb = new StringBuilder();
+
+        for (int move : pv) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(Moves.toUci(move));
+        }
+
+        return sb.toString();
+    }
+
+    /**
+     * @return the info in the format of a UCI info line, without the leading "info"
+     */
+    @Override
+    public String toString() {
+        return "depth " + depth + " seldepth " + selectiveDepth
+                + (isMate() ? " score mate " + getMateIn() : " score cp " + score)
+                + " nodes " + nodes + " nps " + getNodesPerSecond() + " time " + timeMs
+                + " pv " + pvToUci();
+    }
+}
@@ -0,0 +1,83 @@
+package engine;
+
+import timer.ChessTimer;
+
+/**
+ * How deep and how long a search may run
+ */
+public class SearchLimits {
+    /** Moves the remaining time is assumed to be spread over when the clock does not say */
+    final static int MOVES_TO_GO = 30;
+
+    /** Time kept back for the move to reach the board and the clock to be stopped */
+    final static long MOVE_OVERHEAD_MS = 50;
+
+    private final int depth;
+
+    /** Time the search may take, 0 if there is no limit */
+    private final long timeMs;
+
+    public SearchLimits(int depth, long timeMs) {
+        assert depth > 0 : "Depth must be positive";
+        assert timeMs >= 0 : "Time must not be negative";
+
+        this.depth = Math.min(depth, Search.MAX_DEPTH);
+        this.timeMs = timeMs;
+    }
+
+    public static SearchLimits depth(int depth) {
+        return new SearchLimits(depth, 0);
+    }
+
+    /**
+     * @return limits of a search that runs until it is stopped
+     */
+    public static SearchLimits infinite() {
+        return depth(Search.MAX_DEPTH);
+    }
+
+    public static SearchLimits moveTime(long timeMs) {
+        return new SearchLimits(Search.MAX_DEPTH, Math.max(1, timeMs));
+    }
+
+    /**
+     * Budgets a share of the remaining time plus most of the increment, never more than what is left on the clock
+     *
+     * @param timeLeftMs time left on the clock of the side to move
+     * @param incrementMs time added to the clock after each move
+     */
+    public static SearchLimits fromClock(long timeLeftMs, long incrementMs) {
+        return fromClock(timeLeftMs, incrementMs, MOVES_TO_GO);
+    }
+
+    /**
+     * @param movesToGo moves to make before the clock gets more time
+     */
+    public static SearchLimits fromClock(long timeLeftMs, long incrementMs, int movesToGo) {
+        long available = Math.max(1, timeLeftMs - MOVE_OVERHEAD_MS);
+        long budget = timeLeftMs / Math.max(1, movesToGo) + incrementMs * 3 / 4;
+
+        return moveTime(Math.min(budget, available));
+    }
+
+    public static SearchLimits fromTimer(ChessTimer timer) {
+        return fromClock(timer.getTimeLeftms(), timer.getIncrementSeconds() * 1000L);
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    public long getTimeMs() {
+        return timeMs;
+    }
+
+    public boolean hasTimeLimit() {
+        return timeMs > 0;
+    }
+
+    @Override
+    public String toString() {
+        return hasTimeLimit() ? "depth " + depth + " movetime " + timeMs : "depth " + depth;
+    }
+}
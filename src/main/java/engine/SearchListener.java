@@ -0,0 +1,8 @@
+package engine;
+
+/**
+ * Receives the result of every completed iteration of a search, called on the search thread
+ */
+public interface SearchListener {
+    void onInfo(SearchInfo info);
+}
@@ -0,0 +1,62 @@
+package engine;
+
+import chess.core.Fen;
+import chess.core.Perft;
+import chess.core.Perft.ReferencePosition;
+
+import java.util.ArrayList;
+
+/**
+ * Measures how much faster the engine reaches a fixed depth with more threads. Every thread count searches the
+ * perft reference positions from an empty hash table, and the total time is compared with that of one thread.
+ *
+ * Usage: SmpBenchmark [depth] [max threads]
+ */
+public class SmpBenchmark {
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 9;
+        int maxThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+
+        System.out.println("Depth " + depth + ", " + Runtime.getRuntime().availableProcessors() + " cores");
+        System.out.printf("%8s %10s %8s %14s%n", "threads", "time ms", "speedup", "nps");
+
+        long baseTime = 0;
+
+        for (int threads : threadCounts(maxThreads)) {
+            Engine engine = new Engine(threads);
+            long time = 0;
+            long nodes = 0;
+
+            for (ReferencePosition reference : Perft.REFERENCE_POSITIONS) {
+                engine.clearHash();
+
+                long start = System.nanoTime();
+                SearchInfo result = engine.think(Fen.parse(reference.getFen()), SearchLimits.depth(depth), null).join();
+
+                time += System.nanoTime() - start;
+                nodes += result.getNodes();
+            }
+
+            engine.shutdown();
+
+            if (threads == 1) baseTime = time;
+
+            System.out.printf("%8d %10d %8.2f %14d%n", threads, time / 1_000_000, (double) baseTime / time,
+                    nodes * 1_000_000_000 / Math.max(1, time));
+        }
+    }
+
+    /**
+     * @return 1, 2, 4, ... up to and always including maxThreads
+     */
+    private static ArrayList<Integer> threadCounts(int maxThreads) {
+        ArrayList<Integer> counts = new ArrayList<>();
+
+        for (int threads = 1; threads < maxThreads; threads *= 2) {
+            counts.add(threads);
+        }
+        counts.add(maxThreads);
+
+        return counts;
+    }
+}
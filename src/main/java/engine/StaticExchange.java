@@ -0,0 +1,95 @@
+package engine;
+
+import chess.core.Attacks;
+import chess.core.Moves;
+import chess.core.Position;
+
+/**
+ * Static exchange evaluation: the material won or lost by a capture once both sides have recaptured on its square
+ * with their least valuable pieces for as long as it pays, without playing any of the moves
+ */
+public final class StaticExchange {
+    private StaticExchange() {}
+
+    /**
+     * Walks the exchange against a threshold instead of building the whole list of gains, so it allocates nothing
+     * and stops as soon as the answer is known. Pins are not taken into account.
+     *
+     * @return whether the exchange started by the move wins at least threshold centipawns
+     */
+    public static boolean isAtLeast(Position position, int move, int threshold) {
+        // Castling never captures and the extra pawn of an en passant or promotion is not worth the special cases
+        if (Moves.kind(move) != Moves.NORMAL) return threshold <= 0;
+
+        int from = Moves.from(move);
+        int to = Moves.to(move);
+
+        int captured = position.getPiece(to);
+        int swap = (captured == Position.NO_PIECE ? 0 : value(captured)) - threshold;
+        if (swap < 0) return false;
+
+        // Even losing the moving piece for nothing keeps the threshold
+        swap = value(position.getPiece(from)) - swap;
+        if (swap <= 0) return true;
+
+        long occupied = position.getOccupied() ^ (1L << from) ^ (1L << to);
+        long attackers = position.attackersTo(to, occupied);
+
+        long diagonalSliders = position.getPieces(Position.makePiece(Position.WHITE, Position.BISHOP))
+                | position.getPieces(Position.makePiece(Position.BLACK, Position.BISHOP))
+                | position.getPieces(Position.makePiece(Position.WHITE, Position.QUEEN))
+                | position.getPieces(Position.makePiece(Position.BLACK, Position.QUEEN));
+        long straightSliders = position.getPieces(Position.makePiece(Position.WHITE, Position.ROOK))
+                | position.getPieces(Position.makePiece(Position.BLACK, Position.ROOK))
+                | position.getPieces(Position.makePiece(Position.WHITE, Position.QUEEN))
+                | position.getPieces(Position.makePiece(Position.BLACK, Position.QUEEN));
+
+        int side = Position.pieceColor(position.getPiece(from));
+        int result = 1;
+
+        while (true) {
+            side = 1 - side;
+            attackers &= occupied;
+
+            long sideAttackers = attackers & position.getOccupancy(side);
+            if (sideAttackers == 0) break;
+
+            result ^= 1;
+
+            int type = leastValuableType(position, sideAttackers, side);
+
+            if (type == Position.KING) {
+                // The king can only take last, if the other side still attacks the square the capture is illegal
+                return (attackers & ~position.getOccupancy(side)) != 0 ? (result ^ 1) == 1 : result == 1;
+            }
+
+            swap = Evaluation.PIECE_VALUES[type] - swap;
+            if (swap < result) break;
+
+            long attacker = sideAttackers & position.getPieces(Position.makePiece(side, type));
+            occupied ^= attacker & -attacker;
+
+            // Taking a piece off the square's lines can uncover a slider behind it
+            if (type == Position.PAWN || type == Position.BISHOP || type == Position.QUEEN) {
+                attackers |= Attacks.bishopAttacks(to, occupied) & diagonalSliders;
+            }
+            if (type == Position.ROOK || type == Position.QUEEN) {
+                attackers |= Attacks.rookAttacks(to, occupied) & straightSliders;
+            }
+        }
+
+        return result == 1;
+    }
+
+    private static int leastValuableType(Position position, long attackers, int side) {
+        for (int type = Position.PAWN; type < Position.KING; type++) {
+            if ((attackers & position.getPieces(Position.makePiece(side, type))) != 0) return type;
+        }
+
+        return Position.KING;
+    }
+
+    private static int value(int piece) {
+        return Evaluation.PIECE_VALUES[Position.pieceType(piece)];
+    }
+}
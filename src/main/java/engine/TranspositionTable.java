@@ -0,0 +1,173 @@
+package engine;
+
+import chess.core.Moves;
+
+import java.util.Arrays;
+
+/**
+ * Hash table of search results keyed by the Zobrist key of the position, shared by every search thread without
+ * locking.
+ *
+ * Each entry takes two longs of one flat long[]: the data word, and the key XORed with the data word. Two threads
+ * writing the same slot at once can leave the words of different entries side by side, but then the XOR no longer
+ * gives back the key being probed and the torn entry reads as a miss.
+ *
+ * Data word layout:
+ * bits 0-15: move, bits 16-31: score, bits 32-39: depth, bits 40-41: bound, bits 42-47: age
+ */
+public class TranspositionTable {
+    public final static int DEFAULT_SIZE_MB = 16;
+
+    /** Bound of the stored score, 0 marks an empty slot */
+    public final static int UPPER_BOUND = 1;
+    public final static int LOWER_BOUND = 2;
+    public final static int EXACT = 3;
+
+    /** Returned by probe when the key is not in the table */
+    public final static long NO_ENTRY = 0;
+
+    private final static int AGE_MASK = 0x3F;
+
+    /** Bytes taken by one entry */
+    private final static int ENTRY_SIZE = 16;
+
+    private long[] table;
+
+    /** Number of entries minus one, the number of entries is a power of two */
+    private int mask;
+
+    /** Age of the current search, entries of earlier searches are the first to be replaced */
+    private int age = 0;
+
+    public TranspositionTable() {
+        this(DEFAULT_SIZE_MB);
+    }
+
+    public TranspositionTable(int sizeMb) {
+        resize(sizeMb);
+    }
+
+    /**
+     * Reallocates the table to the largest power of two entries that fits in the size, losing all entries
+     */
+    public void resize(int sizeMb) {
+        assert sizeMb > 0 : "Table size must be positive";
+
+        long entries = Long.highestOneBit(Math.max(1, (long) sizeMb) * 1024 * 1024 / ENTRY_SIZE);
+
+        // A Java array holds at most 2^31 - 1 longs
+        entries = Math.min(entries, 1L << 29);
+
+        table = new long[(int) entries * 2];
+        mask = (int) entries - 1;
+        age = 0;
+    }
+
+    public void clear() {
+        Arrays.fill(table, 0);
+        age = 0;
+    }
+
+    /**
+     * Called before every search, so entries left from earlier ones can be told apart and replaced first
+     */
+    public void newSearch() {
+        age = (age + 1) & AGE_MASK;
+    }
+
+    /**
+     * @return the data word stored for the key, NO_ENTRY if there is none
+     */
+    public long probe(long key) {
+        int index = index(key);
+        long data = table[index + 1];
+
+        if ((table[index] ^ data) != key || data == NO_ENTRY) return NO_ENTRY;
+
+        return data;
+    }
+
+    /**
+     * Stores a search result, if the slot does not hold something more valuable. A result for the same position,
+     * from an earlier search, or searched at least as deep always replaces what is there.
+     *
+     * @param ply distance from the root, mate scores are stored relative to the position instead of the root
+     */
+    public void store(long key, int move, int score, int depth, int bound, int ply) {
+        int index = index(key);
+        long oldData = table[index + 1];
+        boolean isSameKey = (table[index] ^ oldData) == key;
+
+        if (oldData != NO_ENTRY && !isSameKey && age(oldData) == age && depth < depth(oldData)) return;
+
+        // Keep the old best move if the new result has none, it is still the best guess for ordering
+        if (move == Moves.NONE && isSameKey) move = move(oldData);
+
+        long data = (move & 0xFFFFL)
+                | ((scoreToTable(score, ply) & 0xFFFFL) << 16)
+                | ((long) Math.max(0, Math.min(depth, 255)) << 32)
+                | ((long) bound << 40)
+                | ((long) age << 42);
+
+        table[index] = key ^ data;
+        table[index + 1] = data;
+    }
+
+    public static int move(long data) {
+        return (int) (data & 0xFFFF);
+    }
+
+    /**
+     * @param ply distance from the root of the probing search
+     */
+    public static int score(long data, int ply) {
+        int score = (short) (data >>> 16);
+
+        if (score >= Search.MATE_BOUND) return score - ply;
+        if (score <= -Search.MATE_BOUND) return score + ply;
+
+        return score;
+    }
+
+    public static int depth(long data) {
+        return (int) ((data >>> 32) & 0xFF);
+    }
+
+    public static int bound(long data) {
+        return (int) ((data >>> 40) & 0x3);
+    }
+
+    private static int age(long data) {
+        return (int) ((data >>> 42) & AGE_MASK);
+    }
+
+    private static int scoreToTable(int score, int ply) {
+        if (score >= Search.MATE_BOUND) return score + ply;
+        if (score <= -Search.MATE_BOUND) return score - ply;
+
+        return score;
+    }
+
+    private int index(long key) {
+        return ((int) key & mask) << 1;
+    }
+
+    /**
+     * @return permill of sampled entries written by the current search
+     */
+    public int hashfull() {
+        int sample = Math.min(1000, mask + 1);
+        int used = 0;
+
+        for (int i = 0; i < sample; i++) {
+            long data = table[i * 2 + 1];
+            if (data != NO_ENTRY && age(data) == age) used++;
+        }
+
+        return used * 1000 / sample;
+    }
+
+    public int getSizeMb() {
+        return (int) ((long) (mask + 1) * ENTRY_SIZE / (1024 * 1024));
+    }
+}
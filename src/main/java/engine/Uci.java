@@ -0,0 +1,374 @@
+package engine;
+
+import chess.core.Fen;
+import chess.core.MoveGenerator;
+import chess.core.MoveList;
+import chess.core.Moves;
+import chess.core.Position;
+import exceptions.InvalidFenException;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+
+/**
+ * Universal Chess Interface front end of an Engine: reads commands line by line and answers on the output.
+ * Searches run on the engine thread, so info lines are written while commands are still being read and stop or
+ * ponderhit act on the running search.
+ *
+ * A search started with go infinite or go ponder never reports its move on its own: if it runs out of depth the
+ * move is kept until stop (or ponderhit, for pondering) asks for it, as the protocol requires.
+ */
+public class Uci {
+    public final static String NAME = "Multiplayer Chess";
+    public final static String AUTHOR = "nilese1";
+
+    public final static int DEFAULT_HASH_MB = 16;
+    public final static int MAX_HASH_MB = 4096;
+
+    private final BufferedReader in;
+    private final PrintStream out;
+
+    private final Engine engine = new Engine();
+
+    private final Position position = Fen.parse(Fen.START_POSITION);
+
+    /** Lock for output and the search state below, written from the reading thread and the engine thread */
+    private final Object lock = new Object();
+
+    private boolean isSearching = false;
+
+    /** Whether the running search has to wait for stop or ponderhit before reporting its move */
+    private boolean isWaitingForCommand = false;
+
+    /** Limits a ponder search gets on ponderhit */
+    private SearchLimits ponderLimits = null;
+
+    /** Result of a search that finished while waiting for a command */
+    private SearchInfo heldResult = null;
+
+    public Uci(InputStream in, PrintStream out) {
+        this.in = new BufferedReader(new InputStreamReader(in));
+        this.out = out;
+    }
+
+    /**
+     * Handles commands until quit or the end of the input
+     */
+    public void run() throws IOException {
+        String line;
+        while ((line = in.readLine()) != null) {
+            if (!handle(line.trim())) break;
+        }
+
+        waitForSearch();
+        engine.shutdown();
+    }
+
+    /**
+     * @return false once the command is quit
+     */
+    boolean handle(String line) {
+        String[] tokens = line.split("\\s+");
+
+        switch (tokens[0]) {
+            case "uci":
+                print("id name " + NAME);
+                print("id author " + AUTHOR);
+                print("option name Hash type spin default " + DEFAULT_HASH_MB + " min 1 max " + MAX_HASH_MB);
+                print("option name Threads type spin default 1 min 1 max " + Engine.MAX_THREADS);
+                print("option name Ponder type check default false");
+                print("uciok");
+                break;
+            case "isready":
+                print("readyok");
+                break;
+            case "ucinewgame":
+                waitForSearch();
+                engine.clearHash();
+                break;
+            case "setoption":
+                setOption(tokens);
+                break;
+            case "position":
+                waitForSearch();
+                setPosition(tokens);
+                break;
+            case "go":
+                waitForSearch();
+                go(tokens);
+                break;
+            case "stop":
+                stop();
+                break;
+            case "ponderhit":
+                ponderhit();
+                break;
+            case "d":
+                print(position.toFen());
+                break;
+            case "quit":
+                return false;
+            default:
+                // Unknown commands are ignored, as the protocol asks
+                if (!line.isEmpty()) print("info string unknown command " + line);
+        }
+
+        return true;
+    }
+
+    private void setOption(String[] tokens) {
+        String name = valueOf(tokens, "name", "value");
+        String value = valueOf(tokens, "value", null);
+        if (name == null || value == null) return;
+
+        waitForSearch();
+
+        try {
+            if (name.equalsIgnoreCase("Hash")) {
+                engine.setHashSize(clamp(Integer.parseInt(value), 1, MAX_HASH_MB));
+            }
+            else if (name.equalsIgnoreCase("Threads")) {
+                engine.setThreads(clamp(Integer.parseInt(value), 1, Engine.MAX_THREADS));
+            }
+        }
+        catch (NumberFormatException ex) {
+            print("info string " + value + " is not a number");
+        }
+    }
+
+    /**
+     * @return the words after the key up to the end key or the end of the line, null if the key is missing
+     */
+    private static String valueOf(String[] tokens, String key, String endKey) {
+        StringBuilder sb = null;
+
+        for (String token : tokens) {
+            if (sb == null) {
+                if (token.equals(key)) sb = new StringBuilder();
+            }
+            else if (token.equals(endKey)) {
+                break;
+            }
+            else {
+                if (sb.length() > 0) sb.append(' ');
+                sb.append(token);
+            }
+        }
+
+        return sb == null ? null : sb.toString();
+    }
+
+    private void setPosition(String[] tokens) {
+        int movesAt = tokens.length;
+        for (int i = 1; i < tokens.length; i++) {
+            if (tokens[i].equals("moves")) {
+                movesAt = i;
+                break;
+            }
+        }
+
+        try {
+            if (tokens.length > 1 && tokens[1].equals("fen")) {
+                StringBuilder fen = new StringBuilder();
+                for (int i = 2; i < movesAt; i++) {
+                    fen.append(tokens[i]).append(' ');
+                }
+
+                Fen.parse(fen, position);
+            }
+            else {
+                Fen.parse(Fen.START_POSITION, position);
+            }
+        }
+        catch (InvalidFenException ex) {
+            print("info string " + ex.getMessage());
+            return;
+        }
+
+        MoveList moves = new MoveList();
+
+        for (int i = movesAt + 1; i < tokens.length; i++) {
+            MoveGenerator.generateLegalMoves(position, moves);
+            int move = findMove(moves, tokens[i]);
+
+            if (move == Moves.NONE) {
+                print("info string illegal move " + tokens[i]);
+                return;
+            }
+
+            position.makeMove(move);
+        }
+    }
+
+    private static int findMove(MoveList moves, String uci) {
+        for (int i = 0; i < moves.size(); i++) {
+            if (Moves.toUci(moves.get(i)).equals(uci)) return moves.get(i);
+        }
+
+        return Moves.NONE;
+    }
+
+    private void go(String[] tokens) {
+        long[] clock = new long[2];
+        long[] increment = new long[2];
+        int movesToGo = 0;
+        long moveTime = 0;
+        int depth = 0;
+        boolean isInfinite = false;
+        boolean isPonder = false;
+
+        for (int i = 1; i < tokens.length; i++) {
+            String next = i + 1 < tokens.length ? tokens[i + 1] : "0";
+
+            try {
+                switch (tokens[i]) {
+                    case "wtime": clock[Position.WHITE] = Long.parseLong(next); i++; break;
+                    case "btime": clock[Position.BLACK] = Long.parseLong(next); i++; break;
+                    case "winc": increment[Position.WHITE] = Long.parseLong(next); i++; break;
+                    case "binc": increment[Position.BLACK] = Long.parseLong(next); i++; break;
+                    case "movestogo": movesToGo = Integer.parseInt(next); i++; break;
+                    case "movetime": moveTime = Long.parseLong(next); i++; break;
+                    case "depth": depth = Integer.parseInt(next); i++; break;
+                    case "infinite": isInfinite = true; break;
+                    case "ponder": isPonder = true; break;
+                    default: break;
+                }
+            }
+            catch (NumberFormatException ex) {
+                print("info string " + next + " is not a number");
+                return;
+            }
+        }
+
+        int us = position.getSideToMove();
+        SearchLimits limits;
+
+        if (moveTime > 0) {
+            limits = new SearchLimits(depth > 0 ? depth : Search.MAX_DEPTH, moveTime);
+        }
+        else if (clock[us] > 0) {
+            SearchLimits clockLimits = movesToGo > 0 ? SearchLimits.fromClock(clock[us], increment[us], movesToGo)
+                    : SearchLimits.fromClock(clock[us], increment[us]);
+            limits = new SearchLimits(depth > 0 ? depth : Search.MAX_DEPTH, clockLimits.getTimeMs());
+        }
+        else if (depth > 0) {
+            limits = SearchLimits.depth(depth);
+        }
+        else {
+            limits = SearchLimits.infinite();
+            isInfinite = true;
+        }
+
+        synchronized (lock) {
+            isSearching = true;
+            isWaitingForCommand = isInfinite || isPonder;
+            ponderLimits = isPonder ? limits : null;
+            heldResult = null;
+        }
+
+        // A ponder search runs without a limit until ponderhit hands it the one it was given
+        SearchLimits searchLimits = isPonder ? SearchLimits.depth(limits.getDepth()) : limits;
+
+        engine.think(position, searchLimits, info -> print("info " + info))
+                .whenComplete((result, ex) -> {
+                    if (ex != null) {
+                        print("info string search failed: " + ex);
+                        result = new SearchInfo(0, 0, 0, 0, 0, new int[0]);
+                    }
+
+                    finish(result);
+                });
+    }
+
+    private void finish(SearchInfo result) {
+        synchronized (lock) {
+            if (isWaitingForCommand) {
+                heldResult = result;
+                return;
+            }
+
+            reportBestMove(result);
+        }
+    }
+
+    private void stop() {
+        synchronized (lock) {
+            if (!isSearching) return;
+
+            isWaitingForCommand = false;
+
+            if (heldResult != null) {
+                reportBestMove(heldResult);
+                return;
+            }
+        }
+
+        engine.stop();
+    }
+
+    private void ponderhit() {
+        synchronized (lock) {
+            if (!isSearching || ponderLimits == null) return;
+
+            isWaitingForCommand = false;
+            SearchLimits limits = ponderLimits;
+            ponderLimits = null;
+
+            if (heldResult != null) {
+                reportBestMove(heldResult);
+                return;
+            }
+
+            // Without a time limit the search was given a depth, and it keeps going until that depth
+            if (limits.hasTimeLimit()) engine.setTimeLimit(limits.getTimeMs());
+        }
+    }
+
+    /**
+     * Must be called holding the lock
+     */
+    private void reportBestMove(SearchInfo result) {
+        int[] pv = result.getPv();
+        String bestMove = "bestmove " + Moves.toUci(result.getBestMove());
+
+        print(pv.length > 1 ? bestMove + " ponder " + Moves.toUci(pv[1]) : bestMove);
+
+        isSearching = false;
+        heldResult = null;
+        lock.notifyAll();
+    }
+
+    /**
+     * Commands that change the position or the engine wait for the search to report its move first. A search
+     * still waiting for stop gets one, the protocol does not allow these commands while searching anyway.
+     */
+    private void waitForSearch() {
+        stop();
+
+        synchronized (lock) {
+            while (isSearching) {
+                try {
+                    lock.wait();
+                }
+                catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    private void print(String line) {
+        synchronized (lock) {
+            out.println(line);
+            out.flush();
+        }
+    }
+
+    private static int clamp(int value, int min, int max) {
+        return Math.max(min, Math.min(max, value));
+    }
+}
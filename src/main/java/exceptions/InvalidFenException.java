@@ -0,0 +1,7 @@
+package exceptions;
+
+public class InvalidFenException extends IllegalArgumentException {
+    public InvalidFenException(String message) {
+        super(message);
+    }
+}
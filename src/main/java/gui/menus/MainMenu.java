@@ -27,20 +27,24 @@ public class MainMenu extends Menu {
         Button btSolo = new Button("Pass and Play");
         btSolo.getStyleClass().add("button");
 
+        Button btComputer = new Button("Play vs Computer");
+        btComputer.getStyleClass().add("button");
+
         Button btMultiplayer = new Button("Online Multiplayer");
         btMultiplayer.getStyleClass().add("button");
 
-        addButtonListeners(btSolo, btMultiplayer);
+        addButtonListeners(btSolo, btComputer, btMultiplayer);
 
         root.setOrientation(Orientation.VERTICAL);
         root.setAlignment(Pos.CENTER);
         root.setVgap(15);
 
-        root.getChildren().addAll(tTitle, btSolo, btMultiplayer);
+        root.getChildren().addAll(tTitle, btSolo, btComputer, btMultiplayer);
     }
 
-    public void addButtonListeners(Button btSolo, Button btMultiplayer) {
+    public void addButtonListeners(Button btSolo, Button btComputer, Button btMultiplayer) {
         btSolo.setOnMouseClicked(e -> super.changeMenu(new RulesMenu(parent, clientThread)));
+        btComputer.setOnMouseClicked(e -> super.changeMenu(new RulesMenu(parent, true)));
         btMultiplayer.setOnMouseClicked(e -> super.changeMenu(new MultiplayerMenu(parent)));
     }
 }
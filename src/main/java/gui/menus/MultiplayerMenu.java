@@ -44,15 +44,29 @@ public class MultiplayerMenu extends Menu {
     }
 
     private void hostGame() {
-        Thread serverThread = new ChessServer(1444);
-        serverThread.start();
-        joinGame(true);
+        String username = promptUsername();
+        String address = prompt("Server address, or nothing to host the server here");
+
+        if (address.isEmpty()) {
+            Thread serverThread = new ChessServer(ChessServer.DEFAULT_PORT);
+            serverThread.start();
+        }
+
+        joinGame(username, address, prompt("Name of the new room"), true);
     }
 
     private void joinGame(boolean isHost) {
+        String username = promptUsername();
+        String address = prompt("Server address, or nothing for this computer");
+
+        joinGame(username, address, prompt("Name of the room to join"), isHost);
+    }
+
+    private void joinGame(String username, String address, String roomID, boolean isHost) {
         try {
-            String username = promptUsername();
-            ChessClient clientThread = new ChessClient(InetAddress.getLocalHost(), 1444, username, isHost);
+            InetAddress serverIP = address.isEmpty() ? InetAddress.getLocalHost()
+                    : InetAddress.getByName(host(address));
+            ChessClient clientThread = new ChessClient(serverIP, port(address), username, isHost, roomID);
 
             // Only host can see rules menu
             if (isHost)
@@ -62,15 +76,35 @@ public class MultiplayerMenu extends Menu {
 
             clientThread.start();
         }
-        catch (IOException e) {
+        catch (IOException | NumberFormatException e) {
             System.err.println(e.getMessage());
         }
     }
 
+    /**
+     * @param address host name or IP address, optionally followed by a colon and the port
+     */
+    private static String host(String address) {
+        int colon = address.lastIndexOf(':');
+        return colon < 0 ? address : address.substring(0, colon);
+    }
+
+    private static int port(String address) {
+        int colon = address.lastIndexOf(':');
+        return colon < 0 ? ChessServer.DEFAULT_PORT : Integer.parseInt(address.substring(colon + 1));
+    }
+
     private String promptUsername() {
         PromptWindow promptWindow = new PromptWindow("What is your username?");
         promptWindow.run();
         
         return promptWindow.getUsername();
     }
+
+    private String prompt(String question) {
+        PromptWindow promptWindow = new PromptWindow(question);
+        promptWindow.run();
+
+        return promptWindow.getInput();
+    }
 }
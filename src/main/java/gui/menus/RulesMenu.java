@@ -12,6 +12,7 @@ import javafx.scene.image.ImageView;
 import javafx.scene.text.Text;
 import net.ChessClient;
 import chess.ChessGame;
+import timer.ChessTimer;
 
 public class RulesMenu extends Menu {
 
@@ -22,6 +23,8 @@ public class RulesMenu extends Menu {
 
     private ChessClient clientThread;
 
+    private boolean isAgainstComputer = false;
+
     public RulesMenu(Node parent) {
         super(parent);
 
@@ -41,6 +44,11 @@ public class RulesMenu extends Menu {
         this.clientThread = clientThread;
     }
 
+    public RulesMenu(Node parent, boolean isAgainstComputer) {
+        this(parent);
+        this.isAgainstComputer = isAgainstComputer;
+    }
+
     @Override
     public void run() {
         Text tTitle = new Text("Rules");
@@ -108,6 +116,11 @@ public class RulesMenu extends Menu {
             clientThread.setClientColor(hostColor.equals("white") ? 'w' : 'b');
             super.changeMenu(new GameMenu(parent, clientThread.getGame()));
         }
+        else if (isAgainstComputer) {
+            ChessGame game = new ChessGame(hostColor.equals("white") ? 'w' : 'b');
+            game.playAgainstComputer(new ChessTimer());
+            super.changeMenu(new GameMenu(parent, game));
+        }
         else {
             super.changeMenu(new GameMenu(parent, new ChessGame()));
         }
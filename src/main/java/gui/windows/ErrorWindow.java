@@ -1,4 +1,38 @@
 package gui.windows;
 
-public class ErrorWindow {
+import javafx.scene.control.Button;
+import javafx.scene.layout.FlowPane;
+import javafx.scene.layout.Pane;
+import javafx.scene.text.Text;
+import javafx.stage.Stage;
+
+/**
+ * Tells the player something went wrong, run on the JavaFX thread
+ */
+public class ErrorWindow extends Window {
+    private String message;
+
+    public ErrorWindow(String message) {
+        this.message = message;
+    }
+
+    public Pane loadPane() {
+        FlowPane root = new FlowPane();
+
+        Text txtMessage = new Text(message);
+        txtMessage.getStyleClass().add("prompt-text");
+
+        Button btClose = new Button("OK");
+        btClose.getStyleClass().add("button");
+
+        btClose.setOnAction(e -> super.close());
+
+        root.getChildren().addAll(txtMessage, btClose);
+
+        return root;
+    }
+
+    public void setTitle(Stage stage) {
+        stage.setTitle("Error");
+    }
 }
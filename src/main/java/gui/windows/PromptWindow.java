@@ -11,6 +11,9 @@ public class PromptWindow extends Window {
     private String prompt;
     private String username = "null";
 
+    /** Text as typed, empty if nothing was */
+    private String input = "";
+
     public PromptWindow(String prompt) {
         this.prompt = prompt;
     }
@@ -35,6 +38,8 @@ public class PromptWindow extends Window {
     }
 
     public void updateUsername(TextField tf) {
+        this.input = tf.getText().trim();
+
         String newUsername = tf.getText();
 
         if (newUsername.isEmpty())
@@ -50,4 +55,6 @@ public class PromptWindow extends Window {
     }
 
     public String getUsername() { return username; }
+
+    public String getInput() { return input; }
 }
@@ -1,16 +1,23 @@
 package net;
 
+import net.packets.CreateRoomPacket;
+import net.packets.ErrorPacket;
+import net.packets.JoinRoomPacket;
 import net.packets.LoginPacket;
 import net.packets.MovePacket;
 import net.packets.Packet;
+import net.packets.PacketCodec;
+import net.packets.RoomPacket;
 
 import java.io.*;
 import java.net.InetAddress;
 import java.net.Socket;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.locks.Lock;
 
 import chess.ChessGame;
-import chess.Move;
+import chess.core.Move;
+import gui.windows.ErrorWindow;
 import javafx.application.Platform;
 
 public class ChessClient extends Thread {
@@ -21,42 +28,47 @@ public class ChessClient extends Thread {
 
     private Socket client;
 
-    private ObjectInputStream input;
-    private ObjectOutputStream output;
+    private InputStream input;
+    private OutputStream output;
 
     private String username;
     private boolean isHost;
 
-    public ChessClient(InetAddress serverIP, int serverPort, String username, boolean isHost) throws IOException {
+    /** Room of the game, the host creates it and the other player joins it */
+    private String roomID;
+
+    /** Moves sent that the server has neither sent back nor refused yet, the board has already played them */
+    private final AtomicInteger unconfirmedMoves = new AtomicInteger();
+
+    public ChessClient(InetAddress serverIP, int serverPort, String username, boolean isHost, String roomID)
+            throws IOException {
         this.serverIP = serverIP;
         this.serverPort = serverPort;
 
         this.username = username;
         this.isHost = isHost;
+        this.roomID = roomID;
         this.game = new ChessGame();
         game.setChessClient(this);
 
-        // If client is not host, opponent is already connected
-        if (!isHost)
-            game.connectOpponent();
-
         this.client = new Socket(serverIP.getHostName(), serverPort);
 
         System.out.println("Client: Connected to server at " + serverIP);
 
-        this.output = new ObjectOutputStream(client.getOutputStream());
-        this.output.flush();
+        // Moves are sent as they are played, waiting to fill a segment only delays them
+        client.setTcpNoDelay(true);
 
-        this.input = new ObjectInputStream(client.getInputStream());
+        this.output = new BufferedOutputStream(client.getOutputStream());
+        this.input = new BufferedInputStream(client.getInputStream());
     }
 
     @Override
     public void run() {
         try {
-            loginToServer();
+            enterRoom();
 
             while (true) {
-                Packet data = (Packet) input.readObject();
+                Packet data = PacketCodec.read(input);
                 handlePacket(data);
             }
         }
@@ -64,9 +76,6 @@ public class ChessClient extends Thread {
             // make an error pane later
             System.err.println("Client Error: " + e.getMessage());
         }
-        catch (ClassNotFoundException e) {
-            throw new RuntimeException(e);
-        }
         finally {
             try {
                 this.close();
@@ -77,26 +86,104 @@ public class ChessClient extends Thread {
         }
     }
 
+    /**
+     * The login follows once the server has confirmed the room, see roomEntered
+     */
+    public void enterRoom() throws IOException {
+        System.out.println("Client: " + (isHost ? "Creating" : "Joining") + " room " + roomID);
+        sendData(isHost ? new CreateRoomPacket(username, roomID) : new JoinRoomPacket(username, roomID));
+    }
+
     public void loginToServer() throws IOException {
         System.out.println("Client: Logging into server");
         sendData(new LoginPacket(username, isHost, game.getPlayerColor()));
     }
 
+    /**
+     * A room can only be joined while its host is in it, so a joining client has its opponent as soon as it is in
+     */
+    private void roomEntered(RoomPacket data) throws IOException {
+        System.out.println("Client: In room " + data.getRoomID());
+
+        if (!isHost) game.connectOpponent();
+        loginToServer();
+    }
+
+    /**
+     * The opponent is gone, or never came because the room could not be entered. Shown on the JavaFX thread, the
+     * board waits for an opponent again meanwhile.
+     */
+    private void opponentLost(String message) {
+        Platform.runLater(() -> {
+            game.disconnectOpponent();
+            new ErrorWindow(message).run();
+        });
+    }
+
+    /**
+     * The server has answered the oldest unconfirmed move, by sending it back or refusing it
+     *
+     * @return false if there was no move waiting for an answer
+     */
+    private boolean confirmMove() {
+        return unconfirmedMoves.getAndUpdate(count -> Math.max(0, count - 1)) > 0;
+    }
+
+    /**
+     * The board played the move before sending it, it is taken back so the board agrees with the server's again
+     */
+    private void moveRefused(String message) {
+        Platform.runLater(() -> {
+            game.takeBackLastMove();
+            new ErrorWindow("The server refused your move: " + message).run();
+        });
+    }
+
     public void loginFromClient(LoginPacket data) {
         System.out.println(data.getUsername() + " has logged in!");
         game.connectOpponent();
     }
 
-    public void sendData(Packet data) throws IOException {
-        output.writeObject(data);
+    /**
+     * Called from both the game and this thread, so frames are written whole one at a time
+     */
+    public synchronized void sendData(Packet data) throws IOException {
+        if (Packet.lookupPacket(data.getPacketID()) == Packet.PacketType.MOVE) unconfirmedMoves.incrementAndGet();
+
+        PacketCodec.write(output, data);
+        output.flush();
 
         String packetType = String.valueOf(Packet.lookupPacket(data.getPacketID()));
         System.out.println(packetType + " Packet Sent");
     }
 
-    public void handlePacket(Packet data) {
+    public void handlePacket(Packet data) throws IOException {
         Packet.PacketType packetType = Packet.lookupPacket(data.getPacketID());
 
+        // Errors and confirmations carry this client's own username. The server answers packets in the order they
+        // were sent, so an error while a move is unconfirmed is the refusal of that move.
+        if (packetType == Packet.PacketType.ERROR) {
+            System.err.println("Server refused a packet: " + ((ErrorPacket) data).getMessage());
+
+            if (confirmMove())
+                moveRefused(((ErrorPacket) data).getMessage());
+            else
+                opponentLost(((ErrorPacket) data).getMessage());
+
+            return;
+        }
+
+        if (packetType == Packet.PacketType.MOVE && data.isAck(username)) {
+            confirmMove();
+            return;
+        }
+
+        if ((packetType == Packet.PacketType.CREATE_ROOM || packetType == Packet.PacketType.JOIN_ROOM)
+                && data.isAck(username)) {
+            roomEntered((RoomPacket) data);
+            return;
+        }
+
         // If client is not host, it will receive its color from the server
         if (!isHost && packetType == Packet.PacketType.LOGIN && data.isAck(username)) {
             setClientColor((LoginPacket) data);
@@ -115,12 +202,21 @@ public class ChessClient extends Thread {
         case DISCONNECT:
             break;
 
+        case LEAVE_ROOM:
+            System.out.println(data.getUsername() + " has left the room");
+            opponentLost(data.getUsername() + " has left the game");
+            break;
+
         case MOVE:
             updateBoard((MovePacket) data);
             break;
 
         case INVALID:
             System.err.println("Invalid packet received!");
+            break;
+
+        default:
+            break;
         }
     }
 
@@ -142,6 +238,8 @@ public class ChessClient extends Thread {
 
     public String getUsername() { return username; }
 
+    public String getRoomID() { return roomID; }
+
     public void close() throws IOException {
         client.close();
         input.close();
@@ -1,36 +1,111 @@
 package net;
 
+import engine.Bitbases;
+import net.packets.CreateRoomPacket;
+import net.packets.ErrorPacket;
+import net.packets.JoinRoomPacket;
+import net.packets.LeaveRoomPacket;
 import net.packets.LoginPacket;
+import net.packets.MovePacket;
 import net.packets.Packet;
+import net.packets.PacketCodec;
 
 import java.io.*;
 import java.net.ServerSocket;
 import java.net.Socket;
-import java.util.ArrayList;
-
-import chess.ChessGame;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
 
+/**
+ * Hosts any number of games at once, each in a room of its own. A client creates a room or joins one by its ID,
+ * and from then on the packets of its game only go to the members of that room. Moves are checked against the
+ * room's own game first, an illegal move or one played out of turn is answered with an ErrorPacket and goes no
+ * further.
+ */
 public class ChessServer extends Thread {
+    /** How connections are served */
+    public enum Mode {
+        /** A blocked platform thread reading each connection, see ClientHandler */
+        THREAD_PER_CONNECTION,
+
+        /**
+         * A blocked virtual thread reading each connection, the same ClientHandler without a platform thread's
+         * stack. Runtimes before Java 21 have no virtual threads and get a pool of platform threads instead.
+         */
+        VIRTUAL_THREAD,
+
+        /** Non-blocking connections shared by a few selector threads, see SelectorServer */
+        SELECTOR
+    }
+
+    /** Port the game connects to unless told otherwise */
+    public final static int DEFAULT_PORT = 1444;
+
+    /** Answer to a room ID the server refuses, which is never echoed back since it may not fit in a packet */
+    private final static String ROOM_ID_REFUSAL = "A room needs a name of 1 to " + Room.MAX_ID_LENGTH + " bytes";
+
     private int serverPort;
 
-    private ArrayList<ClientHandler> connectedClients;
+    private final Mode mode;
+
+    /** Selector threads of the selector mode */
+    private final int workerThreads;
+
+    /** Written by the thread accepting connections, read by every connection's thread */
+    private final Set<Connection> connectedClients = ConcurrentHashMap.newKeySet();
+
+    /** Open rooms by their ID */
+    private final ConcurrentHashMap<String, Room> rooms = new ConcurrentHashMap<>();
+
+    /** Room each client is a member of, a client is in one room at most */
+    private final ConcurrentHashMap<Connection, Room> roomOfClient = new ConcurrentHashMap<>();
 
     private ServerSocket server;
 
-    private char hostColor;
+    private SelectorServer selectorServer;
 
-    private final int maxClients = 2;
+    /** Runs the handlers of the virtual thread mode */
+    private ExecutorService virtualThreads;
 
+    /**
+     * Server of a game hosted from the game itself
+     */
     public ChessServer(int serverPort) {
+        this(serverPort, Mode.THREAD_PER_CONNECTION, 1);
+    }
+
+    public ChessServer(int serverPort, Mode mode, int workerThreads) {
+        assert (workerThreads > 0) : "The selector mode needs at least one worker thread";
+
         this.serverPort = serverPort;
-        this.connectedClients = new ArrayList<>();
+        this.mode = mode;
+        this.workerThreads = workerThreads;
     }
 
     @Override
     public void run() {
+        // Rooms adjudicate endgames with the bitbases, loading them now spares the first such move the wait
+        Bitbases.loadInBackground();
+
         try {
+            if (mode == Mode.SELECTOR) {
+                selectorServer = new SelectorServer(this, serverPort, workerThreads);
+                selectorServer.run();
+                return;
+            }
+
             server = new ServerSocket(serverPort);
 
+            if (mode == Mode.VIRTUAL_THREAD) {
+                virtualThreads = VirtualThreads.newThreadPerTaskExecutor();
+
+                if (!VirtualThreads.isAvailable()) {
+                    System.err.println("Server: virtual threads need Java 21, using a pool of platform threads");
+                }
+            }
+
             System.out.println("Server: started at " + server.getInetAddress());
 
             while (true) {
@@ -54,42 +129,278 @@ public class ChessServer extends Thread {
     private void connectNewClient() throws IOException {
         Socket newClient = server.accept();
 
-        if (connectedClients.size() >= maxClients) {
-            System.err.println("Server Exception: client attempted to connect but server was full");
+        ClientHandler clientHandler = new ClientHandler(newClient, this);
+        addClient(clientHandler);
+
+        System.out.println("Server: New client connected at " + newClient.getInetAddress());
+
+        if (virtualThreads != null) {
+            virtualThreads.execute(clientHandler);
+        }
+        else {
+            new Thread(clientHandler, "Client handler " + newClient.getRemoteSocketAddress()).start();
+        }
+    }
+
+    void addClient(Connection client) {
+        connectedClients.add(client);
+    }
+
+    /**
+     * Forgets a client that has disconnected, the other members of its room are told it left
+     */
+    void removeClient(Connection client) {
+        connectedClients.remove(client);
+        leaveRoom(client);
+    }
+
+    /**
+     * Handles a packet from a client, on the thread that read it
+     */
+    void handlePacket(Connection from, Packet data) {
+        Packet.PacketType packetType = Packet.lookupPacket(data.getPacketID());
+        System.out.println("Server: received a " + packetType + " packet");
+
+        switch (packetType) {
+        case CREATE_ROOM:
+            createRoom(from, (CreateRoomPacket) data);
             return;
+        case JOIN_ROOM:
+            joinRoom(from, (JoinRoomPacket) data);
+            return;
+        case LEAVE_ROOM:
+            leaveRoom(from);
+            return;
+        case ERROR:
+            // Only the server sends these
+            return;
+        default:
+            break;
         }
 
-        System.out.println("Server: New client connected at " + newClient.getInetAddress());
+        Room room = roomOfClient.get(from);
+        if (room == null) {
+            sendTo(from, new ErrorPacket(data.getUsername(), "Create or join a room first"));
+            return;
+        }
 
-        ClientHandler clientHandler = new ClientHandler(newClient, this);
-        connectedClients.add(clientHandler);
+        // Whoever created the room is its host, whatever the packet claims
+        if (packetType == Packet.PacketType.LOGIN && room.isHost(from)) {
+            room.setHostColor(((LoginPacket) data).getPlayerColor());
+        }
+        else if (packetType == Packet.PacketType.LOGIN) {
+            changeLoginPacketColor(from, room, (LoginPacket) data);
+        }
 
-        clientHandler.start();
+        if (packetType == Packet.PacketType.MOVE) {
+            relayMove(from, room, (MovePacket) data);
+            return;
+        }
+
+        // Send packet to the room
+        sendDataToRoom(room, data);
     }
 
-    public void sendDataToAllClients(Packet data) throws IOException {
-        for (ClientHandler client : connectedClients) {
-            client.sendData(data);
+    /**
+     * Plays the move in the room's game and sends it on. Only playing it holds the room's lock, the members are
+     * written to afterwards in the order the moves were played.
+     */
+    private void relayMove(Connection from, Room room, MovePacket data) {
+        String refusal = room.play(from, data.getMove(), PacketCodec.encode(data));
 
-            Packet.PacketType packetType = Packet.lookupPacket(data.getPacketID());
-            System.out.println("Server: Sent " + packetType + " packet to all clients");
+        if (refusal != null) {
+            System.out.println("Server: refused a move in room " + room.getId() + ", " + refusal);
+            sendTo(from, new ErrorPacket(data.getUsername(), refusal));
+            return;
         }
+
+        dropClients(room.sendOutbox());
     }
 
-    public void setHostColor(char hostColor) {
-        assert (hostColor == 'w' || hostColor == 'b') : "Host color must be either white or black (w or b)";
-        this.hostColor = hostColor;
+    private void createRoom(Connection from, CreateRoomPacket data) {
+        String roomID = data.getRoomID();
+        if (!Room.isValidId(roomID)) {
+            sendTo(from, new ErrorPacket(data.getUsername(), ROOM_ID_REFUSAL));
+            return;
+        }
+
+        // The creator is a member before anyone can see the room
+        Room room = new Room(roomID);
+        room.join(from, data.getUsername());
+
+        if (rooms.putIfAbsent(roomID, room) != null) {
+            sendTo(from, new ErrorPacket(data.getUsername(), "Room " + roomID + " already exists"));
+            return;
+        }
+
+        // Only a client whose new room exists leaves its old one, a refused request changes nothing
+        leaveRoom(from);
+        roomOfClient.put(from, room);
+
+        System.out.println("Server: " + data.getUsername() + " created room " + roomID);
+        sendTo(from, data);
     }
 
-    public char getHostColor() {
-        return hostColor;
+    private void joinRoom(Connection from, JoinRoomPacket data) {
+        String roomID = data.getRoomID();
+        if (!Room.isValidId(roomID)) {
+            sendTo(from, new ErrorPacket(data.getUsername(), ROOM_ID_REFUSAL));
+            return;
+        }
+
+        Room room = rooms.get(roomID);
+
+        if (room != null && room == roomOfClient.get(from)) {
+            sendTo(from, data);
+            return;
+        }
+
+        if (room == null || room.isClosed()) {
+            sendTo(from, new ErrorPacket(data.getUsername(), "There is no room " + roomID));
+            return;
+        }
+
+        if (!room.join(from, data.getUsername())) {
+            sendTo(from, new ErrorPacket(data.getUsername(), "Room " + roomID + " is full"));
+            return;
+        }
+
+        leaveRoom(from);
+        roomOfClient.put(from, room);
+
+        System.out.println("Server: " + data.getUsername() + " joined room " + roomID);
+        sendTo(from, data);
+    }
+
+    /**
+     * Takes the client out of its room, if it is in one. The last member to leave closes the room, the others are
+     * told who left.
+     */
+    private void leaveRoom(Connection client) {
+        Room room = roomOfClient.remove(client);
+        if (room == null) return;
+
+        String username = room.leave(client);
+
+        if (room.isClosed()) {
+            rooms.remove(room.getId(), room);
+            System.out.println("Server: closed room " + room.getId());
+        }
+        else if (username != null) {
+            sendDataToRoom(room, new LeaveRoomPacket(username, room.getId()));
+        }
+    }
+
+    /**
+     * Tells a member other than the host the color the room has left for it
+     */
+    private void changeLoginPacketColor(Connection from, Room room, LoginPacket data) {
+        data.setPlayerColor(room.getColor(from));
+    }
+
+    /**
+     * Encodes the packet once for every member of the room. A member that cannot be sent to is dropped without
+     * holding up the others.
+     */
+    private void sendDataToRoom(Room room, Packet data) {
+        dropClients(room.send(PacketCodec.encode(data)));
+
+        Packet.PacketType packetType = Packet.lookupPacket(data.getPacketID());
+        System.out.println("Server: Sent " + packetType + " packet to room " + room.getId());
+    }
+
+    /**
+     * Encodes the packet once for every client on the server, whatever room it is in
+     */
+    public void sendDataToAllClients(Packet data) {
+        byte[] frame = PacketCodec.encode(data);
+        Packet.PacketType packetType = Packet.lookupPacket(data.getPacketID());
+
+        for (Connection client : connectedClients) {
+            sendTo(client, frame);
+        }
+
+        System.out.println("Server: Sent " + packetType + " packet to all clients");
+    }
+
+    private void sendTo(Connection client, Packet data) {
+        sendTo(client, PacketCodec.encode(data));
+    }
+
+    private void sendTo(Connection client, byte[] frame) {
+        try {
+            client.send(frame);
+        }
+        catch (IOException e) {
+            System.err.println("Server Exception: " + e.getMessage());
+            removeClient(client);
+            closeQuietly(client);
+        }
+    }
+
+    private void dropClients(List<Connection> clients) {
+        for (Connection client : clients) {
+            removeClient(client);
+            closeQuietly(client);
+        }
+    }
+
+    private static void closeQuietly(Connection client) {
+        try {
+            client.close();
+        }
+        catch (IOException e) {
+            System.err.println("Server Exception: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return number of rooms open, games being played or waiting for a second player
+     */
+    public int getRoomCount() {
+        return rooms.size();
+    }
+
+    public Mode getMode() {
+        return mode;
     }
 
     public void close() throws IOException {
-        for (ClientHandler client : connectedClients) {
+        for (Connection client : connectedClients) {
             client.close();
         }
 
-        server.close();
+        if (server != null) server.close();
+        if (selectorServer != null) selectorServer.close();
+        if (virtualThreads != null) virtualThreads.shutdown();
+    }
+
+    /**
+     * Runs a server on its own, without the game
+     *
+     * Usage: ChessServer [port] [threads|virtual|selector] [worker threads]
+     */
+    public static void main(String[] args) {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Mode mode = args.length > 1 ? parseMode(args[1]) : Mode.THREAD_PER_CONNECTION;
+        int workerThreads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        new ChessServer(port, mode, workerThreads).start();
+    }
+
+    /**
+     * @param name threads, virtual or selector
+     */
+    public static Mode parseMode(String name) {
+        switch (name) {
+            case "threads":
+                return Mode.THREAD_PER_CONNECTION;
+            case "virtual":
+                return Mode.VIRTUAL_THREAD;
+            case "selector":
+                return Mode.SELECTOR;
+            default:
+                throw new IllegalArgumentException("Unknown server mode " + name);
+        }
     }
 }
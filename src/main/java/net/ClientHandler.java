@@ -1,47 +1,53 @@
 package net;
 
-import net.packets.LoginPacket;
-import net.packets.MovePacket;
 import net.packets.Packet;
+import net.packets.PacketCodec;
 
 import java.io.*;
-import java.net.ServerSocket;
 import java.net.Socket;
+import java.util.concurrent.locks.ReentrantLock;
 
-import chess.Move;
-
-class ClientHandler extends Thread {
+/**
+ * Connection read by a thread of its own, blocked on the packets of one client. The server runs it on a platform
+ * thread or a virtual thread depending on its mode.
+ */
+class ClientHandler implements Runnable, Connection {
     private Socket socket;
 
     private ChessServer server;
 
-    ObjectOutputStream output;
-    ObjectInputStream input;
+    OutputStream output;
+    InputStream input;
+
+    /** Not synchronized, a virtual thread blocked writing inside a monitor would hold on to its carrier thread */
+    private final ReentrantLock sendLock = new ReentrantLock();
 
     public ClientHandler(Socket socket, ChessServer server) throws IOException {
         this.socket = socket;
         this.server = server;
 
-        this.output = new ObjectOutputStream(socket.getOutputStream());
-        this.output.flush();
+        socket.setTcpNoDelay(true);
 
-        this.input = new ObjectInputStream(socket.getInputStream());
+        this.output = new BufferedOutputStream(socket.getOutputStream());
+        this.input = new BufferedInputStream(socket.getInputStream());
     }
 
     @Override
     public void run() {
         try {
             while (true) {
-                Packet data = (Packet) input.readObject();
+                Packet data = PacketCodec.read(input);
                 System.out.println("Client Handler is listening...");
 
-                handlePacket(data);
+                server.handlePacket(this, data);
             }
         }
-        catch (ClassNotFoundException | IOException e) {
+        catch (IOException e) {
             System.err.println("Client Handler Exception: " + e.getMessage());
         }
         finally {
+            server.removeClient(this);
+
             try {
                 this.close();
             }
@@ -51,43 +57,30 @@ class ClientHandler extends Thread {
         }
     }
 
-    private void handlePacket(Packet data) throws IOException, ClassNotFoundException {
-        Packet.PacketType packetType = Packet.lookupPacket(data.getPacketID());
-        System.out.println("Client Handler received a " + packetType + " packet");
-
-        if (packetType == Packet.PacketType.LOGIN && ((LoginPacket) data).isHost()) {
-            server.setHostColor(((LoginPacket) data).getPlayerColor());
-        }
-        else if (packetType == Packet.PacketType.LOGIN && !((LoginPacket) data).isHost()) {
-            changeLoginPacketColor((LoginPacket) data);
-        }
-
-        // Send packet to all clients
-        server.sendDataToAllClients(data);
-
-        // Send host color to server
-        if (packetType == Packet.PacketType.LOGIN && ((LoginPacket) data).isHost()) {
-            server.setHostColor(((LoginPacket) data).getPlayerColor());
-        }
-
+    public void sendData(Packet data) throws IOException {
+        send(PacketCodec.encode(data));
     }
 
-    private void changeLoginPacketColor(LoginPacket data) {
-        char hostColor = server.getHostColor();
-        
-        if (hostColor == 'w')
-            data.setPlayerColor('b');
-        else if (hostColor == 'b')
-            data.setPlayerColor('w');
-    }
+    /**
+     * Called from the handler thread of every client, so frames are written whole one at a time
+     */
+    @Override
+    public void send(byte[] frame) throws IOException {
+        sendLock.lock();
 
-    public void sendData(Packet data) throws IOException {
-        output.writeObject(data);
+        try {
+            output.write(frame);
+            output.flush();
+        }
+        finally {
+            sendLock.unlock();
+        }
     }
 
+    @Override
     public void close() throws IOException {
         socket.close();
         input.close();
         output.close();
     }
-}
\ No newline at end of file
+}
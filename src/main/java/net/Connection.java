@@ -0,0 +1,15 @@
+package net;
+
+import java.io.IOException;
+
+/**
+ * Server side of one client's connection, however the server drives it
+ */
+interface Connection {
+    /**
+     * Sends one encoded frame, frames sent from several threads are never interleaved
+     */
+    void send(byte[] frame) throws IOException;
+
+    void close() throws IOException;
+}
@@ -0,0 +1,217 @@
+package net;
+
+import chess.core.Game;
+import chess.core.Move;
+import chess.core.Moves;
+import engine.Bitbases;
+import net.packets.PacketCodec;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One game on the server and the clients taking part in it. Packets of the game are only sent to the members.
+ *
+ * The room keeps the game itself as well, on the rules engine rather than the board of the GUI, and a move is only
+ * passed on to the members once it has been checked to be legal and played by the player whose turn it is.
+ */
+class Room {
+    public final static int MAX_MEMBERS = 2;
+
+    /** Longest ID in bytes of UTF-8, short enough for the error messages naming the room to stay encodable */
+    public final static int MAX_ID_LENGTH = 64;
+
+    private final String id;
+
+    /** Members and the usernames they joined with */
+    private final ConcurrentHashMap<Connection, String> members = new ConcurrentHashMap<>();
+
+    /** Set once the last member has left, a closed room can no longer be joined; guarded by this */
+    private boolean isClosed = false;
+
+    /**
+     * Member who picks the colors, the one who created the room until it leaves and then the member left behind.
+     * Null only while the room is empty; guarded by this
+     */
+    private Connection host;
+
+    /** Color of the host, the other member plays the other one, whoever joined last; guarded by this */
+    private char hostColor = 'w';
+
+    /** The game as the server sees it, whatever the members' boards say; guarded by this */
+    private final Game game = new Game();
+
+    /** Frames waiting to go to the members, in the order they were sent to the room; guarded by this */
+    private final ArrayDeque<byte[]> outbox = new ArrayDeque<>();
+
+    /** Whether a thread is writing the outbox to the members; guarded by this */
+    private boolean isSending = false;
+
+    Room(String id) {
+        this.id = id;
+
+        // The members' games adjudicate with the bitbases as well, so every game of the room ends on the same move
+        game.setAdjudicator(Bitbases::adjudicate);
+    }
+
+    /**
+     * @return whether a room can be named this
+     */
+    static boolean isValidId(String id) {
+        return !id.isEmpty() && PacketCodec.fits(id, MAX_ID_LENGTH);
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    /**
+     * @return false if the room is full or has closed
+     */
+    synchronized boolean join(Connection member, String username) {
+        if (isClosed || members.size() >= MAX_MEMBERS) return false;
+
+        members.put(member, username);
+        if (host == null) host = member;
+
+        return true;
+    }
+
+    /**
+     * A host leaving hands the room to the member left behind, who keeps its color. Whoever joins next gets the
+     * color that is free, so the two members always play opposite colors.
+     *
+     * @return the username the member joined with, null if it was not a member
+     */
+    synchronized String leave(Connection member) {
+        String username = members.remove(member);
+        if (members.isEmpty()) isClosed = true;
+
+        if (member == host) {
+            hostColor = opposite(hostColor);
+            host = null;
+
+            for (Connection remaining : members.keySet()) host = remaining;
+        }
+
+        return username;
+    }
+
+    synchronized boolean isClosed() {
+        return isClosed;
+    }
+
+    /**
+     * Sends an encoded frame to every member, after every frame sent to the room before it
+     *
+     * @return members that could not be sent to, for the server to drop
+     */
+    List<Connection> send(byte[] frame) {
+        synchronized (this) {
+            outbox.add(frame);
+        }
+
+        return sendOutbox();
+    }
+
+    /**
+     * Writes the outbox to the members outside the room's lock, so a member slow to read never holds up a move
+     * being checked. A thread finding another one already writing leaves its frames to that one, which keeps them
+     * in order.
+     *
+     * @return members that could not be sent to, for the server to drop
+     */
+    List<Connection> sendOutbox() {
+        synchronized (this) {
+            if (isSending) return Collections.emptyList();
+            isSending = true;
+        }
+
+        ArrayList<Connection> failed = new ArrayList<>(0);
+
+        while (true) {
+            byte[] frame;
+
+            synchronized (this) {
+                frame = outbox.poll();
+
+                if (frame == null) {
+                    isSending = false;
+                    return failed;
+                }
+            }
+
+            for (Connection member : members.keySet()) {
+                if (failed.contains(member)) continue;
+
+                try {
+                    member.send(frame);
+                }
+                catch (IOException e) {
+                    System.err.println("Server Exception: " + e.getMessage());
+                    failed.add(member);
+                }
+            }
+        }
+    }
+
+    synchronized boolean isHost(Connection member) {
+        return member == host;
+    }
+
+    /**
+     * The colors are fixed once the first move has been played, a later choice is ignored
+     */
+    public synchronized void setHostColor(char hostColor) {
+        assert (hostColor == 'w' || hostColor == 'b') : "Host color must be either white or black (w or b)";
+        if (game.getMoveCount() == 0) this.hostColor = hostColor;
+    }
+
+    public synchronized char getHostColor() {
+        return hostColor;
+    }
+
+    /**
+     * @return color the member plays, the host's color or the other one
+     */
+    synchronized char getColor(Connection member) {
+        return member == host ? hostColor : opposite(hostColor);
+    }
+
+    private static char opposite(char color) {
+        return color == 'w' ? 'b' : 'w';
+    }
+
+    /**
+     * Plays a move of a member if it is that member's turn and the move is legal, and queues its frame for the
+     * members in the same step so they get the moves in the order they were played. sendOutbox writes it.
+     *
+     * @param frame the encoded move packet
+     * @return null if the move was played, otherwise why it was not
+     */
+    synchronized String play(Connection member, Move move, byte[] frame) {
+        if (!members.containsKey(member)) return "You are not in room " + id;
+        if (game.isOver()) return "The game is over";
+
+        if ((getColor(member) == 'w') != game.isWhitesTurn()) return "It is not your turn";
+
+        int legalMove = game.findLegalMove(move);
+        if (legalMove == Moves.NONE) return "Illegal move " + move.toUci();
+
+        game.play(legalMove);
+        outbox.add(frame);
+
+        return null;
+    }
+
+    /**
+     * @return the position of the game in FEN
+     */
+    public synchronized String toFen() {
+        return game.toFen();
+    }
+}
@@ -0,0 +1,298 @@
+package net;
+
+import net.packets.Packet;
+import net.packets.PacketCodec;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Event driven mode of ChessServer: connections are non-blocking channels spread over a few worker threads, each
+ * waiting on its own Selector for any of its connections to have something to read or room to write. A thread
+ * serves thousands of idle connections instead of one.
+ *
+ * The thread calling run accepts connections and hands them to the workers in turn.
+ */
+class SelectorServer {
+    /** Read buffer of a new connection, grown up to the largest frame if a packet needs it */
+    private final static int INITIAL_READ_BUFFER = 256;
+
+    /**
+     * Most bytes queued for a connection that is not reading them, a client this far behind is closed rather than
+     * buffered for without limit
+     */
+    final static int MAX_QUEUED_BYTES = 256 * 1024;
+
+    private final ChessServer server;
+
+    private final ServerSocketChannel serverChannel;
+
+    private final Worker[] workers;
+
+    private volatile boolean isClosed = false;
+
+    SelectorServer(ChessServer server, int port, int workerThreads) throws IOException {
+        this.server = server;
+
+        this.serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(new InetSocketAddress(port));
+
+        this.workers = new Worker[workerThreads];
+        for (int i = 0; i < workerThreads; i++) {
+            workers[i] = new Worker(i);
+            workers[i].start();
+        }
+    }
+
+    /**
+     * Accepts connections until closed
+     */
+    void run() throws IOException {
+        System.out.println("Server: started at " + serverChannel.getLocalAddress() + " with " + workers.length
+                + " selector threads");
+
+        int next = 0;
+
+        while (!isClosed) {
+            SocketChannel channel;
+
+            try {
+                channel = serverChannel.accept();
+            }
+            catch (ClosedChannelException ex) {
+                break;
+            }
+
+            channel.configureBlocking(false);
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+            workers[next].register(channel);
+            next = (next + 1) % workers.length;
+        }
+    }
+
+    void close() throws IOException {
+        isClosed = true;
+        serverChannel.close();
+
+        for (Worker worker : workers) {
+            worker.shutdown();
+        }
+    }
+
+    /**
+     * Thread of one Selector and the connections registered with it. Reading and decoding happen here, writes are
+     * tried right away by the thread sending and only left to the worker when the socket cannot take them yet.
+     */
+    private class Worker extends Thread {
+        private final Selector selector;
+
+        /** Channels accepted but not registered yet, a channel can only be registered while the selector is awake */
+        private final ConcurrentLinkedQueue<SocketChannel> newChannels = new ConcurrentLinkedQueue<>();
+
+        Worker(int index) throws IOException {
+            super("Selector worker " + index);
+            setDaemon(true);
+
+            this.selector = Selector.open();
+        }
+
+        void register(SocketChannel channel) {
+            newChannels.add(channel);
+            selector.wakeup();
+        }
+
+        void shutdown() {
+            interrupt();
+            selector.wakeup();
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!isInterrupted()) {
+                    selector.select();
+
+                    registerNewChannels();
+
+                    Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                    while (keys.hasNext()) {
+                        SelectionKey key = keys.next();
+                        keys.remove();
+
+                        ChannelConnection connection = (ChannelConnection) key.attachment();
+                        if (!key.isValid()) continue;
+
+                        // Whatever goes wrong with one connection only closes that one, the worker serves the rest
+                        try {
+                            if (key.isReadable()) connection.read();
+                            if (key.isValid() && key.isWritable()) connection.flush();
+                        }
+                        catch (IOException | RuntimeException ex) {
+                            System.err.println("Server: closing connection, " + ex);
+                            connection.closeQuietly();
+                        }
+                    }
+                }
+            }
+            catch (IOException ex) {
+                System.err.println("Server Exception: " + ex.getMessage());
+            }
+            finally {
+                for (SelectionKey key : selector.keys()) {
+                    ((ChannelConnection) key.attachment()).closeQuietly();
+                }
+
+                try {
+                    selector.close();
+                }
+                catch (IOException ex) {
+                    System.err.println("Server Exception: " + ex.getMessage());
+                }
+            }
+        }
+
+        private void registerNewChannels() {
+            SocketChannel channel;
+
+            while ((channel = newChannels.poll()) != null) {
+                ChannelConnection connection = new ChannelConnection(channel);
+
+                server.addClient(connection);
+
+                try {
+                    System.out.println("Server: New client connected at " + channel.getRemoteAddress());
+                    connection.setKey(channel.register(selector, SelectionKey.OP_READ, connection));
+                }
+                catch (IOException ex) {
+                    System.err.println("Server: closing connection, " + ex.getMessage());
+                    connection.closeQuietly();
+                }
+            }
+        }
+    }
+
+    /**
+     * Non-blocking connection with its own buffers. Bytes read are kept until a whole frame has arrived, and
+     * frames the socket cannot take yet are queued, partly written or not, until it has room.
+     */
+    private class ChannelConnection implements Connection {
+        private final SocketChannel channel;
+        private SelectionKey key;
+
+        private ByteBuffer readBuffer = ByteBuffer.allocate(INITIAL_READ_BUFFER);
+
+        /** Frames waiting to be written, the first one may be partly written; guarded by this */
+        private final ArrayDeque<ByteBuffer> writeQueue = new ArrayDeque<>();
+
+        /** Bytes left to write of the queued frames; guarded by this */
+        private int queuedBytes = 0;
+
+        ChannelConnection(SocketChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * Frames sent before the channel was registered are written now
+         */
+        synchronized void setKey(SelectionKey key) throws IOException {
+            this.key = key;
+            flush();
+        }
+
+        /**
+         * Reads what has arrived and handles every frame that is complete
+         */
+        void read() throws IOException {
+            if (channel.read(readBuffer) < 0) {
+                closeQuietly();
+                return;
+            }
+
+            readBuffer.flip();
+
+            Packet packet;
+            while ((packet = PacketCodec.decodeFrame(readBuffer)) != null) {
+                server.handlePacket(this, packet);
+            }
+
+            readBuffer.compact();
+
+            // A frame larger than the buffer, decodeFrame has already rejected anything above MAX_FRAME
+            if (!readBuffer.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(PacketCodec.MAX_FRAME);
+                readBuffer.flip();
+                larger.put(readBuffer);
+                readBuffer = larger;
+            }
+        }
+
+        /**
+         * Writes the frame now if nothing is queued before it and the socket has room, the rest is written by the
+         * worker once the socket is writable again
+         */
+        @Override
+        public synchronized void send(byte[] frame) throws IOException {
+            if (!channel.isOpen()) throw new ClosedChannelException();
+
+            if (queuedBytes + frame.length > MAX_QUEUED_BYTES) {
+                throw new IOException("Client is not reading, " + queuedBytes + " bytes are waiting for it");
+            }
+
+            writeQueue.add(ByteBuffer.wrap(frame));
+            queuedBytes += frame.length;
+
+            if (writeQueue.size() == 1) flush();
+        }
+
+        /**
+         * Writes queued frames until the queue is empty or the socket is full, and only asks the selector about
+         * room to write while something is left
+         */
+        synchronized void flush() throws IOException {
+            while (!writeQueue.isEmpty()) {
+                ByteBuffer frame = writeQueue.peek();
+                queuedBytes -= channel.write(frame);
+
+                if (frame.hasRemaining()) break;
+                writeQueue.poll();
+            }
+
+            // Not registered yet, setKey writes the rest
+            if (key == null) return;
+
+            int ops = writeQueue.isEmpty() ? SelectionKey.OP_READ : SelectionKey.OP_READ | SelectionKey.OP_WRITE;
+            if (key.interestOps() != ops) {
+                key.interestOps(ops);
+                key.selector().wakeup();
+            }
+        }
+
+        void closeQuietly() {
+            server.removeClient(this);
+
+            try {
+                close();
+            }
+            catch (IOException ex) {
+                System.err.println("Server Exception: " + ex.getMessage());
+            }
+        }
+
+        @Override
+        public synchronized void close() throws IOException {
+            if (key != null) key.cancel();
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,217 @@
+package net;
+
+import net.packets.CreateRoomPacket;
+import net.packets.JoinRoomPacket;
+import net.packets.LoginPacket;
+import net.packets.MovePacket;
+import net.packets.PacketCodec;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import chess.core.Game;
+import chess.core.Move;
+import engine.Bitbases;
+
+/**
+ * Compares the server modes under many idle connections. Each mode gets a server in a process of its own, so its
+ * memory can be read from the operating system: the resident memory and threads the idle connections add, then the
+ * time a move takes from one player to the other while the idle connections stay open. The time includes the
+ * server checking the move against its own game.
+ *
+ * Memory is read from /proc and only shown on Linux.
+ *
+ * Usage: ServerBenchmark [connections] [moves] [threads|virtual|selector ...]
+ */
+public class ServerBenchmark {
+    /** Plies after which the players start a new game */
+    private final static int MAX_GAME_LENGTH = 100;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int connections = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int moves = args.length > 1 ? Integer.parseInt(args[1]) : 2_000;
+        List<String> modes = args.length > 2 ? Arrays.asList(args).subList(2, args.length)
+                : Arrays.asList("threads", "virtual", "selector");
+
+        System.out.println(connections + " idle connections, " + moves + " moves"
+                + (VirtualThreads.isAvailable() ? "" : ", no virtual threads before Java 21"));
+        System.out.printf("%-10s %14s %12s %10s %10s %10s%n", "mode", "KB/connection", "threads", "p50 us",
+                "p99 us", "max us");
+
+        // Fails on a misspelled mode before any server is started
+        for (String mode : modes) {
+            ChessServer.parseMode(mode);
+        }
+
+        for (String mode : modes) {
+            run(mode, connections, moves);
+        }
+    }
+
+    private static void run(String mode, int connections, int moves) throws IOException, InterruptedException {
+        int port;
+        try (ServerSocket free = new ServerSocket(0)) {
+            port = free.getLocalPort();
+        }
+
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                ChessServer.class.getName(), String.valueOf(port), mode)
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.DISCARD)
+                .start();
+
+        ArrayList<Socket> idle = new ArrayList<>(connections);
+
+        try {
+            Socket first = connect(port);
+            idle.add(first);
+
+            // Give the server a moment to settle before taking the baseline
+            Thread.sleep(500);
+            long baseMemory = readStatus(process, "VmRSS");
+            long baseThreads = readStatus(process, "Threads");
+
+            for (int i = 1; i < connections; i++) {
+                idle.add(new Socket("localhost", port));
+            }
+
+            Socket white = new Socket("localhost", port);
+            Socket black = new Socket("localhost", port);
+            white.setTcpNoDelay(true);
+            black.setTcpNoDelay(true);
+
+            OutputStream whiteOut = white.getOutputStream();
+            InputStream whiteIn = new BufferedInputStream(white.getInputStream());
+            OutputStream blackOut = black.getOutputStream();
+            InputStream blackIn = new BufferedInputStream(black.getInputStream());
+
+            // Connections are accepted in order, so once the players are in their room every idle connection is too
+            send(whiteOut, PacketCodec.encode(new CreateRoomPacket("white", "benchmark")));
+            PacketCodec.read(whiteIn);
+            send(blackOut, PacketCodec.encode(new JoinRoomPacket("black", "benchmark")));
+            PacketCodec.read(blackIn);
+
+            send(whiteOut, PacketCodec.encode(new LoginPacket("white", true, 'w')));
+            PacketCodec.read(whiteIn);
+            send(blackOut, PacketCodec.encode(new LoginPacket("black", false, 'b')));
+            PacketCodec.read(whiteIn);
+            PacketCodec.read(blackIn);
+
+            Thread.sleep(500);
+            long memory = readStatus(process, "VmRSS");
+            long threads = readStatus(process, "Threads");
+
+            // The server only passes on legal moves, so the players play random games, each in a new room
+            Random random = new Random(1);
+            Game game = new Game();
+            game.setAdjudicator(Bitbases::adjudicate);
+            int room = 0;
+
+            long[] latencies = new long[moves];
+
+            for (int i = 0; i < moves; i++) {
+                if (game.isOver() || game.getMoveCount() == MAX_GAME_LENGTH) {
+                    room++;
+                    game = new Game();
+                    game.setAdjudicator(Bitbases::adjudicate);
+
+                    // White leaving the old room tells black, black leaving it closes the room
+                    send(whiteOut, PacketCodec.encode(new CreateRoomPacket("white", "benchmark " + room)));
+                    PacketCodec.read(whiteIn);
+                    PacketCodec.read(blackIn);
+                    send(blackOut, PacketCodec.encode(new JoinRoomPacket("black", "benchmark " + room)));
+                    PacketCodec.read(blackIn);
+                }
+
+                ArrayList<Move> legalMoves = game.getLegalMoves();
+                Move move = legalMoves.get(random.nextInt(legalMoves.size()));
+
+                boolean isWhite = game.isWhitesTurn();
+                game.play(move);
+
+                byte[] frame = PacketCodec.encode(new MovePacket(move, isWhite ? "white" : "black"));
+
+                long start = System.nanoTime();
+                send(isWhite ? whiteOut : blackOut, frame);
+                PacketCodec.read(isWhite ? blackIn : whiteIn);
+                latencies[i] = System.nanoTime() - start;
+
+                // The mover is sent its own move back, read it so its socket never fills up
+                PacketCodec.read(isWhite ? whiteIn : blackIn);
+            }
+
+            Arrays.sort(latencies);
+
+            String perConnection = memory < 0 ? "n/a"
+                    : String.format("%.1f", (double) (memory - baseMemory) / connections);
+            String threadCount = threads < 0 ? "n/a" : String.valueOf(threads - baseThreads);
+
+            System.out.printf("%-10s %14s %12s %10d %10d %10d%n", mode, perConnection, threadCount,
+                    percentile(latencies, 50) / 1000, percentile(latencies, 99) / 1000,
+                    latencies[moves - 1] / 1000);
+
+            white.close();
+            black.close();
+        }
+        finally {
+            for (Socket socket : idle) {
+                socket.close();
+            }
+
+            process.destroy();
+            process.waitFor();
+        }
+    }
+
+    /**
+     * Connects once the server is listening
+     */
+    private static Socket connect(int port) throws IOException, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return new Socket("localhost", port);
+            }
+            catch (IOException ex) {
+                if (attempt == 100) throw ex;
+                Thread.sleep(100);
+            }
+        }
+    }
+
+    private static void send(OutputStream out, byte[] frame) throws IOException {
+        out.write(frame);
+        out.flush();
+    }
+
+    private static long percentile(long[] sorted, int percent) {
+        return sorted[Math.min(sorted.length - 1, sorted.length * percent / 100)];
+    }
+
+    /**
+     * @return the number of a line of /proc/[pid]/status, in kB for memory, -1 if there is no such file
+     */
+    private static long readStatus(Process process, String key) throws IOException {
+        Path status = Paths.get(File.separator + "proc", String.valueOf(process.pid()), "status");
+        if (!Files.isReadable(status)) return -1;
+
+        for (String line : Files.readAllLines(status, StandardCharsets.UTF_8)) {
+            if (line.startsWith(key + ":")) return Long.parseLong(line.replaceAll("[^0-9]", ""));
+        }
+
+        return -1;
+    }
+}
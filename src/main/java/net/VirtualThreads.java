@@ -0,0 +1,48 @@
+package net;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Virtual threads where the runtime has them. The project compiles for Java 17, so the executor is looked up
+ * by name instead of being called directly.
+ */
+final class VirtualThreads {
+    private final static Method NEW_EXECUTOR = findNewExecutor();
+
+    private VirtualThreads() {}
+
+    private static Method findNewExecutor() {
+        try {
+            return Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+        }
+        catch (NoSuchMethodException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * @return whether the runtime has virtual threads, Java 21 or later
+     */
+    static boolean isAvailable() {
+        return NEW_EXECUTOR != null;
+    }
+
+    /**
+     * @return an executor starting a virtual thread for every task, or a pool of platform threads grown as needed
+     * if the runtime has no virtual threads
+     */
+    static ExecutorService newThreadPerTaskExecutor() {
+        if (NEW_EXECUTOR != null) {
+            try {
+                return (ExecutorService) NEW_EXECUTOR.invoke(null);
+            }
+            catch (ReflectiveOperationException ex) {
+                System.err.println("Server Exception: could not create virtual threads, " + ex);
+            }
+        }
+
+        return Executors.newCachedThreadPool();
+    }
+}
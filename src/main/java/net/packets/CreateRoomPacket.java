@@ -0,0 +1,17 @@
+package net.packets;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+/**
+ * Asks the server to open a new room with the name, the creator is its first member
+ */
+public class CreateRoomPacket extends RoomPacket {
+    public CreateRoomPacket(String username, String roomID) {
+        super(3, username, roomID);
+    }
+
+    static CreateRoomPacket decode(String username, ByteBuffer payload) throws ProtocolException {
+        return new CreateRoomPacket(username, PacketCodec.readString(payload));
+    }
+}
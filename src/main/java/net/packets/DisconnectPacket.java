@@ -4,6 +4,7 @@ import net.ChessClient;
 import net.ChessServer;
 
 import java.io.IOException;
+import java.nio.ByteBuffer;
 
 public class DisconnectPacket extends Packet {
     public DisconnectPacket(String username) {
@@ -21,7 +22,12 @@ public class DisconnectPacket extends Packet {
     }
 
     @Override
-    public byte[] getData() {
-        return new byte[0];
+    protected int getPayloadSize() {
+        return 0;
+    }
+
+    @Override
+    protected void writePayload(ByteBuffer buffer) {
+
     }
 }
@@ -0,0 +1,52 @@
+package net.packets;
+
+import net.ChessClient;
+import net.ChessServer;
+
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+/**
+ * Sent by the server to the client whose packet it refused, with the reason
+ */
+public class ErrorPacket extends Packet {
+    private String message;
+
+    /**
+     * @param username the client whose packet was refused
+     */
+    public ErrorPacket(String username, String message) {
+        super(6, username);
+
+        this.message = message;
+    }
+
+    public String getMessage() {
+        return message;
+    }
+
+    @Override
+    public void writeData(ChessClient client) throws IOException {
+
+    }
+
+    @Override
+    public void writeData(ChessServer server) throws IOException {
+
+    }
+
+    @Override
+    protected int getPayloadSize() {
+        return PacketCodec.stringSize(message);
+    }
+
+    @Override
+    protected void writePayload(ByteBuffer buffer) {
+        PacketCodec.writeString(buffer, message);
+    }
+
+    static ErrorPacket decode(String username, ByteBuffer payload) throws ProtocolException {
+        return new ErrorPacket(username, PacketCodec.readString(payload));
+    }
+}
@@ -0,0 +1,17 @@
+package net.packets;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+/**
+ * Asks to become a member of an open room, which takes two players
+ */
+public class JoinRoomPacket extends RoomPacket {
+    public JoinRoomPacket(String username, String roomID) {
+        super(4, username, roomID);
+    }
+
+    static JoinRoomPacket decode(String username, ByteBuffer payload) throws ProtocolException {
+        return new JoinRoomPacket(username, PacketCodec.readString(payload));
+    }
+}
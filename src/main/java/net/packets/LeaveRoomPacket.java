@@ -0,0 +1,17 @@
+package net.packets;
+
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+
+/**
+ * Leaves a room. The server sends it to the members left behind when someone leaves, or loses their connection
+ */
+public class LeaveRoomPacket extends RoomPacket {
+    public LeaveRoomPacket(String username, String roomID) {
+        super(5, username, roomID);
+    }
+
+    static LeaveRoomPacket decode(String username, ByteBuffer payload) throws ProtocolException {
+        return new LeaveRoomPacket(username, PacketCodec.readString(payload));
+    }
+}
@@ -4,6 +4,8 @@ import net.ChessClient;
 import net.ChessServer;
 
 import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
 
 public class LoginPacket extends Packet {
     private boolean isHost;
@@ -37,8 +39,26 @@ public class LoginPacket extends Packet {
         server.sendDataToAllClients(this);
     }
 
+    /**
+     * Whether the player is the host and the color, as 'w' or 'b'
+     */
     @Override
-    public byte[] getData() {
-        return new byte[0];
+    protected int getPayloadSize() {
+        return 2;
+    }
+
+    @Override
+    protected void writePayload(ByteBuffer buffer) {
+        buffer.put((byte) (isHost ? 1 : 0));
+        buffer.put((byte) playerColor);
+    }
+
+    static LoginPacket decode(String username, ByteBuffer payload) throws ProtocolException {
+        byte isHost = payload.get();
+        char playerColor = (char) payload.get();
+
+        if (isHost != 0 && isHost != 1) throw new ProtocolException("Login packet with host flag " + isHost);
+
+        return new LoginPacket(username, isHost == 1, playerColor);
     }
 }
@@ -4,10 +4,23 @@ import net.ChessClient;
 import net.ChessServer;
 
 import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
 
-import chess.Move;
+import chess.core.Move;
 
 public class MovePacket extends Packet {
+    /** FEN letters of the pieces, a piece is sent as its index here plus one, 0 for none */
+    private final static String PIECES = "PNBRQKpnbrqk";
+
+    // Flags of the packed move, above the squares and the two pieces
+    private final static int CASTLE = 1 << 20;
+    private final static int CASTLE_KING_SIDE = 1 << 21;
+    private final static int CAPTURE = 1 << 22;
+    private final static int EN_PASSANT = 1 << 23;
+    private final static int CHECK = 1 << 24;
+    private final static int CHECKMATE = 1 << 25;
+
     Move move;
 
     public MovePacket(Move move, String username) {
@@ -27,8 +40,60 @@ public class MovePacket extends Packet {
     }
 
     @Override
-    public byte[] getData() {
-        return new byte[0];
+    protected int getPayloadSize() {
+        return 4;
+    }
+
+    @Override
+    protected void writePayload(ByteBuffer buffer) {
+        buffer.putInt(pack(move));
+    }
+
+    static MovePacket decode(String username, ByteBuffer payload) throws ProtocolException {
+        return new MovePacket(unpack(payload.getInt()), username);
+    }
+
+    /**
+     * Packs a move into an int: the four coordinates in 3 bits each from bit 0, the piece in bits 12-15, the
+     * promotion piece in bits 16-19 and the flags above them
+     */
+    public static int pack(Move move) {
+        int packed = move.getBegX() | move.getBegY() << 3 | move.getEndX() << 6 | move.getEndY() << 9;
+
+        packed |= (PIECES.indexOf(move.getPieceType()) + 1) << 12;
+        packed |= (PIECES.indexOf(move.getPromotion()) + 1) << 16;
+
+        if (move.isCastle()) packed |= CASTLE;
+        if (move.isCastleKingSide()) packed |= CASTLE_KING_SIDE;
+        if (move.isCapture()) packed |= CAPTURE;
+        if (move.isEnPassant()) packed |= EN_PASSANT;
+        if (move.isCheck()) packed |= CHECK;
+        if (move.isCheckmate()) packed |= CHECKMATE;
+
+        return packed;
+    }
+
+    public static Move unpack(int packed) throws ProtocolException {
+        int piece = (packed >>> 12) & 15;
+        int promotion = (packed >>> 16) & 15;
+
+        if (piece > PIECES.length() || promotion > PIECES.length() || (packed >>> 26) != 0) {
+            throw new ProtocolException("Invalid move " + Integer.toHexString(packed));
+        }
+
+        Move move = new Move(packed & 7, (packed >>> 3) & 7, (packed >>> 6) & 7, (packed >>> 9) & 7);
+
+        if (piece != 0) move.setPieceType(PIECES.charAt(piece - 1));
+        if (promotion != 0) move.setPromotion(PIECES.charAt(promotion - 1));
+
+        move.setCastle((packed & CASTLE) != 0);
+        move.setCastleKingSide((packed & CASTLE_KING_SIDE) != 0);
+        move.setCapture((packed & CAPTURE) != 0);
+        move.setEnPassant((packed & EN_PASSANT) != 0);
+        move.setIsCheck((packed & CHECK) != 0);
+        move.setCheckmate((packed & CHECKMATE) != 0);
+
+        return move;
     }
 
     public Move getMove() {
@@ -4,12 +4,15 @@ import net.ChessClient;
 import net.ChessServer;
 
 import java.io.IOException;
-import java.io.Serializable;
-import java.util.Objects;
+import java.nio.ByteBuffer;
 
-public abstract class Packet implements Serializable {
+/**
+ * Message between a client and the server. Packets go over the network in the binary format of PacketCodec, each
+ * type adds its own fields to the payload after the username.
+ */
+public abstract class Packet {
     public enum PacketType {
-        INVALID(-1), LOGIN(0), DISCONNECT(1), MOVE(2);
+        INVALID(-1), LOGIN(0), DISCONNECT(1), MOVE(2), CREATE_ROOM(3), JOIN_ROOM(4), LEAVE_ROOM(5), ERROR(6);
 
         private final int packetID;
 
@@ -35,7 +38,27 @@ public abstract class Packet implements Serializable {
 
     public abstract void writeData(ChessServer server) throws IOException;
 
-    public abstract byte[] getData();
+    /**
+     * @return the payload of the packet as PacketCodec frames it: the username followed by the fields of the type
+     */
+    public byte[] getData() {
+        ByteBuffer buffer = ByteBuffer.allocate(PacketCodec.stringSize(username) + getPayloadSize());
+
+        PacketCodec.writeString(buffer, username);
+        writePayload(buffer);
+
+        return buffer.array();
+    }
+
+    /**
+     * @return bytes the fields of the type take
+     */
+    protected abstract int getPayloadSize();
+
+    /**
+     * Writes the fields of the type, exactly getPayloadSize bytes
+     */
+    protected abstract void writePayload(ByteBuffer buffer);
 
     public byte getPacketID() {
         return packetID;
@@ -0,0 +1,233 @@
+package net.packets;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.ProtocolException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Binary wire format of the packets. Every packet is framed as one byte of packet ID, the length of the payload as
+ * a varint and the payload itself, which starts with the username and continues with whatever the packet type
+ * adds. Varints hold 7 bits per byte, lowest first, with the high bit set on every byte but the last.
+ *
+ * Only the packet types listed in Packet.PacketType are ever decoded, so nothing a peer sends can make the reader
+ * build other objects.
+ */
+public final class PacketCodec {
+    /** Largest payload accepted, anything bigger is a broken or hostile peer */
+    public final static int MAX_PAYLOAD = 4096;
+
+    /** Largest string accepted, in bytes of UTF-8 */
+    public final static int MAX_STRING = 255;
+
+    /** Longest varint of an int */
+    private final static int MAX_VARINT_SIZE = 5;
+
+    /** Largest frame accepted, packet ID and length included */
+    public final static int MAX_FRAME = 1 + MAX_VARINT_SIZE + MAX_PAYLOAD;
+
+    private PacketCodec() {}
+
+    /**
+     * @return the whole frame of the packet
+     */
+    public static byte[] encode(Packet packet) {
+        byte[] payload = packet.getData();
+        ByteBuffer frame = ByteBuffer.allocate(1 + varIntSize(payload.length) + payload.length);
+
+        frame.put(packet.getPacketID());
+        writeVarInt(frame, payload.length);
+        frame.put(payload);
+
+        return frame.array();
+    }
+
+    /**
+     * Writes the frame of the packet, the caller flushes
+     */
+    public static void write(OutputStream out, Packet packet) throws IOException {
+        out.write(encode(packet));
+    }
+
+    /**
+     * Blocks until a whole frame has been read
+     *
+     * @throws EOFException if the stream ends between frames
+     * @throws ProtocolException if the frame is not a valid packet
+     */
+    public static Packet read(InputStream in) throws IOException {
+        int packetID = in.read();
+        if (packetID < 0) throw new EOFException("Connection closed");
+
+        int length = 0;
+        for (int shift = 0; ; shift += 7) {
+            if (shift >= 7 * MAX_VARINT_SIZE) throw new ProtocolException("Packet length is too long");
+
+            int b = in.read();
+            if (b < 0) throw new EOFException("Connection closed inside a packet");
+
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+        }
+
+        if (length < 0 || length > MAX_PAYLOAD) throw new ProtocolException("Packet of " + length + " bytes");
+
+        byte[] payload = new byte[length];
+        new DataInputStream(in).readFully(payload);
+
+        return decode((byte) packetID, ByteBuffer.wrap(payload));
+    }
+
+    /**
+     * Decodes the frame at the position of the buffer if all of it has arrived, for readers that get bytes in
+     * whatever pieces the network delivers them
+     *
+     * @return the packet, with the buffer moved past its frame, or null with the buffer left as it was if the frame
+     * is not complete yet
+     * @throws ProtocolException if the frame is not a valid packet
+     */
+    public static Packet decodeFrame(ByteBuffer buffer) throws ProtocolException {
+        int start = buffer.position();
+        if (buffer.remaining() < 2) return null;
+
+        byte packetID = buffer.get(start);
+        int length = 0;
+        int offset = start + 1;
+
+        for (int shift = 0; ; shift += 7) {
+            if (shift >= 7 * MAX_VARINT_SIZE) throw new ProtocolException("Packet length is too long");
+            if (offset >= buffer.limit()) return null;
+
+            byte b = buffer.get(offset++);
+            length |= (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) break;
+        }
+
+        if (length < 0 || length > MAX_PAYLOAD) throw new ProtocolException("Packet of " + length + " bytes");
+        if (buffer.limit() - offset < length) return null;
+
+        ByteBuffer payload = buffer.duplicate();
+        payload.position(offset).limit(offset + length);
+        buffer.position(offset + length);
+
+        return decode(packetID, payload.slice());
+    }
+
+    /**
+     * @param payload the payload of one packet, all of it has to be used
+     */
+    public static Packet decode(byte packetID, ByteBuffer payload) throws ProtocolException {
+        try {
+            String username = readString(payload);
+            Packet packet;
+
+            switch (Packet.lookupPacket(packetID)) {
+                case LOGIN:
+                    packet = LoginPacket.decode(username, payload);
+                    break;
+                case DISCONNECT:
+                    packet = new DisconnectPacket(username);
+                    break;
+                case MOVE:
+                    packet = MovePacket.decode(username, payload);
+                    break;
+                case CREATE_ROOM:
+                    packet = CreateRoomPacket.decode(username, payload);
+                    break;
+                case JOIN_ROOM:
+                    packet = JoinRoomPacket.decode(username, payload);
+                    break;
+                case LEAVE_ROOM:
+                    packet = LeaveRoomPacket.decode(username, payload);
+                    break;
+                case ERROR:
+                    packet = ErrorPacket.decode(username, payload);
+                    break;
+                default:
+                    throw new ProtocolException("Unknown packet ID " + packetID);
+            }
+
+            if (payload.hasRemaining()) throw new ProtocolException(payload.remaining() + " bytes after the packet");
+
+            return packet;
+        }
+        catch (BufferUnderflowException ex) {
+            throw new ProtocolException("Packet is cut short");
+        }
+    }
+
+    public static int varIntSize(int value) {
+        int size = 1;
+        while ((value & ~0x7F) != 0) {
+            value >>>= 7;
+            size++;
+        }
+
+        return size;
+    }
+
+    public static void writeVarInt(ByteBuffer buffer, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+
+        buffer.put((byte) value);
+    }
+
+    public static int readVarInt(ByteBuffer buffer) throws ProtocolException {
+        int value = 0;
+
+        for (int shift = 0; shift < 7 * MAX_VARINT_SIZE; shift += 7) {
+            byte b = buffer.get();
+            value |= (b & 0x7F) << shift;
+
+            if ((b & 0x80) == 0) return value;
+        }
+
+        throw new ProtocolException("Varint is too long");
+    }
+
+    /**
+     * @return whether the string is short enough to be written
+     */
+    public static boolean fits(String s, int maxBytes) {
+        return s.getBytes(StandardCharsets.UTF_8).length <= maxBytes;
+    }
+
+    /**
+     * @return bytes the string takes as a varint length and UTF-8
+     */
+    public static int stringSize(String s) {
+        int length = s.getBytes(StandardCharsets.UTF_8).length;
+        return varIntSize(length) + length;
+    }
+
+    /**
+     * @throws IllegalArgumentException if the string is longer than MAX_STRING bytes, which readString refuses
+     */
+    public static void writeString(ByteBuffer buffer, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_STRING) throw new IllegalArgumentException("String of " + bytes.length + " bytes");
+
+        writeVarInt(buffer, bytes.length);
+        buffer.put(bytes);
+    }
+
+    public static String readString(ByteBuffer buffer) throws ProtocolException {
+        int length = readVarInt(buffer);
+        if (length < 0 || length > MAX_STRING || length > buffer.remaining()) {
+            throw new ProtocolException("String of " + length + " bytes");
+        }
+
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,122 @@
+package net.packets;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+
+import chess.core.Move;
+
+/**
+ * Compares the size and the encode plus decode time of a move packet in the binary format with the Java
+ * serialization packets were sent with before. Serialization is measured the way the connections used it, one
+ * stream for all the packets of a connection so class descriptors are only sent once.
+ *
+ * Usage: PacketCodecBenchmark [packets]
+ */
+public class PacketCodecBenchmark {
+    /** Fields of the move packet as it used to be serialized */
+    private static class SerializedMovePacket implements Serializable {
+        byte packetID = 2;
+        String username;
+        Move move;
+
+        SerializedMovePacket(String username, Move move) {
+            this.username = username;
+            this.move = move;
+        }
+    }
+
+    public static void main(String[] args) throws IOException, ClassNotFoundException {
+        int packets = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+
+        // e2e4
+        Move move = new Move(4, 6, 4, 4);
+        move.setPieceType('P');
+        String username = "player1";
+
+        // Warm up both before timing either
+        for (int round = 0; round < 2; round++) {
+            long binaryBytes = 0;
+            long start = System.nanoTime();
+
+            for (int i = 0; i < packets; i++) {
+                byte[] frame = PacketCodec.encode(new MovePacket(move, username));
+                binaryBytes += frame.length;
+
+                ByteBuffer payload = ByteBuffer.wrap(frame, 2, frame.length - 2);
+                if (((MovePacket) PacketCodec.decode(frame[0], payload)).getMove().getEndY() != move.getEndY()) {
+                    throw new IllegalStateException("Move did not survive the round trip");
+                }
+            }
+
+            long binaryTime = System.nanoTime() - start;
+
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            ObjectOutputStream out = new ObjectOutputStream(bytes);
+            out.flush();
+            int headerSize = bytes.size();
+
+            out.writeObject(new SerializedMovePacket(username, copy(move)));
+            out.flush();
+            int firstSize = bytes.size() - headerSize;
+
+            long serializedBytes = 0;
+            long serializedCount = 0;
+            long serializedTime = 0;
+            long roundTrips = 0;
+
+            // Decoding needs the whole stream, so it is written and read back in batches. The first packet of a
+            // batch carries the class descriptors and is left out of the size.
+            int batch = 1000;
+            for (int i = 0; i < Math.max(1, packets / 10); i += batch) {
+                start = System.nanoTime();
+
+                bytes.reset();
+                out = new ObjectOutputStream(bytes);
+                out.writeObject(new SerializedMovePacket(username, copy(move)));
+                out.flush();
+                int before = bytes.size();
+
+                for (int j = 1; j < batch; j++) {
+                    out.writeObject(new SerializedMovePacket(username, copy(move)));
+                }
+                out.flush();
+
+                ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+                for (int j = 0; j < batch; j++) {
+                    in.readObject();
+                }
+
+                serializedTime += System.nanoTime() - start;
+                serializedBytes += bytes.size() - before;
+                serializedCount += batch - 1;
+                roundTrips += batch;
+            }
+
+            if (round == 0) continue;
+
+            System.out.printf("%-14s %12s %14s%n", "", "bytes/move", "ns/round trip");
+            System.out.printf("%-14s %12.1f %14.1f%n", "binary", (double) binaryBytes / packets,
+                    (double) binaryTime / packets);
+            System.out.printf("%-14s %12.1f %14.1f%n", "serialization", (double) serializedBytes / serializedCount,
+                    (double) serializedTime / roundTrips);
+            System.out.printf("First serialized packet on a stream: %d bytes%n", firstSize);
+        }
+    }
+
+    /**
+     * A new move every time, as the game sends, so the stream cannot refer back to one it already wrote
+     */
+    private static Move copy(Move move) {
+        try {
+            return MovePacket.unpack(MovePacket.pack(move));
+        }
+        catch (IOException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package net.packets;
+
+import net.ChessClient;
+import net.ChessServer;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Packet about one room of the server, a client sends it to create, join or leave the room and the server sends
+ * the same packet back once it has
+ */
+public abstract class RoomPacket extends Packet {
+    private String roomID;
+
+    RoomPacket(int packetID, String username, String roomID) {
+        super(packetID, username);
+
+        this.roomID = roomID;
+    }
+
+    public String getRoomID() {
+        return roomID;
+    }
+
+    @Override
+    public void writeData(ChessClient client) throws IOException {
+        client.sendData(this);
+    }
+
+    @Override
+    public void writeData(ChessServer server) throws IOException {
+
+    }
+
+    @Override
+    protected int getPayloadSize() {
+        return PacketCodec.stringSize(roomID);
+    }
+
+    @Override
+    protected void writePayload(ByteBuffer buffer) {
+        PacketCodec.writeString(buffer, roomID);
+    }
+}
@@ -23,7 +23,7 @@ public class ChessTimer extends Thread {
         int maxTimeSeconds = hours*3600 + minutes*60 + seconds; 
 
         this.maxTimems = maxTimeSeconds*1000;
-
+        this.timeLeftms = maxTimems;
     }
 
     public ChessTimer(int hours, int minutes, int seconds, int incrementSeconds) {
@@ -63,6 +63,14 @@ public class ChessTimer extends Thread {
         this.timeLeftms = timeLeftms;
    }
 
+   public int getTimeLeftms() {
+        return timeLeftms;
+   }
+
+   public int getIncrementSeconds() {
+        return incrementSeconds;
+   }
+
    public void increment() {
         this.timeLeftms += incrementSeconds*1000;
    }
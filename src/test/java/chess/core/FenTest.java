@@ -0,0 +1,98 @@
+package chess.core;
+
+import exceptions.InvalidFenException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class FenTest {
+    @Test
+    public void referencePositionsSurviveARoundTrip() {
+        for (Perft.ReferencePosition reference : Perft.REFERENCE_POSITIONS) {
+            assertEquals(reference.getFen(), Fen.toFen(Fen.parse(reference.getFen())), reference.getName());
+        }
+    }
+
+    @Test
+    public void parsingIntoAPositionReplacesWhatItHeld() {
+        Position position = Fen.parse(Perft.REFERENCE_POSITIONS[1].getFen());
+        Fen.parse(Fen.START_POSITION, position);
+
+        assertEquals(Fen.START_POSITION, position.toFen());
+        assertEquals(position.computeKey(), position.getKey());
+    }
+
+    @Test
+    public void fieldsAfterThePiecesAreReadBack() {
+        Position position = Fen.parse("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w Kq f6 0 3");
+
+        assertTrue(position.isWhiteToMove());
+        assertEquals(Position.WHITE_KING_SIDE | Position.BLACK_QUEEN_SIDE, position.getCastlingRights());
+        assertEquals(5 * 8 + 5, position.getEnPassantSquare());
+        assertEquals(0, position.getHalfmoveClock());
+        assertEquals(3, position.getFullmoveNumber());
+    }
+
+    @Test
+    public void missingFieldsGetDefaults() {
+        Position position = Fen.parse("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR");
+
+        assertEquals(Fen.START_POSITION, position.toFen());
+    }
+
+    @Test
+    public void epdOperationsAreIgnored() {
+        Position position = Fen.parse("rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - bm e4; id \"start\";");
+
+        assertEquals(Fen.START_POSITION, position.toFen());
+    }
+
+    @Test
+    public void invalidPositionsAreRejected() {
+        String[] invalid = {
+            "",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/9/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "rnbqkbnr/ppppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQXBNR w KQkq - 0 1",
+            "rnbq1bnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQ - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR x KQkq - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkx - 0 1",
+            "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq e5 0 1"
+        };
+
+        for (String fen : invalid) {
+            assertThrows(InvalidFenException.class, () -> Fen.parse(fen), fen);
+        }
+    }
+
+    @Test
+    public void rightsAndSquaresTheBoardCannotBackAreDropped() {
+        // No rooks to castle with
+        Position position = Fen.parse("k7/8/8/8/8/8/8/4K3 w KQ - 0 1");
+        assertEquals(0, position.getCastlingRights());
+        assertEquals(Perft.perft(Fen.parse("k7/8/8/8/8/8/8/4K3 w - - 0 1"), 3), Perft.perft(position, 3));
+
+        // Only the queen side rook is at home
+        assertEquals(Position.BLACK_QUEEN_SIDE, Fen.parse("r3k3/7r/8/8/8/8/8/4K3 b kq - 0 1").getCastlingRights());
+
+        // No black pawn went past e6
+        position = Fen.parse("k7/8/8/3P4/8/8/8/K7 w - e6 0 1");
+        assertEquals(Position.NO_SQUARE, position.getEnPassantSquare());
+        assertEquals(Perft.perft(Fen.parse("k7/8/8/3P4/8/8/8/K7 w - - 0 1"), 3), Perft.perft(position, 3));
+
+        // The square is on the wrong side for the side to move
+        assertEquals(Position.NO_SQUARE,
+                Fen.parse("rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR b KQkq f6 0 3").getEnPassantSquare());
+    }
+
+    @Test
+    public void gameOverPositionsAreRecognized() {
+        assertTrue(Fen.parse("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1").isCheckmate());
+        assertTrue(Fen.parse("7k/8/6QK/8/8/8/8/8 b - - 0 1").isStalemate());
+        assertFalse(Fen.parse(Fen.START_POSITION).isInCheck());
+    }
+}
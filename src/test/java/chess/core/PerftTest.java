@@ -0,0 +1,93 @@
+package chess.core;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class PerftTest {
+    @Test
+    public void referencePositionsHaveTheirKnownCounts() {
+        for (Perft.ReferencePosition reference : Perft.REFERENCE_POSITIONS) {
+            Position position = Position.fromFen(reference.getFen());
+
+            assertEquals(reference.getNodes(), Perft.perft(position, reference.getDepth()), reference.getName());
+        }
+    }
+
+    @Test
+    public void parallelCountMatchesSerialCount() {
+        ForkJoinPool pool = new ForkJoinPool(2);
+
+        try {
+            for (Perft.ReferencePosition reference : Perft.REFERENCE_POSITIONS) {
+                Position position = Position.fromFen(reference.getFen());
+
+                assertEquals(Perft.perft(position, 3), Perft.perftParallel(position, 3, pool), reference.getName());
+            }
+        }
+        finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void divideSumsToPerft() {
+        Position position = Position.fromFen(Fen.START_POSITION);
+
+        Map<String, Long> counts = Perft.divide(position, 3);
+        long nodes = 0;
+        for (long count : counts.values()) nodes += count;
+
+        assertEquals(20, counts.size());
+        assertEquals(8902, nodes);
+    }
+
+    /**
+     * Every move of the tree is taken back, so the position has to end up exactly as it started
+     */
+    @Test
+    public void unmakeRestoresThePosition() {
+        for (Perft.ReferencePosition reference : Perft.REFERENCE_POSITIONS) {
+            Position position = Position.fromFen(reference.getFen());
+            long key = position.getKey();
+            long pawnKey = position.getPawnKey();
+            int material = position.getMaterial();
+            int pieceSquareScore = position.getPieceSquareScore();
+
+            Perft.perft(position, 3);
+
+            assertEquals(reference.getFen(), position.toFen(), reference.getName());
+            assertEquals(key, position.getKey(), reference.getName());
+            assertEquals(pawnKey, position.getPawnKey(), reference.getName());
+            assertEquals(material, position.getMaterial(), reference.getName());
+            assertEquals(pieceSquareScore, position.getPieceSquareScore(), reference.getName());
+        }
+    }
+
+    /**
+     * The key is kept up to date move by move, after any line of moves it has to be the one computed from scratch
+     */
+    @Test
+    public void keptKeyMatchesComputedKey() {
+        for (Perft.ReferencePosition reference : Perft.REFERENCE_POSITIONS) {
+            checkKeys(Position.fromFen(reference.getFen()), 3, reference.getName());
+        }
+    }
+
+    private static void checkKeys(Position position, int depth, String name) {
+        assertEquals(position.computeKey(), position.getKey(), name + " " + position.toFen());
+        if (depth == 0) return;
+
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, moves);
+
+        for (int i = 0; i < moves.size(); i++) {
+            position.makeMove(moves.get(i));
+            checkKeys(position, depth - 1, name);
+            position.unmakeMove();
+        }
+    }
+}
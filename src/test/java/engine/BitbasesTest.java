@@ -0,0 +1,86 @@
+package engine;
+
+import chess.core.Fen;
+import chess.core.Game;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BitbasesTest {
+    @Test
+    public void kingAndQueenWinUnlessTheQueenIsLost() {
+        assertResult(Bitbases.WIN, "8/8/8/4k3/8/8/8/KQ6 w - - 0 1");
+        assertResult(Bitbases.LOSS, "8/8/8/4k3/8/8/8/KQ6 b - - 0 1");
+
+        // Black takes the queen
+        assertResult(Bitbases.DRAW, "8/8/8/8/8/8/1kQ5/7K b - - 0 1");
+
+        // Black is stalemated
+        assertResult(Bitbases.DRAW, "7k/8/6QK/8/8/8/8/8 b - - 0 1");
+    }
+
+    @Test
+    public void kingAndRookWinUnlessTheRookIsLost() {
+        assertResult(Bitbases.WIN, "8/8/8/4k3/8/8/8/R6K w - - 0 1");
+        assertResult(Bitbases.LOSS, "8/8/8/4k3/8/8/8/R6K b - - 0 1");
+        assertResult(Bitbases.DRAW, "8/8/8/8/8/2k5/1R6/7K b - - 0 1");
+
+        // The same with the colors swapped
+        assertResult(Bitbases.WIN, "r6k/8/8/8/4K3/8/8/8 b - - 0 1");
+    }
+
+    @Test
+    public void kingAndPawnKnowTheirClassicResults() {
+        // The king on the sixth rank in front of its pawn wins whoever moves
+        assertResult(Bitbases.WIN, "4k3/8/4K3/4P3/8/8/8/8 w - - 0 1");
+        assertResult(Bitbases.LOSS, "4k3/8/4K3/4P3/8/8/8/8 b - - 0 1");
+
+        // A rook pawn with the defending king in the corner is a draw
+        assertResult(Bitbases.DRAW, "k7/8/K7/P7/8/8/8/8 w - - 0 1");
+
+        // The defending king in front of the pawn holds the opposition
+        assertResult(Bitbases.DRAW, "8/4k3/8/4P3/4K3/8/8/8 w - - 0 1");
+        assertResult(Bitbases.DRAW, "8/8/8/8/8/4k3/4P3/4K3 w - - 0 1");
+
+        // With the pawn far back its spare moves win the opposition
+        assertResult(Bitbases.WIN, "4k3/8/8/8/8/8/4P3/4K3 w - - 0 1");
+
+        // The pawn runs, the defending king is outside its square
+        assertResult(Bitbases.WIN, "7k/8/8/8/P7/8/8/7K w - - 0 1");
+
+        // A black pawn runs down the board
+        assertResult(Bitbases.WIN, "7k/8/8/8/8/p7/8/7K b - - 0 1");
+    }
+
+    @Test
+    public void otherPositionsAreNotCovered() {
+        assertResult(Bitbases.UNKNOWN, Fen.START_POSITION);
+        assertResult(Bitbases.UNKNOWN, "8/8/8/4k3/8/8/8/KN6 w - - 0 1");
+        assertResult(Bitbases.UNKNOWN, "8/8/8/4k3/8/8/8/KQq5 w - - 0 1");
+    }
+
+    @Test
+    public void gamesWithTheBitbasesEndOnceTheResultIsKnown() {
+        Game game = new Game("8/8/8/4k3/8/8/8/KQ6 w - - 0 1");
+        assertFalse(game.isOver());
+
+        game.setAdjudicator(Bitbases::adjudicate);
+        assertEquals('W', game.getResult());
+        assertTrue(game.isOver());
+
+        game = new Game("8/4k3/8/4P3/4K3/8/8/8 w - - 0 1");
+        game.setAdjudicator(Bitbases::adjudicate);
+        assertEquals('d', game.getResult());
+
+        // The rules come first, checkmate is checkmate
+        game = new Game("7k/6Q1/6K1/8/8/8/8/8 b - - 0 1");
+        game.setAdjudicator(Bitbases::adjudicate);
+        assertEquals('w', game.getResult());
+    }
+
+    private static void assertResult(int expected, String fen) {
+        assertEquals(expected, Bitbases.probe(Fen.parse(fen)), fen);
+    }
+}
@@ -0,0 +1,74 @@
+package engine;
+
+import chess.core.Fen;
+import chess.core.MoveGenerator;
+import chess.core.MoveList;
+import chess.core.Perft;
+import chess.core.Position;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class EvaluationTest {
+    /** Totals of the perft reference positions from white's point of view, in the order of REFERENCE_POSITIONS */
+    private final static int[] REFERENCE_TOTALS = { 0, 56, 18, 160, 70, 0 };
+
+    /**
+     * Pins the evaluation of a fixed suite, a change to any term shows up here and has to be accepted on purpose
+     */
+    @Test
+    public void referencePositionsKeepTheirScores() {
+        assertEquals(REFERENCE_TOTALS.length, Perft.REFERENCE_POSITIONS.length);
+
+        for (int i = 0; i < REFERENCE_TOTALS.length; i++) {
+            Perft.ReferencePosition reference = Perft.REFERENCE_POSITIONS[i];
+            Evaluation.Breakdown breakdown = Evaluation.breakdown(reference.getFen());
+
+            assertEquals(REFERENCE_TOTALS[i], breakdown.getTotal(), reference.getName() + "\n" + breakdown);
+        }
+    }
+
+    @Test
+    public void mirroredPositionsHaveOppositeScores() {
+        String position4 = Perft.REFERENCE_POSITIONS[3].getFen();
+        String mirrored = "r2q1rk1/pP1p2pp/Q4n2/bbp1p3/Np6/1B3NBn/pPPP1PPP/R3K2R b KQ - 0 1";
+
+        assertEquals(-Evaluation.evaluate(position4), Evaluation.evaluate(mirrored));
+        assertEquals(Evaluation.evaluate(Fen.parse(position4)), Evaluation.evaluate(Fen.parse(mirrored)));
+    }
+
+    /**
+     * The material and piece-square sums are kept move by move, after every make and unmake the evaluation built on
+     * them has to be the one recomputed from the board
+     */
+    @Test
+    public void keptScoresMatchTheBreakdown() {
+        for (Perft.ReferencePosition reference : Perft.REFERENCE_POSITIONS) {
+            checkScores(Fen.parse(reference.getFen()), 3, new PawnTable(1 << 10), reference.getName());
+        }
+    }
+
+    private static void checkScores(Position position, int depth, PawnTable pawnTable, String name) {
+        assertScoresMatch(position, pawnTable, name);
+        if (depth == 0) return;
+
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, moves);
+
+        for (int i = 0; i < moves.size(); i++) {
+            position.makeMove(moves.get(i));
+            checkScores(position, depth - 1, pawnTable, name);
+            position.unmakeMove();
+
+            assertScoresMatch(position, pawnTable, name);
+        }
+    }
+
+    private static void assertScoresMatch(Position position, PawnTable pawnTable, String name) {
+        Evaluation.Breakdown breakdown = Evaluation.breakdown(position);
+        int total = position.getSideToMove() == Position.WHITE ? breakdown.getTotal() : -breakdown.getTotal();
+
+        assertEquals(breakdown.getPhase(), position.getPhase(), name + " " + position.toFen());
+        assertEquals(total, Evaluation.evaluate(position, pawnTable), name + " " + position.toFen());
+    }
+}
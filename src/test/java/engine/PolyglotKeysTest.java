@@ -0,0 +1,90 @@
+package engine;
+
+import chess.core.Fen;
+import chess.core.MoveGenerator;
+import chess.core.MoveList;
+import chess.core.Moves;
+import chess.core.Position;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+public class PolyglotKeysTest {
+    /**
+     * Positions and their keys from the description of the Polyglot format, each one move after the one before it
+     * except for the second line starting again from the start position. The first column is the move leading to
+     * the position, the positions in between have no published key.
+     */
+    private final static String[][] KEY_REFERENCES = {
+            { null, Fen.START_POSITION, "463b96181691fc9c" },
+            { "e2e4", "rnbqkbnr/pppppppp/8/8/4P3/8/PPPP1PPP/RNBQKBNR b KQkq e3 0 1", "823c9b50fd114196" },
+            { "d7d5", "rnbqkbnr/ppp1pppp/8/3p4/4P3/8/PPPP1PPP/RNBQKBNR w KQkq d6 0 2", "0756b94461c50fb0" },
+            { "e4e5", "rnbqkbnr/ppp1pppp/8/3pP3/8/8/PPPP1PPP/RNBQKBNR b KQkq - 0 2", "662fafb965db29d4" },
+            { "f7f5", "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPP1PPP/RNBQKBNR w KQkq f6 0 3", "22a48b5a8e47ff78" },
+            { "e1e2", "rnbqkbnr/ppp1p1pp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR b kq - 0 3", "652a607ca3f242c1" },
+            { "e8f7", "rnbq1bnr/ppp1pkpp/8/3pPp2/8/8/PPPPKPPP/RNBQ1BNR w - - 0 4", "00fdd303c946bdd9" },
+            { null, Fen.START_POSITION, "463b96181691fc9c" },
+            { "a2a4", null, null },
+            { "b7b5", null, null },
+            { "h2h4", null, null },
+            { "b5b4", null, null },
+            { "c2c4", "rnbqkbnr/p1pppppp/8/8/PpP4P/8/1P1PPPP1/RNBQKBNR b KQkq c3 0 3", "3c8123ea7b067637" },
+            { "b4c3", null, null },
+            { "a1a3", "rnbqkbnr/p1pppppp/8/8/P6P/R1p5/1P1PPPP1/1NBQKBNR b Kkq - 0 4", "5c3f9b829b279560" },
+    };
+
+    @Test
+    public void referencePositionsHaveTheirPublishedKeys() {
+        for (String[] reference : KEY_REFERENCES) {
+            if (reference[1] == null) continue;
+
+            assertEquals(Long.parseUnsignedLong(reference[2], 16), PolyglotKeys.key(Fen.parse(reference[1])),
+                    reference[1]);
+        }
+    }
+
+    /**
+     * Reaches the reference positions by playing their moves, so the keys and the position's own Zobrist key are
+     * checked on positions made move by move as well as on parsed ones
+     */
+    @Test
+    public void playedPositionsHaveTheKeysOfTheParsedOnes() {
+        Position position = null;
+
+        for (String[] reference : KEY_REFERENCES) {
+            if (reference[0] == null) {
+                position = Fen.parse(reference[1]);
+            }
+            else {
+                position.makeMove(findMove(position, reference[0]));
+            }
+
+            assertEquals(position.computeKey(), position.getKey(), position.toFen());
+            if (reference[1] == null) continue;
+
+            Position parsed = Fen.parse(reference[1]);
+            // The clocks of the published positions are not those of the games, they are not part of the keys
+            assertEquals(withoutClocks(reference[1]), withoutClocks(position.toFen()));
+            assertEquals(parsed.getKey(), position.getKey(), reference[1]);
+            assertEquals(Long.parseUnsignedLong(reference[2], 16), PolyglotKeys.key(position), reference[1]);
+        }
+    }
+
+    private static String withoutClocks(String fen) {
+        String[] fields = fen.split(" ");
+        return String.join(" ", fields[0], fields[1], fields[2], fields[3]);
+    }
+
+    private static int findMove(Position position, String uci) {
+        MoveList moves = new MoveList();
+        MoveGenerator.generateLegalMoves(position, moves);
+
+        for (int i = 0; i < moves.size(); i++) {
+            if (Moves.toUci(moves.get(i)).equals(uci)) return moves.get(i);
+        }
+
+        fail(uci + " is not legal in " + position.toFen());
+        return Moves.NONE;
+    }
+}
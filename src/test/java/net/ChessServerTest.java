@@ -0,0 +1,36 @@
+package net;
+
+import net.packets.CreateRoomPacket;
+import net.packets.ErrorPacket;
+import net.packets.JoinRoomPacket;
+import net.packets.Packet;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class ChessServerTest {
+    @Test
+    public void roomIdsTooLongToEchoAreRefusedWithAnAnswerTheClientCanRead() throws IOException {
+        ChessServer server = new ChessServer(0);
+        RecordingConnection client = new RecordingConnection();
+        server.addClient(client);
+
+        String longID = "r".repeat(200);
+        server.handlePacket(client, new CreateRoomPacket("player1", longID));
+        server.handlePacket(client, new JoinRoomPacket("player1", longID));
+
+        List<Packet> answers = client.getPackets();
+        assertEquals(2, answers.size());
+        for (Packet answer : answers) assertTrue(answer instanceof ErrorPacket);
+        assertEquals(0, server.getRoomCount());
+
+        // The longest name there can be still gets a room
+        server.handlePacket(client, new CreateRoomPacket("player1", "r".repeat(Room.MAX_ID_LENGTH)));
+        assertTrue(client.getPackets().get(2) instanceof CreateRoomPacket);
+        assertEquals(1, server.getRoomCount());
+    }
+}
@@ -0,0 +1,42 @@
+package net;
+
+import net.packets.Packet;
+import net.packets.PacketCodec;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Connection keeping the frames sent to it instead of writing them anywhere
+ */
+class RecordingConnection implements Connection {
+    private final ArrayList<byte[]> frames = new ArrayList<>();
+
+    @Override
+    public synchronized void send(byte[] frame) {
+        frames.add(frame);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    synchronized List<byte[]> getFrames() {
+        return new ArrayList<>(frames);
+    }
+
+    /**
+     * @return the packets sent so far, decoded the way a client would
+     */
+    synchronized List<Packet> getPackets() throws IOException {
+        ArrayList<Packet> packets = new ArrayList<>();
+
+        for (byte[] frame : frames) {
+            packets.add(PacketCodec.read(new ByteArrayInputStream(frame)));
+        }
+
+        return packets;
+    }
+}
@@ -0,0 +1,191 @@
+package net;
+
+import chess.core.Fen;
+import chess.core.Move;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class RoomTest {
+    @Test
+    public void memberLeftBehindKeepsItsColorAndANewMemberGetsTheOther() {
+        Room room = new Room("room");
+        RecordingConnection host = new RecordingConnection();
+        RecordingConnection guest = new RecordingConnection();
+        RecordingConnection newcomer = new RecordingConnection();
+
+        room.join(host, "host");
+        room.join(guest, "guest");
+        room.setHostColor('w');
+
+        assertNull(room.play(host, new Move(4, 6, 4, 4), new byte[] {1}));
+        assertEquals('b', room.getColor(guest));
+
+        // The host leaves, the guest runs the room now and still plays black
+        room.leave(host);
+        assertTrue(room.isHost(guest));
+        assertEquals('b', room.getColor(guest));
+
+        assertTrue(room.join(newcomer, "newcomer"));
+        assertFalse(room.isHost(newcomer));
+        assertEquals('w', room.getColor(newcomer));
+
+        // Both colors can still move
+        assertNull(room.play(guest, new Move(4, 1, 4, 3), new byte[] {2}));
+        assertNull(room.play(newcomer, new Move(6, 7, 5, 5), new byte[] {3}));
+        assertNull(room.play(guest, new Move(1, 0, 2, 2), new byte[] {4}));
+    }
+
+    @Test
+    public void movesOutOfTurnAreRefused() {
+        Room room = new Room("room");
+        RecordingConnection white = new RecordingConnection();
+        RecordingConnection black = new RecordingConnection();
+        room.join(white, "white");
+        room.join(black, "black");
+
+        assertEquals("It is not your turn", room.play(black, new Move(4, 1, 4, 3), new byte[] {1}));
+        assertNull(room.play(white, new Move(4, 6, 4, 4), new byte[] {2}));
+        assertEquals("It is not your turn", room.play(white, new Move(3, 6, 3, 4), new byte[] {3}));
+
+        // Only the move played was queued
+        room.sendOutbox();
+        assertEquals(1, white.getFrames().size());
+        assertArrayEquals(new byte[] {2}, white.getFrames().get(0));
+    }
+
+    @Test
+    public void illegalMovesAreRefused() {
+        Room room = new Room("room");
+        RecordingConnection white = new RecordingConnection();
+        room.join(white, "white");
+        room.join(new RecordingConnection(), "black");
+
+        String[] refusals = {
+            // A pawn three squares ahead, a rook through its own pawn, a move from an empty square
+            room.play(white, new Move(4, 6, 4, 3), new byte[] {1}),
+            room.play(white, new Move(0, 7, 0, 4), new byte[] {2}),
+            room.play(white, new Move(4, 4, 4, 3), new byte[] {3})
+        };
+
+        for (String refusal : refusals) {
+            assertNotNull(refusal);
+            assertTrue(refusal.startsWith("Illegal move"), refusal);
+        }
+
+        assertEquals(Fen.START_POSITION, room.toFen());
+        assertTrue(room.sendOutbox().isEmpty());
+        assertTrue(white.getFrames().isEmpty());
+    }
+
+    @Test
+    public void movesOfClientsOutsideTheRoomAreRefused() {
+        Room room = new Room("room");
+        RecordingConnection white = new RecordingConnection();
+        RecordingConnection stranger = new RecordingConnection();
+        room.join(white, "white");
+        room.join(new RecordingConnection(), "black");
+
+        assertEquals("You are not in room room", room.play(stranger, new Move(4, 6, 4, 4), new byte[] {1}));
+
+        // Nor once a member has left
+        room.leave(white);
+        assertEquals("You are not in room room", room.play(white, new Move(4, 6, 4, 4), new byte[] {2}));
+
+        assertEquals(Fen.START_POSITION, room.toFen());
+    }
+
+    @Test
+    public void movesAfterTheGameIsOverAreRefused() {
+        Room room = new Room("room");
+        RecordingConnection white = new RecordingConnection();
+        RecordingConnection black = new RecordingConnection();
+        room.join(white, "white");
+        room.join(black, "black");
+
+        // Fool's mate
+        assertNull(room.play(white, new Move(5, 6, 5, 5), new byte[] {1}));
+        assertNull(room.play(black, new Move(4, 1, 4, 3), new byte[] {2}));
+        assertNull(room.play(white, new Move(6, 6, 6, 4), new byte[] {3}));
+        assertNull(room.play(black, new Move(3, 0, 7, 4), new byte[] {4}));
+
+        assertEquals("The game is over", room.play(white, new Move(4, 6, 4, 4), new byte[] {5}));
+        assertEquals("The game is over", room.play(black, new Move(4, 3, 4, 4), new byte[] {6}));
+    }
+
+    /**
+     * A move played while another thread is writing the outbox is left to that thread, which writes it after the
+     * frames before it
+     */
+    @Test
+    public void framesLeaveTheOutboxInTheOrderTheMovesWerePlayed() {
+        Room room = new Room("room");
+        RecordingConnection black = new RecordingConnection();
+
+        RecordingConnection white = new RecordingConnection() {
+            @Override
+            public synchronized void send(byte[] frame) {
+                super.send(frame);
+
+                // Black answers as soon as white's move reaches white, while the outbox is still being written
+                if (frame[0] == 1) {
+                    assertNull(room.play(black, new Move(4, 1, 4, 3), new byte[] {2}));
+                    assertTrue(room.sendOutbox().isEmpty());
+                    room.send(new byte[] {3});
+                }
+            }
+        };
+
+        room.join(white, "white");
+        room.join(black, "black");
+
+        assertNull(room.play(white, new Move(4, 6, 4, 4), new byte[] {1}));
+        assertTrue(room.sendOutbox().isEmpty());
+
+        for (RecordingConnection member : List.of(white, black)) {
+            List<byte[]> frames = member.getFrames();
+
+            assertEquals(3, frames.size());
+            for (int i = 0; i < frames.size(); i++) {
+                assertArrayEquals(new byte[] {(byte) (i + 1)}, frames.get(i));
+            }
+        }
+
+        // Nothing is left for the next writer
+        assertTrue(room.sendOutbox().isEmpty());
+        assertEquals(3, black.getFrames().size());
+    }
+
+    @Test
+    public void membersThatCannotBeSentToAreReportedOnce() {
+        Room room = new Room("room");
+        RecordingConnection white = new RecordingConnection();
+        Connection broken = new Connection() {
+            @Override
+            public void send(byte[] frame) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+
+            @Override
+            public void close() {
+            }
+        };
+
+        room.join(white, "white");
+        room.join(broken, "black");
+
+        assertNull(room.play(white, new Move(4, 6, 4, 4), new byte[] {1}));
+
+        // The frame of the move goes out with the one sent after it, the broken member fails once for both
+        assertEquals(List.of(broken), room.send(new byte[] {2}));
+        assertEquals(2, white.getFrames().size());
+    }
+}
@@ -0,0 +1,212 @@
+package net.packets;
+
+import chess.core.Move;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.ProtocolException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PacketCodecTest {
+    @Test
+    public void everyPacketTypeSurvivesARoundTrip() throws IOException {
+        Packet[] packets = {
+            new LoginPacket("player1", true, 'w'),
+            new DisconnectPacket("player1"),
+            new MovePacket(new Move(4, 6, 4, 4), "player1"),
+            new CreateRoomPacket("player1", "room"),
+            new JoinRoomPacket("player2", "room"),
+            new LeaveRoomPacket("player2", "room"),
+            new ErrorPacket("player2", "There is no room röom")
+        };
+
+        for (Packet packet : packets) {
+            byte[] frame = PacketCodec.encode(packet);
+            Packet decoded = PacketCodec.read(new ByteArrayInputStream(frame));
+
+            assertEquals(packet.getClass(), decoded.getClass());
+            assertEquals(packet.getUsername(), decoded.getUsername());
+            assertArrayEquals(frame, PacketCodec.encode(decoded), packet.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    public void fieldsOfThePacketsAreKept() throws IOException {
+        LoginPacket login = (LoginPacket) roundTrip(new LoginPacket("player1", true, 'b'));
+        assertTrue(login.isHost());
+        assertEquals('b', login.getPlayerColor());
+
+        RoomPacket join = (RoomPacket) roundTrip(new JoinRoomPacket("player2", "room"));
+        assertEquals("room", join.getRoomID());
+
+        ErrorPacket error = (ErrorPacket) roundTrip(new ErrorPacket("player2", "Room room is full"));
+        assertEquals("Room room is full", error.getMessage());
+    }
+
+    @Test
+    public void moveIsPackedWithAllItsFlags() throws IOException {
+        Move move = new Move(4, 1, 5, 0);
+        move.setPieceType('p');
+        move.setPromotion('q');
+        move.setCapture(true);
+        move.setIsCheck(true);
+        move.setCheckmate(true);
+
+        Move decoded = ((MovePacket) roundTrip(new MovePacket(move, "player2"))).getMove();
+
+        assertEquals(4, decoded.getBegX());
+        assertEquals(1, decoded.getBegY());
+        assertEquals(5, decoded.getEndX());
+        assertEquals(0, decoded.getEndY());
+        assertEquals('p', decoded.getPieceType());
+        assertEquals('q', decoded.getPromotion());
+        assertTrue(decoded.isCapture());
+        assertTrue(decoded.isCheck());
+        assertTrue(decoded.isCheckmate());
+        assertFalse(decoded.isCastle());
+        assertFalse(decoded.isEnPassant());
+
+        Move castle = new Move(true, 4, 7, true);
+        castle.setPieceType('K');
+
+        Move decodedCastle = ((MovePacket) roundTrip(new MovePacket(castle, "player1"))).getMove();
+        assertTrue(decodedCastle.isCastle());
+        assertTrue(decodedCastle.isCastleKingSide());
+    }
+
+    @Test
+    public void movePacketIsSmall() {
+        // Packet ID, length, username and the 4 bytes of the move
+        assertEquals(1 + 1 + 1 + "player1".length() + 4,
+                PacketCodec.encode(new MovePacket(new Move(4, 6, 4, 4), "player1")).length);
+    }
+
+    @Test
+    public void framesAreDecodedOnceComplete() throws ProtocolException {
+        byte[] first = PacketCodec.encode(new CreateRoomPacket("player1", "room"));
+        byte[] second = PacketCodec.encode(new MovePacket(new Move(4, 6, 4, 4), "player1"));
+
+        ByteBuffer buffer = ByteBuffer.allocate(first.length + second.length);
+
+        // Byte by byte, nothing is decoded before the last byte of the frame is there
+        for (int i = 0; i < first.length; i++) {
+            buffer.put(first[i]);
+            buffer.flip();
+
+            Packet packet = PacketCodec.decodeFrame(buffer);
+            if (i < first.length - 1) {
+                assertNull(packet);
+                assertEquals(0, buffer.position());
+            }
+            else {
+                assertTrue(packet instanceof CreateRoomPacket);
+                assertFalse(buffer.hasRemaining());
+            }
+
+            buffer.compact();
+        }
+
+        buffer.put(second);
+        buffer.flip();
+
+        assertTrue(PacketCodec.decodeFrame(buffer) instanceof MovePacket);
+        assertNull(PacketCodec.decodeFrame(buffer));
+    }
+
+    @Test
+    public void streamEndingBetweenFramesIsEndOfFile() {
+        assertThrows(EOFException.class, () -> PacketCodec.read(new ByteArrayInputStream(new byte[0])));
+    }
+
+    @Test
+    public void invalidFramesAreRejected() {
+        byte[] move = PacketCodec.encode(new MovePacket(new Move(4, 6, 4, 4), "player1"));
+
+        // Unknown packet ID
+        byte[] unknown = move.clone();
+        unknown[0] = 42;
+        assertThrows(ProtocolException.class, () -> PacketCodec.read(new ByteArrayInputStream(unknown)));
+
+        // A payload longer than the packet uses
+        byte[] trailing = new byte[move.length + 1];
+        System.arraycopy(move, 0, trailing, 0, move.length);
+        trailing[1]++;
+        assertThrows(ProtocolException.class, () -> PacketCodec.read(new ByteArrayInputStream(trailing)));
+
+        // A payload shorter than the packet needs
+        byte[] shortened = Arrays.copyOf(move, move.length - 1);
+        shortened[1]--;
+        assertThrows(ProtocolException.class, () -> PacketCodec.read(new ByteArrayInputStream(shortened)));
+
+        // A length above the largest payload, refused before anything is read
+        ByteBuffer huge = ByteBuffer.allocate(16);
+        huge.put((byte) 2);
+        PacketCodec.writeVarInt(huge, PacketCodec.MAX_PAYLOAD + 1);
+        huge.flip();
+        assertThrows(ProtocolException.class, () -> PacketCodec.decodeFrame(huge));
+
+        // A move with bits no move has
+        ByteBuffer payload = ByteBuffer.allocate(5);
+        PacketCodec.writeString(payload, "");
+        payload.putInt(-1);
+        payload.flip();
+        assertThrows(ProtocolException.class, () -> PacketCodec.decode((byte) 2, payload));
+    }
+
+    @Test
+    public void stringsAreWrittenOnlyIfTheyCanBeRead() throws ProtocolException {
+        String longest = "x".repeat(PacketCodec.MAX_STRING);
+
+        ByteBuffer buffer = ByteBuffer.allocate(PacketCodec.stringSize(longest));
+        PacketCodec.writeString(buffer, longest);
+        buffer.flip();
+        assertEquals(longest, PacketCodec.readString(buffer));
+
+        // One byte more, or a character of several bytes past the limit
+        assertThrows(IllegalArgumentException.class,
+                () -> PacketCodec.encode(new CreateRoomPacket("player1", longest + "x")));
+        assertThrows(IllegalArgumentException.class,
+                () -> PacketCodec.encode(new ErrorPacket("player1", "x".repeat(PacketCodec.MAX_STRING - 1) + "ö")));
+
+        // What a peer might still send is refused on reading
+        ByteBuffer tooLong = ByteBuffer.allocate(PacketCodec.MAX_STRING + 3);
+        PacketCodec.writeVarInt(tooLong, PacketCodec.MAX_STRING + 1);
+        tooLong.put((longest + "x").getBytes(StandardCharsets.UTF_8));
+        tooLong.flip();
+        assertThrows(ProtocolException.class, () -> PacketCodec.readString(tooLong));
+    }
+
+    @Test
+    public void varIntsUseSevenBitsPerByte() throws ProtocolException {
+        int[] values = {0, 1, 127, 128, 300, 16383, 16384, Integer.MAX_VALUE, -1};
+
+        for (int value : values) {
+            ByteBuffer buffer = ByteBuffer.allocate(5);
+            PacketCodec.writeVarInt(buffer, value);
+
+            assertEquals(PacketCodec.varIntSize(value), buffer.position());
+
+            buffer.flip();
+            assertEquals(value, PacketCodec.readVarInt(buffer));
+        }
+    }
+
+    private static Packet roundTrip(Packet packet) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        PacketCodec.write(out, packet);
+
+        return PacketCodec.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+}